@@ -0,0 +1,73 @@
+package com.arian.example.junit.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.LedgerAccount;
+
+/**
+ * Single-threaded cost of Account.debit/credit, BigDecimal balance vs long minor units.
+ * Run with "-prof gc" (the profile default) to see gc.alloc.rate.norm per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AccountBenchmark {
+
+   private static final BigDecimal AMOUNT = new BigDecimal("100.25");
+
+   private static final long AMOUNT_UNITS = 100_250_000L;
+
+   private Account account;
+
+   private LedgerAccount ledgerAccount;
+
+   @Setup
+   public void setUp() {
+      account = new Account("Arian", new BigDecimal("1000.12345"));
+      ledgerAccount = new LedgerAccount("Arian", new BigDecimal("1000.12345"));
+   }
+
+   @Benchmark
+   public BigDecimal credit() {
+      account.credit(AMOUNT);
+      return account.getBalance();
+   }
+
+   // Credit first, so the debit never runs out of money
+   @Benchmark
+   public BigDecimal creditThenDebit() {
+      account.credit(AMOUNT);
+      account.debit(AMOUNT);
+      return account.getBalance();
+   }
+
+   @Benchmark
+   public long ledgerCreditThenDebit() {
+      ledgerAccount.creditUnits(AMOUNT_UNITS);
+      ledgerAccount.debitUnits(AMOUNT_UNITS);
+      return ledgerAccount.getUnits();
+   }
+
+   @Benchmark
+   public BigDecimal ledgerCreditThenDebitBigDecimal() {
+      ledgerAccount.credit(AMOUNT);
+      ledgerAccount.debit(AMOUNT);
+      return AMOUNT;
+   }
+}
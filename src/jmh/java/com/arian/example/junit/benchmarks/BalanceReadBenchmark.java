@@ -0,0 +1,79 @@
+package com.arian.example.junit.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+
+/**
+ * Dashboards reading while transfers run: 3 writer threads and 1 reader of the total balance. "transfers" is the write
+ * throughput with the reader around, "totalBalance" how many consistent totals the reader gets.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class BalanceReadBenchmark {
+
+   private static final BigDecimal AMOUNT = new BigDecimal("10.50");
+
+   @Param({ "100", "10000" })
+   public int accountCount;
+
+   private Bank bank;
+
+   private List<Account> accounts;
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      bank = new Bank();
+      bank.setName("Banco del estado");
+      for (int i = 0; i < accountCount; i++) {
+         bank.addAccount(new Account("Person " + i, new BigDecimal("1000000")));
+      }
+      accounts = bank.getAccounts();
+   }
+
+   @Benchmark
+   @Group("dashboard")
+   @GroupThreads(3)
+   public boolean transfers() {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      return bank.tryTransfer(accounts.get(random.nextInt(accountCount)), accounts.get(random.nextInt(accountCount)), AMOUNT);
+   }
+
+   @Benchmark
+   @Group("dashboard")
+   @GroupThreads(1)
+   public BigDecimal totalBalance() {
+      return bank.getTotalBalance();
+   }
+
+   @Benchmark
+   @Group("alone")
+   @GroupThreads(3)
+   public boolean transfersAlone() {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      return bank.tryTransfer(accounts.get(random.nextInt(accountCount)), accounts.get(random.nextInt(accountCount)), AMOUNT);
+   }
+}
@@ -0,0 +1,99 @@
+package com.arian.example.junit.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arian.example.junit.exceptions.InsufficientFundsException;
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+
+/**
+ * Bank.addAccount and Bank.transfer, single-threaded and contended. Few accounts means more threads fighting for
+ * the same locks.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BankBenchmark {
+
+   private static final BigDecimal AMOUNT = new BigDecimal("10.50");
+
+   @State(Scope.Benchmark)
+   public static class BankState {
+
+      @Param({ "2", "1000", "100000" })
+      public int accountCount;
+
+      public Bank bank;
+
+      public List<Account> accounts;
+
+      @Setup(Level.Trial)
+      public void setUp() {
+         bank = new Bank();
+         bank.setName("Banco del estado");
+         for (int i = 0; i < accountCount; i++) {
+            bank.addAccount(new Account("Person " + i, new BigDecimal("1000000")));
+         }
+         accounts = bank.getAccounts();
+      }
+   }
+
+   @State(Scope.Thread)
+   public static class EmptyBankState {
+
+      public Bank bank;
+
+      @Setup(Level.Iteration)
+      public void setUp() {
+         bank = new Bank();
+      }
+   }
+
+   @Benchmark
+   public Bank addAccount(final EmptyBankState state) {
+      state.bank.addAccount(new Account("Arian", BigDecimal.TEN));
+      return state.bank;
+   }
+
+   @Benchmark
+   @Threads(1)
+   public void transfer(final BankState state) {
+      randomTransfer(state);
+   }
+
+   @Benchmark
+   @Threads(4)
+   public void transferContended(final BankState state) {
+      randomTransfer(state);
+   }
+
+   private static void randomTransfer(final BankState state) {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      Account origin = state.accounts.get(random.nextInt(state.accountCount));
+      Account destination = state.accounts.get(random.nextInt(state.accountCount));
+      try {
+         state.bank.transfer(origin, destination, AMOUNT);
+      } catch (InsufficientFundsException e) {
+         // Random walk of balances: an account may run dry, that's part of the workload
+      }
+   }
+}
@@ -0,0 +1,120 @@
+package com.arian.example.junit.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+import com.arian.example.junit.models.LedgerAccount;
+import com.arian.example.junit.models.MoneyScale;
+import com.arian.example.junit.store.ColumnarAccountStore;
+
+/**
+ * Full scans over every account: the object layout of Bank (Account + BigDecimal, or LedgerAccount + long) vs the
+ * struct-of-arrays ColumnarAccountStore.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ColumnarBenchmark {
+
+   private static final BigDecimal RATE = new BigDecimal("0.000001");
+
+   @Param({ "1000000" })
+   public int accountCount;
+
+   private List<Account> accounts;
+
+   private List<LedgerAccount> ledgerAccounts;
+
+   private ColumnarAccountStore store;
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      Bank bank = new Bank();
+      Bank ledgerBank = new Bank();
+      store = new ColumnarAccountStore(MoneyScale.CENTS, accountCount);
+      ledgerAccounts = new ArrayList<>(accountCount);
+      for (int i = 0; i < accountCount; i++) {
+         BigDecimal balance = BigDecimal.valueOf(100_000 + i, 2);
+         bank.addAccount(new Account("Person " + (i % 1000), balance));
+         LedgerAccount ledgerAccount = new LedgerAccount("Person " + (i % 1000), balance, MoneyScale.CENTS);
+         ledgerBank.addAccount(ledgerAccount);
+         ledgerAccounts.add(ledgerAccount);
+         store.open("Person " + (i % 1000), 100_000 + i);
+      }
+      accounts = bank.getAccounts();
+   }
+
+   @Benchmark
+   public BigDecimal sumAccounts() {
+      BigDecimal sum = BigDecimal.ZERO;
+      for (Account account : accounts) {
+         sum = sum.add(account.getBalance());
+      }
+      return sum;
+   }
+
+   @Benchmark
+   public long sumLedgerAccounts() {
+      long sum = 0;
+      for (LedgerAccount account : ledgerAccounts) {
+         sum += account.getUnits();
+      }
+      return sum;
+   }
+
+   @Benchmark
+   public long sumColumnar() {
+      return store.sumUnits();
+   }
+
+   // A tiny rate, so the balances barely move between iterations
+   @Benchmark
+   public List<Account> interestAccounts() {
+      for (Account account : accounts) {
+         account.setBalance(account.getBalance().add(account.getBalance().multiply(RATE).setScale(2, MoneyScale.CENTS.getRoundingMode())));
+      }
+      return accounts;
+   }
+
+   @Benchmark
+   public ColumnarAccountStore interestColumnar() {
+      store.applyInterest(RATE);
+      return store;
+   }
+
+   @Benchmark
+   public int overdrawnAccounts() {
+      int count = 0;
+      for (Account account : accounts) {
+         if (account.getBalance().signum() < 0) {
+            count++;
+         }
+      }
+      return count;
+   }
+
+   @Benchmark
+   public int[] overdrawnColumnar() {
+      return store.findOverdrawn();
+   }
+}
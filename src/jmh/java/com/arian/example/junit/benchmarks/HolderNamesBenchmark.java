@@ -0,0 +1,55 @@
+package com.arian.example.junit.benchmarks;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arian.example.junit.models.HolderNames;
+
+/**
+ * Holder names of a bulk load (a few names repeated many times, already upper-cased or not): the plain toUpperCase
+ * the Account constructor used to do vs the HolderNames cache. "-prof gc" shows the Strings that are no longer created.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HolderNamesBenchmark {
+
+   private final String[] upperCase = { "ARIAN", "PEPE", "JOHN DOE", "BRIAN DANIEL", "MARIA", "LUCAS", "CATA" };
+
+   private final String[] mixedCase = { "Arian", "Pepe", "John Doe", "Brian Daniel", "Maria", "Lucas", "Cata" };
+
+   private int next;
+
+   @Benchmark
+   public String toUpperCaseMixed() {
+      return mixedCase[next++ % mixedCase.length].toUpperCase(Locale.ROOT);
+   }
+
+   @Benchmark
+   public String canonicalMixed() {
+      return HolderNames.canonical(mixedCase[next++ % mixedCase.length]);
+   }
+
+   @Benchmark
+   public String toUpperCaseAlreadyUpper() {
+      return upperCase[next++ % upperCase.length].toUpperCase(Locale.ROOT);
+   }
+
+   @Benchmark
+   public String canonicalAlreadyUpper() {
+      return HolderNames.canonical(upperCase[next++ % upperCase.length]);
+   }
+}
@@ -0,0 +1,61 @@
+package com.arian.example.junit.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.AtomicAccount;
+
+/**
+ * One hot account debited and credited by 8 threads: a plain Account behind a lock vs the lock-free AtomicAccount.
+ * Change the thread count with "-t" to see how both scale.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class HotAccountBenchmark {
+
+   private static final BigDecimal AMOUNT = new BigDecimal("10.50");
+
+   private Account lockedAccount;
+
+   private AtomicAccount atomicAccount;
+
+   @Setup
+   public void setUp() {
+      lockedAccount = new Account("Merchant", new BigDecimal("1000000"));
+      atomicAccount = new AtomicAccount("Merchant", new BigDecimal("1000000"));
+   }
+
+   @Benchmark
+   public void locked() {
+      synchronized (lockedAccount) {
+         lockedAccount.credit(AMOUNT);
+      }
+      synchronized (lockedAccount) {
+         lockedAccount.debit(AMOUNT);
+      }
+   }
+
+   @Benchmark
+   public void lockFree() {
+      atomicAccount.credit(AMOUNT);
+      atomicAccount.debit(AMOUNT);
+   }
+}
@@ -0,0 +1,64 @@
+package com.arian.example.junit.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.AtomicAccount;
+import com.arian.example.junit.models.StripedAccount;
+
+/**
+ * Many threads crediting the same fee collector account: plain Account behind a lock, CAS (AtomicAccount) and striped
+ * cells (StripedAccount). Run it with -t 1, -t 2, -t 4... to see how throughput scales with the thread count.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HotCreditBenchmark {
+
+   private static final BigDecimal FEE = new BigDecimal("0.25");
+
+   private Account lockedAccount;
+
+   private AtomicAccount atomicAccount;
+
+   private StripedAccount stripedAccount;
+
+   @Setup
+   public void setUp() {
+      lockedAccount = new Account("Fee Collector", BigDecimal.ZERO);
+      atomicAccount = new AtomicAccount("Fee Collector", BigDecimal.ZERO);
+      stripedAccount = new StripedAccount("Fee Collector", BigDecimal.ZERO);
+   }
+
+   @Benchmark
+   public void lockedCredit() {
+      synchronized (lockedAccount) {
+         lockedAccount.credit(FEE);
+      }
+   }
+
+   @Benchmark
+   public void atomicCredit() {
+      atomicAccount.credit(FEE);
+   }
+
+   @Benchmark
+   public void stripedCredit() {
+      stripedAccount.credit(FEE);
+   }
+}
@@ -0,0 +1,98 @@
+package com.arian.example.junit.benchmarks;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arian.example.junit.models.AccrualReport;
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+import com.arian.example.junit.models.InterestAccrual;
+import com.arian.example.junit.models.LedgerAccount;
+import com.arian.example.junit.models.MoneyScale;
+
+/**
+ * Nightly interest on 10 million LedgerAccounts: a plain loop doing BigDecimal math on every balance vs InterestAccrual
+ * (chunks in parallel, long arithmetic), with and without a checkpoint file.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class InterestAccrualBenchmark {
+
+   private static final BigDecimal RATE = new BigDecimal("0.0001");
+
+   private Bank bank;
+
+   private Path checkpoint;
+
+   private LocalDate night = LocalDate.of(2024, 1, 1);
+
+   @Setup(Level.Trial)
+   public void setUp() throws IOException {
+      bank = new Bank();
+      bank.setName("Banco del estado");
+      List<Account> accounts = new ArrayList<>();
+      for (int i = 0; i < 10_000_000; i++) {
+         accounts.add(new LedgerAccount("Person " + (i % 50_000), BigDecimal.valueOf(i, 2), MoneyScale.CENTS));
+      }
+      bank.addAccounts(accounts);
+      checkpoint = Files.createTempFile("accrual", ".checkpoint");
+   }
+
+   // Every invocation is a new night: a completed checkpoint would accrue nothing
+   @Setup(Level.Invocation)
+   public void newNight() throws IOException {
+      Files.deleteIfExists(checkpoint);
+      night = night.plusDays(1);
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() throws IOException {
+      Files.deleteIfExists(checkpoint);
+   }
+
+   @Benchmark
+   public long naiveLoop() {
+      long accrued = 0;
+      for (Account account : bank.getAccounts()) {
+         account.credit(account.getBalance().multiply(RATE).setScale(2, RoundingMode.HALF_EVEN));
+         accrued++;
+      }
+      return accrued;
+   }
+
+   @Benchmark
+   public AccrualReport chunked() throws IOException {
+      return new InterestAccrual(bank, RATE, MoneyScale.CENTS).run();
+   }
+
+   @Benchmark
+   public AccrualReport chunkedWithCheckpoint() throws IOException {
+      return new InterestAccrual(bank, RATE, MoneyScale.CENTS, night, InterestAccrual.DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool(),
+            checkpoint).run();
+   }
+}
@@ -0,0 +1,97 @@
+package com.arian.example.junit.benchmarks;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arian.example.junit.exceptions.InsufficientFundsException;
+import com.arian.example.junit.ledger.Journal;
+import com.arian.example.junit.ledger.JournalOptions;
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+
+/**
+ * Journaled transfers for different group-commit batch sizes: "transfer" lets the background flusher fsync,
+ * "transferAndCommit" waits until its own transfer is durable (sharing the fsync with the other threads).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class JournalBenchmark {
+
+   private static final BigDecimal AMOUNT = new BigDecimal("10.50");
+
+   @Param({ "1", "100", "10000" })
+   public int batchSize;
+
+   private Path file;
+
+   private Journal journal;
+
+   private Bank bank;
+
+   private List<Account> accounts;
+
+   @Setup(Level.Iteration)
+   public void setUp() throws IOException {
+      file = Files.createTempFile("bank", ".journal");
+      Files.delete(file);
+      bank = new Bank();
+      for (int i = 0; i < 1_000; i++) {
+         bank.addAccount(new Account("Person " + i, new BigDecimal("1000000")));
+      }
+      accounts = bank.getAccounts();
+      journal = Journal.open(file, new JournalOptions(batchSize, Duration.ofMillis(10)));
+      journal.attach(bank);
+   }
+
+   @TearDown(Level.Iteration)
+   public void tearDown() throws IOException {
+      journal.close();
+      Files.deleteIfExists(file);
+   }
+
+   @Benchmark
+   public void transfer() {
+      randomTransfer();
+   }
+
+   @Benchmark
+   public void transferAndCommit() throws IOException {
+      randomTransfer();
+      journal.commit();
+   }
+
+   private void randomTransfer() {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      try {
+         bank.transfer(accounts.get(random.nextInt(accounts.size())), accounts.get(random.nextInt(accounts.size())), AMOUNT);
+      } catch (InsufficientFundsException e) {
+         // Not journaled
+      }
+   }
+}
@@ -0,0 +1,72 @@
+package com.arian.example.junit.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arian.example.junit.metrics.BankMetrics;
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+
+/**
+ * Cost of the metrics on the hot path: the same debit/credit and transfer with metrics disabled (the default) and
+ * enabled. The difference between both is what BankMetrics adds per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MetricsBenchmark {
+
+   private static final BigDecimal AMOUNT = new BigDecimal("10.50");
+
+   @Param({ "false", "true" })
+   public boolean metricsEnabled;
+
+   private Bank bank;
+
+   private Account john;
+
+   private Account arian;
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      bank = new Bank();
+      bank.setName("Banco del estado");
+      if (metricsEnabled) {
+         bank.setMetrics(new BankMetrics());
+      }
+      john = new Account("John Doe", new BigDecimal("1000000"));
+      arian = new Account("Arian Doe", new BigDecimal("1000000"));
+      bank.addAccount(john);
+      bank.addAccount(arian);
+   }
+
+   @Benchmark
+   public Account debitAndCredit() {
+      john.debit(AMOUNT);
+      john.credit(AMOUNT);
+      return john;
+   }
+
+   @Benchmark
+   public Account transferBackAndForth() {
+      bank.transfer(john, arian, AMOUNT);
+      bank.transfer(arian, john, AMOUNT);
+      return john;
+   }
+}
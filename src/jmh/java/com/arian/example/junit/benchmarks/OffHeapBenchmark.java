@@ -0,0 +1,111 @@
+package com.arian.example.junit.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+import com.arian.example.junit.models.MoneyScale;
+import com.arian.example.junit.store.ColumnarAccountStore;
+import com.arian.example.junit.store.OffHeapAccountStore;
+
+/**
+ * Heap cost of one more account (look at gc.alloc.rate.norm with "-prof gc": what stays on the heap per account) and
+ * scan speed of the off-heap records vs the on-heap columns.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OffHeapBenchmark {
+
+   private static final int SCAN_ACCOUNTS = 1_000_000;
+
+   private static final String[] HOLDERS = new String[1000];
+
+   static {
+      for (int i = 0; i < HOLDERS.length; i++) {
+         HOLDERS[i] = "PERSON " + i;
+      }
+   }
+
+   @State(Scope.Thread)
+   public static class EmptyStores {
+
+      public Bank bank;
+
+      public ColumnarAccountStore columnar;
+
+      public OffHeapAccountStore offHeap;
+
+      public int next;
+
+      @Setup(Level.Iteration)
+      public void setUp() {
+         bank = new Bank();
+         columnar = new ColumnarAccountStore(MoneyScale.CENTS);
+         offHeap = new OffHeapAccountStore(MoneyScale.CENTS);
+         next = 0;
+      }
+   }
+
+   @State(Scope.Benchmark)
+   public static class FullStores {
+
+      public ColumnarAccountStore columnar;
+
+      public OffHeapAccountStore offHeap;
+
+      @Setup(Level.Trial)
+      public void setUp() {
+         columnar = new ColumnarAccountStore(MoneyScale.CENTS, SCAN_ACCOUNTS);
+         offHeap = new OffHeapAccountStore(MoneyScale.CENTS);
+         for (int i = 0; i < SCAN_ACCOUNTS; i++) {
+            columnar.open("Person " + (i % 1000), 100_000 + i);
+            offHeap.open("Person " + (i % 1000), 100_000 + i);
+         }
+      }
+   }
+
+   // Same 1000 holders over and over, as in a real bank where holders have many accounts
+   @Benchmark
+   public Bank openBankAccount(final EmptyStores stores) {
+      stores.bank.addAccount(new Account(HOLDERS[stores.next++ % HOLDERS.length], BigDecimal.TEN));
+      return stores.bank;
+   }
+
+   @Benchmark
+   public int openColumnar(final EmptyStores stores) {
+      return stores.columnar.open(HOLDERS[stores.next++ % HOLDERS.length], 1_000);
+   }
+
+   @Benchmark
+   public int openOffHeap(final EmptyStores stores) {
+      return stores.offHeap.open(HOLDERS[stores.next++ % HOLDERS.length], 1_000);
+   }
+
+   @Benchmark
+   @OutputTimeUnit(TimeUnit.MICROSECONDS)
+   public long sumColumnar(final FullStores stores) {
+      return stores.columnar.sumUnits();
+   }
+
+   @Benchmark
+   @OutputTimeUnit(TimeUnit.MICROSECONDS)
+   public long sumOffHeap(final FullStores stores) {
+      return stores.offHeap.sumUnits();
+   }
+}
@@ -0,0 +1,126 @@
+package com.arian.example.junit.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arian.example.junit.events.BankLiabilities;
+import com.arian.example.junit.events.EventLog;
+import com.arian.example.junit.events.HolderTotals;
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+
+/**
+ * Reads: what the bank owes, by scanning every account vs the BankLiabilities projection, and a holder's total, by
+ * summing findAccountsByPerson vs HolderTotals. Writes: what keeping the log and two projections costs a transfer
+ * (the projections are applied after the accounts are unlocked, but on the same thread, so it is in the score).
+ * The log keeps its last million events in memory; it is started again each iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProjectionBenchmark {
+
+   private static final BigDecimal AMOUNT = new BigDecimal("10.50");
+
+   @Param({ "100", "100000" })
+   public int accountCount;
+
+   private Bank bank;
+
+   private Bank loggedBank;
+
+   private List<Account> accounts;
+
+   private List<Account> loggedAccounts;
+
+   private BankLiabilities liabilities;
+
+   private HolderTotals holders;
+
+   private EventLog log;
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      bank = newBank("Banco del estado");
+      accounts = bank.getAccounts();
+      loggedBank = newBank("Banco de Chile");
+      loggedAccounts = loggedBank.getAccounts();
+   }
+
+   @Setup(Level.Iteration)
+   public void newLog() {
+      if (log != null) {
+         loggedBank.removeListener(log);
+      }
+      log = new EventLog();
+      log.attach(loggedBank);
+      liabilities = new BankLiabilities();
+      holders = new HolderTotals();
+      log.subscribe(liabilities);
+      log.subscribe(holders);
+   }
+
+   private Bank newBank(final String name) {
+      Bank newBank = new Bank();
+      newBank.setName(name);
+      for (int i = 0; i < accountCount; i++) {
+         // 10 accounts per holder
+         newBank.addAccount(new Account("Person " + i / 10, new BigDecimal("1000000")));
+      }
+      return newBank;
+   }
+
+   @Benchmark
+   public BigDecimal liabilitiesByScan() {
+      return loggedBank.getTotalBalance();
+   }
+
+   @Benchmark
+   public BigDecimal liabilitiesByProjection() {
+      return liabilities.getLiabilities(loggedBank);
+   }
+
+   @Benchmark
+   public BigDecimal holderTotalByLookup() {
+      BigDecimal total = BigDecimal.ZERO;
+      for (Account account : loggedBank.findAccountsByPerson("Person 7")) {
+         total = total.add(account.getBalance());
+      }
+      return total;
+   }
+
+   @Benchmark
+   public BigDecimal holderTotalByProjection() {
+      return holders.getTotal("Person 7");
+   }
+
+   @Benchmark
+   public boolean transfer() {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      return bank.tryTransfer(accounts.get(random.nextInt(accountCount)), accounts.get(random.nextInt(accountCount)), AMOUNT);
+   }
+
+   @Benchmark
+   public boolean transferLogged() {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      return loggedBank.tryTransfer(loggedAccounts.get(random.nextInt(accountCount)), loggedAccounts.get(random.nextInt(accountCount)), AMOUNT);
+   }
+}
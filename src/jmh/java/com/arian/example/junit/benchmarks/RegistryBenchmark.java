@@ -0,0 +1,76 @@
+package com.arian.example.junit.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+
+/**
+ * Looking up an account through the Bank indexes vs scanning the account list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RegistryBenchmark {
+
+   @Param({ "1000", "100000", "1000000" })
+   public int accountCount;
+
+   private Bank bank;
+
+   private List<Account> accounts;
+
+   @Setup
+   public void setUp() {
+      bank = new Bank();
+      for (int i = 0; i < accountCount; i++) {
+         bank.addAccount(new Account("Person " + i, BigDecimal.TEN));
+      }
+      accounts = bank.getAccounts();
+   }
+
+   @Benchmark
+   public Optional<Account> findById() {
+      return bank.findAccount(randomId());
+   }
+
+   @Benchmark
+   public Optional<Account> scanById() {
+      long id = randomId();
+      return accounts.stream().filter(a -> a.getId() == id).findFirst();
+   }
+
+   @Benchmark
+   public List<Account> findByPerson() {
+      return bank.findAccountsByPerson("Person " + (randomId() - 1));
+   }
+
+   @Benchmark
+   public Optional<Account> scanByPerson() {
+      String person = "PERSON " + (randomId() - 1);
+      return accounts.stream().filter(a -> a.getPerson().equals(person)).findFirst();
+   }
+
+   private long randomId() {
+      return ThreadLocalRandom.current().nextLong(1, accountCount + 1L);
+   }
+}
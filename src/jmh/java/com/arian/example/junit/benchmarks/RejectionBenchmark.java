@@ -0,0 +1,80 @@
+package com.arian.example.junit.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arian.example.junit.exceptions.InsufficientFundsException;
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+
+/**
+ * A client hammering an empty account: every debit is rejected. The throwing APIs pay for a new exception and its
+ * stack trace each time, the try* ones just return false.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RejectionBenchmark {
+
+   private static final BigDecimal AMOUNT = new BigDecimal("10.50");
+
+   private Bank bank;
+
+   private Account empty;
+
+   private Account arian;
+
+   @Setup
+   public void setUp() {
+      bank = new Bank();
+      bank.setName("Banco del estado");
+      empty = new Account("John Doe", BigDecimal.ZERO);
+      arian = new Account("Arian Doe", BigDecimal.ZERO);
+      bank.addAccount(empty);
+      bank.addAccount(arian);
+   }
+
+   @Benchmark
+   public boolean debit() {
+      try {
+         empty.debit(AMOUNT);
+         return true;
+      } catch (InsufficientFundsException e) {
+         return false;
+      }
+   }
+
+   @Benchmark
+   public boolean tryDebit() {
+      return empty.tryDebit(AMOUNT);
+   }
+
+   @Benchmark
+   public boolean transfer() {
+      try {
+         bank.transfer(empty, arian, AMOUNT);
+         return true;
+      } catch (InsufficientFundsException e) {
+         return false;
+      }
+   }
+
+   @Benchmark
+   public boolean tryTransfer() {
+      return bank.tryTransfer(empty, arian, AMOUNT);
+   }
+}
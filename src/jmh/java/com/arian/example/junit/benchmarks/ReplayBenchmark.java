@@ -0,0 +1,85 @@
+package com.arian.example.junit.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arian.example.junit.exceptions.InsufficientFundsException;
+import com.arian.example.junit.ledger.LedgerReplay;
+import com.arian.example.junit.ledger.ReplayReport;
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+import com.arian.example.junit.models.Transfer;
+
+/**
+ * Replaying 1M transfers one by one vs with LedgerReplay. Accounts only trade inside groups of "groupSize" accounts,
+ * so there are accountCount / groupSize independent partitions.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReplayBenchmark {
+
+   private static final int TRANSFERS = 1_000_000;
+
+   @Param({ "100000" })
+   public int accountCount;
+
+   @Param({ "10", "1000" })
+   public int groupSize;
+
+   private Bank bank;
+
+   private List<Transfer> transfers;
+
+   @Setup(Level.Invocation)
+   public void setUp() {
+      bank = new Bank();
+      for (int i = 0; i < accountCount; i++) {
+         bank.addAccount(new Account("Person " + i, new BigDecimal("1000")));
+      }
+      List<Account> accounts = bank.getAccounts();
+      Random random = new Random(42);
+      transfers = new ArrayList<>(TRANSFERS);
+      for (int i = 0; i < TRANSFERS; i++) {
+         int group = random.nextInt(accountCount / groupSize) * groupSize;
+         transfers.add(new Transfer(accounts.get(group + random.nextInt(groupSize)), accounts.get(group + random.nextInt(groupSize)),
+               BigDecimal.valueOf(random.nextInt(10_000), 2)));
+      }
+   }
+
+   @Benchmark
+   public Bank sequential() {
+      for (Transfer transfer : transfers) {
+         try {
+            bank.transfer(transfer.getOrigin(), transfer.getDestination(), transfer.getAmount());
+         } catch (InsufficientFundsException e) {
+            // Same rejections as the parallel replay
+         }
+      }
+      return bank;
+   }
+
+   @Benchmark
+   public ReplayReport parallel() {
+      return new LedgerReplay(bank).replay(transfers);
+   }
+}
@@ -0,0 +1,90 @@
+package com.arian.example.junit.benchmarks;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+import com.arian.example.junit.models.SettlementEngine;
+
+/**
+ * Card payments: 10,000 customers of one bank paying 10 merchants of another, from 4 threads. Gross, every payment locks
+ * a customer AND a (hot) merchant; with the SettlementEngine, a payment only queues the transfer, and each customer and
+ * merchant moves its net once per settlement cycle (every 10 ms here). The settling thread's work is part of the score:
+ * with fewer cores than threads it competes with the payments.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class SettlementBenchmark {
+
+   private static final BigDecimal AMOUNT = new BigDecimal("10.50");
+
+   private List<Account> customers;
+
+   private List<Account> merchants;
+
+   private Bank issuer;
+
+   private SettlementEngine engine;
+
+   private Closeable settling;
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      issuer = new Bank();
+      issuer.setName("Banco del estado");
+      Bank acquirer = new Bank();
+      acquirer.setName("Banco de Chile");
+      for (int i = 0; i < 10_000; i++) {
+         issuer.addAccount(new Account("Person " + i, new BigDecimal("100000000")));
+      }
+      for (int i = 0; i < 10; i++) {
+         acquirer.addAccount(new Account("Merchant " + i, BigDecimal.ZERO));
+      }
+      customers = issuer.getAccounts();
+      merchants = acquirer.getAccounts();
+      engine = new SettlementEngine();
+      settling = engine.startSettling(Duration.ofMillis(10));
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() throws IOException {
+      settling.close();
+   }
+
+   @Benchmark
+   public boolean gross() {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      return issuer.tryTransfer(customers.get(random.nextInt(customers.size())), merchants.get(random.nextInt(merchants.size())), AMOUNT);
+   }
+
+   @Benchmark
+   public boolean netted() {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      return engine.submit(customers.get(random.nextInt(customers.size())), merchants.get(random.nextInt(merchants.size())), AMOUNT);
+   }
+}
@@ -0,0 +1,93 @@
+package com.arian.example.junit.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arian.example.junit.ledger.BalanceSnapshot;
+import com.arian.example.junit.ledger.VersionedBalances;
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+
+/**
+ * End-of-day report while transfers run: 3 writer threads and 1 reader summing a whole MVCC snapshot. Compare with
+ * BalanceReadBenchmark, where a long optimistic read over a busy bank falls back to pausing the transfers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class SnapshotBenchmark {
+
+   private static final BigDecimal AMOUNT = new BigDecimal("10.50");
+
+   @Param({ "100", "10000" })
+   public int accountCount;
+
+   private Bank bank;
+
+   private List<Account> accounts;
+
+   private VersionedBalances versions;
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      bank = new Bank();
+      bank.setName("Banco del estado");
+      for (int i = 0; i < accountCount; i++) {
+         bank.addAccount(new Account("Person " + i, new BigDecimal("1000000")));
+      }
+      accounts = bank.getAccounts();
+      versions = VersionedBalances.attach(bank);
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      versions.close();
+   }
+
+   @Benchmark
+   @Group("report")
+   @GroupThreads(3)
+   public boolean transfers() {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      return bank.tryTransfer(accounts.get(random.nextInt(accountCount)), accounts.get(random.nextInt(accountCount)), AMOUNT);
+   }
+
+   @Benchmark
+   @Group("report")
+   @GroupThreads(1)
+   public BigDecimal snapshotTotal() {
+      try (BalanceSnapshot snapshot = versions.openSnapshot()) {
+         return snapshot.getTotalBalance();
+      }
+   }
+
+   // Cost of keeping the versions, without any reader
+   @Benchmark
+   @Group("versionedAlone")
+   @GroupThreads(3)
+   public boolean transfersAlone() {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      return bank.tryTransfer(accounts.get(random.nextInt(accountCount)), accounts.get(random.nextInt(accountCount)), AMOUNT);
+   }
+}
@@ -0,0 +1,87 @@
+package com.arian.example.junit.benchmarks;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arian.example.junit.ledger.BankSnapshot;
+import com.arian.example.junit.ledger.Journal;
+import com.arian.example.junit.ledger.JournalOptions;
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+
+/**
+ * Cold start of a bank: loading a snapshot vs replaying a journal of the same accounts vs calling addAccount for each one.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+   @Param({ "100000", "1000000" })
+   public int accountCount;
+
+   private Path snapshot;
+
+   private Path journal;
+
+   @Setup
+   public void setUp() throws IOException {
+      snapshot = Files.createTempFile("bank", ".snapshot");
+      journal = Files.createTempFile("bank", ".journal");
+      Files.delete(journal);
+      Bank bank = new Bank();
+      bank.setName("Banco del estado");
+      try (Journal writer = Journal.open(journal, JournalOptions.defaults())) {
+         writer.attach(bank);
+         for (int i = 0; i < accountCount; i++) {
+            bank.addAccount(new Account("Person " + (i % 50_000), BigDecimal.valueOf(i, 2)));
+         }
+      }
+      BankSnapshot.write(bank, snapshot);
+   }
+
+   @TearDown
+   public void tearDown() throws IOException {
+      Files.deleteIfExists(snapshot);
+      Files.deleteIfExists(journal);
+   }
+
+   @Benchmark
+   public Bank loadSnapshot() throws IOException {
+      return BankSnapshot.read(snapshot);
+   }
+
+   @Benchmark
+   public Bank recoverJournal() throws IOException {
+      return Journal.recover(journal);
+   }
+
+   @Benchmark
+   public Bank addAccountOneByOne() {
+      Bank bank = new Bank();
+      bank.setName("Banco del estado");
+      for (int i = 0; i < accountCount; i++) {
+         bank.addAccount(new Account("Person " + (i % 50_000), BigDecimal.valueOf(i, 2)));
+      }
+      return bank;
+   }
+}
@@ -0,0 +1,59 @@
+package com.arian.example.junit.events;
+
+import java.math.BigDecimal;
+
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+
+import lombok.Value;
+
+/**
+ * One immutable entry of an {@link EventLog}. Each account taking part is captured as a {@link Leg} when the change is
+ * applied: no reference to the account itself, whose balance (and anything else) goes on changing.
+ */
+@Value
+public class BankEvent {
+
+   public enum Type {
+      // An account joined the bank, with its balance at that moment
+      OPENED,
+      DEBITED,
+      CREDITED,
+      // From account to counterparty
+      TRANSFERRED,
+      // A debit or transfer refused for lack of funds, nothing moved
+      REJECTED
+   }
+
+   // 1, 2, 3... in the order the changes were applied
+   long sequence;
+
+   Type type;
+
+   Leg account;
+
+   // Destination of a transfer, null for the other types
+   Leg counterparty;
+
+   /**
+    * One account of an event: its bank (compare it by identity, banks can be renamed), its id in that bank, its holder,
+    * and the amount that moved in or out of it, rounded the way the account rounds it (for a transfer between accounts
+    * of different scales the two legs can differ). REJECTED events have the amount that was refused.
+    */
+   @Value
+   public static class Leg {
+
+      // Null for an account outside of any bank
+      Bank bank;
+
+      long accountId;
+
+      String holder;
+
+      BigDecimal amount;
+
+      public static Leg of(final Account account, final BigDecimal amount) {
+         return new Leg(account.getBank(), account.getId(), account.getPerson(), account.applied(amount));
+      }
+   }
+}
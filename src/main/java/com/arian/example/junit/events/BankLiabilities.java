@@ -0,0 +1,64 @@
+package com.arian.example.junit.events;
+
+import java.math.BigDecimal;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.arian.example.junit.models.Bank;
+
+/**
+ * What each bank owes its account holders (the sum of its balances): a transfer between two banks moves the liability
+ * from one to the other. Banks are told apart by identity, not by their (changeable) name. Accounts that belong to no
+ * bank are not counted.
+ */
+public class BankLiabilities implements Projection {
+
+   // Copied on write: a new bank is rare, reads and updates of a known bank take no lock
+   private volatile Map<Bank, Liability> liabilities = new IdentityHashMap<>();
+
+   @Override
+   public void apply(final BankEvent event) {
+      switch (event.getType()) {
+         case OPENED, CREDITED -> add(event.getAccount(), event.getAccount().getAmount());
+         case DEBITED -> add(event.getAccount(), event.getAccount().getAmount().negate());
+         case TRANSFERRED -> {
+            BankEvent.Leg origin = event.getAccount();
+            BankEvent.Leg destination = event.getCounterparty();
+            // Inside one bank (and one scale) nothing changes
+            if (origin.getBank() != destination.getBank() || origin.getAmount().compareTo(destination.getAmount()) != 0) {
+               add(origin, origin.getAmount().negate());
+               add(destination, destination.getAmount());
+            }
+         }
+         case REJECTED -> {
+            // Nothing moved
+         }
+      }
+   }
+
+   private void add(final BankEvent.Leg leg, final BigDecimal amount) {
+      Bank bank = leg.getBank();
+      if (bank == null) {
+         return;
+      }
+      Liability liability = liabilities.get(bank);
+      if (liability == null) {
+         Map<Bank, Liability> copy = new IdentityHashMap<>(liabilities);
+         liability = new Liability();
+         copy.put(bank, liability);
+         liabilities = copy;
+      }
+      liability.amount = liability.amount.add(amount);
+   }
+
+   public BigDecimal getLiabilities(final Bank bank) {
+      Liability liability = liabilities.get(bank);
+      return liability == null ? BigDecimal.ZERO : liability.amount;
+   }
+
+   private static final class Liability {
+
+      // Only written by the thread applying events
+      private volatile BigDecimal amount = BigDecimal.ZERO;
+   }
+}
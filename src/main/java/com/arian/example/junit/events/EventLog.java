@@ -0,0 +1,285 @@
+package com.arian.example.junit.events;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+import com.arian.example.junit.models.BankListener;
+import com.arian.example.junit.models.Transfer;
+
+/**
+ * Ordered, in-memory stream of immutable {@link BankEvent}s of one or more banks, pushed to its subscribed
+ * {@link Projection}s.
+ * <p>
+ * Events get their sequence number from one counter (a CAS, no lock), and the bank notifies a transfer while its
+ * accounts are still locked, so the log order is the order the changes were applied to each account (direct debits and
+ * credits don't lock the account: one may be logged just after a transfer applied after it). A batch of
+ * {@link Bank#transferAll(List)} is appended as consecutive TRANSFERRED events. Projections are not updated by the
+ * append: they are applied in {@link #afterChange()}, once the bank released the accounts, by whichever writer gets
+ * there first (the others don't wait, it applies their events too), one event at a time and in sequence order. A
+ * projection may be a few events behind a change that was just made; it has every one of them once the call that made
+ * it returns. Attach every bank whose accounts trade with each other: the accounts of other banks are only seen through
+ * the transfers they take part in.
+ * <p>
+ * Only the last {@code capacity} events are kept: subscribed projections see every event, but once older ones are
+ * dropped a new projection can't be built from the log any more ({@link IllegalStateException}). A writer only waits if
+ * the projections are a whole capacity behind it.
+ */
+public class EventLog implements BankListener {
+
+   public static final int DEFAULT_CAPACITY = 1 << 20;
+
+   // The ring is allocated one segment at a time, as the events come
+   private static final int SEGMENT = 1024;
+
+   private static final VarHandle SEGMENTS = MethodHandles.arrayElementVarHandle(BankEvent[][].class);
+
+   private static final VarHandle EVENTS = MethodHandles.arrayElementVarHandle(BankEvent[].class);
+
+   private final int capacity;
+
+   // Event n is at slot (n - 1) % capacity: the newest event replaces the oldest
+   private final BankEvent[][] segments;
+
+   // Last sequence handed out to a writer; its event may not be in the ring yet
+   private final AtomicLong lastClaimed = new AtomicLong();
+
+   // Last event applied to the projections, and every one before it. Only written holding applying
+   private volatile long lastApplied;
+
+   // Held by the one thread applying events; guards the subscribed projections
+   private final ReentrantLock applying = new ReentrantLock();
+
+   private final List<Projection> projections = new ArrayList<>();
+
+   public EventLog() {
+      this(DEFAULT_CAPACITY);
+   }
+
+   public EventLog(final int capacity) {
+      if (capacity <= 0) {
+         throw new IllegalArgumentException("The capacity must be positive but was: " + capacity);
+      }
+      this.capacity = capacity;
+      this.segments = new BankEvent[(capacity - 1) / SEGMENT + 1][];
+   }
+
+   /**
+    * Starts logging the bank: one OPENED event per account it already has (all taken while transfers are paused), then
+    * every change.
+    */
+   public void attach(final Bank bank) {
+      bank.addListener(this, () -> bank.getAccounts().forEach(this::accountAdded));
+   }
+
+   /**
+    * Replays the events logged so far into the projection, then keeps it up to date. The history is replayed while
+    * events go on being applied to the other projections, only the last few are replayed while they wait.
+    *
+    * @throws IllegalStateException if the log no longer has its first events
+    */
+   public void subscribe(final Projection projection) {
+      long replayed = lastApplied;
+      eventsBetween(0, replayed).forEach(projection::apply);
+      applying.lock();
+      try {
+         eventsBetween(replayed, lastApplied).forEach(projection::apply);
+         projections.add(projection);
+      } finally {
+         applying.unlock();
+      }
+      // Writers that found the lock taken left their events to us
+      drain();
+   }
+
+   public void unsubscribe(final Projection projection) {
+      applying.lock();
+      try {
+         projections.remove(projection);
+      } finally {
+         applying.unlock();
+      }
+      drain();
+   }
+
+   /**
+    * Rebuilds a (new, empty) projection from every event logged so far; it is not subscribed.
+    *
+    * @throws IllegalStateException if the log no longer has its first events
+    */
+   public <P extends Projection> P replay(final P projection) {
+      eventsBetween(0, lastApplied).forEach(projection::apply);
+      return projection;
+   }
+
+   /**
+    * The events still kept, oldest first.
+    */
+   public List<BankEvent> getEvents() {
+      while (true) {
+         long last = lastApplied;
+         List<BankEvent> events = read(Math.max(0, last - capacity), last);
+         if (events != null) {
+            return events;
+         }
+         // Writers went round the ring meanwhile, the oldest ones are gone
+      }
+   }
+
+   /**
+    * Sequence of the oldest event still kept (1 until the log is full).
+    */
+   public long getFirstSequence() {
+      return Math.max(1, lastApplied - capacity + 1);
+   }
+
+   /**
+    * Sequence of the last event applied to the projections (and of the last one {@link #getEvents()} returns).
+    */
+   public long getLastSequence() {
+      return lastApplied;
+   }
+
+   /**
+    * Number of events still kept: at most the capacity.
+    */
+   public long size() {
+      return Math.min(lastApplied, capacity);
+   }
+
+   @Override
+   public void accountAdded(final Account account) {
+      BankEvent.Leg leg = BankEvent.Leg.of(account, account.getBalance());
+      append(BankEvent.Type.OPENED, leg, null);
+   }
+
+   @Override
+   public void debited(final Account account, final BigDecimal amount) {
+      BankEvent.Leg leg = BankEvent.Leg.of(account, amount);
+      append(BankEvent.Type.DEBITED, leg, null);
+   }
+
+   @Override
+   public void credited(final Account account, final BigDecimal amount) {
+      BankEvent.Leg leg = BankEvent.Leg.of(account, amount);
+      append(BankEvent.Type.CREDITED, leg, null);
+   }
+
+   @Override
+   public void transferred(final Account origin, final Account destination, final BigDecimal amount) {
+      BankEvent.Leg from = BankEvent.Leg.of(origin, amount);
+      BankEvent.Leg to = BankEvent.Leg.of(destination, amount);
+      append(BankEvent.Type.TRANSFERRED, from, to);
+   }
+
+   @Override
+   public void transferredAll(final List<Transfer> transfers) {
+      BankEvent.Leg[] legs = new BankEvent.Leg[transfers.size() * 2];
+      for (int i = 0; i < transfers.size(); i++) {
+         Transfer transfer = transfers.get(i);
+         legs[2 * i] = BankEvent.Leg.of(transfer.getOrigin(), transfer.getAmount());
+         legs[2 * i + 1] = BankEvent.Leg.of(transfer.getDestination(), transfer.getAmount());
+      }
+      // Consecutive sequences for the whole batch
+      long sequence = lastClaimed.getAndAdd(transfers.size());
+      for (int i = 0; i < legs.length; i += 2) {
+         store(new BankEvent(++sequence, BankEvent.Type.TRANSFERRED, legs[i], legs[i + 1]));
+      }
+   }
+
+   @Override
+   public void rejected(final Account account, final BigDecimal amount) {
+      BankEvent.Leg leg = BankEvent.Leg.of(account, amount);
+      append(BankEvent.Type.REJECTED, leg, null);
+   }
+
+   @Override
+   public void afterChange() {
+      drain();
+   }
+
+   private void append(final BankEvent.Type type, final BankEvent.Leg account, final BankEvent.Leg counterparty) {
+      store(new BankEvent(lastClaimed.incrementAndGet(), type, account, counterparty));
+   }
+
+   private void store(final BankEvent event) {
+      // The slot keeps the event one capacity older until the projections have it
+      while (event.getSequence() - capacity > lastApplied) {
+         drain();
+         Thread.onSpinWait();
+      }
+      int slot = (int) ((event.getSequence() - 1) % capacity);
+      EVENTS.setVolatile(segment(slot / SEGMENT), slot % SEGMENT, event);
+   }
+
+   /**
+    * Applies the events stored so far, in order, up to the first one still missing (its writer applies it, and those
+    * after it, once stored). Only one thread applies, the others just leave: after releasing the lock the applier looks
+    * again, so an event stored while it held the lock is never left behind.
+    */
+   private void drain() {
+      while (load(lastApplied + 1) != null && applying.tryLock()) {
+         try {
+            BankEvent event;
+            while ((event = load(lastApplied + 1)) != null) {
+               // First: if a projection throws, the event is not applied again to the others
+               lastApplied = event.getSequence();
+               for (Projection projection : projections) {
+                  projection.apply(event);
+               }
+            }
+         } finally {
+            applying.unlock();
+         }
+      }
+   }
+
+   private BankEvent[] segment(final int index) {
+      BankEvent[] segment = (BankEvent[]) SEGMENTS.getAcquire(segments, index);
+      if (segment == null) {
+         BankEvent[] allocated = new BankEvent[Math.min(SEGMENT, capacity - index * SEGMENT)];
+         BankEvent[] witness = (BankEvent[]) SEGMENTS.compareAndExchange(segments, index, null, allocated);
+         segment = witness == null ? allocated : witness;
+      }
+      return segment;
+   }
+
+   // Event n, or null if it is not in the ring (not stored yet, or replaced by a newer one)
+   private BankEvent load(final long sequence) {
+      int slot = (int) ((sequence - 1) % capacity);
+      BankEvent[] segment = (BankEvent[]) SEGMENTS.getAcquire(segments, slot / SEGMENT);
+      if (segment == null) {
+         return null;
+      }
+      BankEvent event = (BankEvent) EVENTS.getVolatile(segment, slot % SEGMENT);
+      return event != null && event.getSequence() == sequence ? event : null;
+   }
+
+   // Events after the first sequence up to the second, all of them applied already
+   private List<BankEvent> eventsBetween(final long after, final long last) {
+      List<BankEvent> events = after + 1 < last - capacity + 1 ? null : read(after, last);
+      if (events == null) {
+         throw new IllegalStateException("Events from " + (after + 1) + " were dropped: the log keeps the last " + capacity);
+      }
+      return events;
+   }
+
+   // Null if one of them was replaced meanwhile
+   private List<BankEvent> read(final long after, final long last) {
+      List<BankEvent> events = new ArrayList<>((int) (last - after));
+      for (long n = after + 1; n <= last; n++) {
+         BankEvent event = load(n);
+         if (event == null) {
+            return null;
+         }
+         events.add(event);
+      }
+      return events;
+   }
+}
@@ -0,0 +1,48 @@
+package com.arian.example.junit.events;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.arian.example.junit.models.HolderNames;
+
+/**
+ * Money held by each holder, over all their accounts: one map lookup instead of summing
+ * {@link com.arian.example.junit.models.Bank#findAccountsByPerson(String)}.
+ */
+public class HolderTotals implements Projection {
+
+   private final Map<String, BigDecimal> totals = new ConcurrentHashMap<>();
+
+   @Override
+   public void apply(final BankEvent event) {
+      switch (event.getType()) {
+         case OPENED, CREDITED -> add(event.getAccount(), event.getAccount().getAmount());
+         case DEBITED -> add(event.getAccount(), event.getAccount().getAmount().negate());
+         case TRANSFERRED -> {
+            BankEvent.Leg origin = event.getAccount();
+            BankEvent.Leg destination = event.getCounterparty();
+            // Between two accounts of the same holder (and scale) nothing changes
+            if (!Objects.equals(origin.getHolder(), destination.getHolder()) || origin.getAmount().compareTo(destination.getAmount()) != 0) {
+               add(origin, origin.getAmount().negate());
+               add(destination, destination.getAmount());
+            }
+         }
+         case REJECTED -> {
+            // Nothing moved
+         }
+      }
+   }
+
+   private void add(final BankEvent.Leg leg, final BigDecimal amount) {
+      String person = leg.getHolder();
+      if (person != null) {
+         totals.merge(person, amount, BigDecimal::add);
+      }
+   }
+
+   public BigDecimal getTotal(final String person) {
+      return totals.getOrDefault(HolderNames.canonical(person), BigDecimal.ZERO);
+   }
+}
@@ -0,0 +1,46 @@
+package com.arian.example.junit.events;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+
+/**
+ * How many debits and transfers were refused for lack of funds, per account (its bank, by identity, and its id there)
+ * and in total.
+ */
+public class OverdraftAttempts implements Projection {
+
+   // Copied on write, like BankLiabilities; accounts of no bank are under the null key
+   private volatile Map<Bank, Map<Long, Long>> attempts = new IdentityHashMap<>();
+
+   // Only written by the thread applying events
+   private volatile long total;
+
+   @Override
+   public void apply(final BankEvent event) {
+      if (event.getType() == BankEvent.Type.REJECTED) {
+         BankEvent.Leg leg = event.getAccount();
+         Map<Long, Long> accounts = attempts.get(leg.getBank());
+         if (accounts == null) {
+            Map<Bank, Map<Long, Long>> copy = new IdentityHashMap<>(attempts);
+            accounts = new ConcurrentHashMap<>();
+            copy.put(leg.getBank(), accounts);
+            attempts = copy;
+         }
+         accounts.merge(leg.getAccountId(), 1L, Long::sum);
+         total++;
+      }
+   }
+
+   public long getAttempts(final Account account) {
+      Map<Long, Long> accounts = attempts.get(account.getBank());
+      return accounts == null ? 0 : accounts.getOrDefault(account.getId(), 0L);
+   }
+
+   public long getTotal() {
+      return total;
+   }
+}
@@ -0,0 +1,13 @@
+package com.arian.example.junit.events;
+
+/**
+ * A read model kept up to date from the events of an {@link EventLog}, one event at a time, instead of scanning the
+ * accounts. Events are applied by one thread at a time and in sequence order; reads may come from any thread.
+ * A projection can be rebuilt from scratch with {@link EventLog#replay(Projection)}, as long as the log still has its
+ * first events.
+ */
+@FunctionalInterface
+public interface Projection {
+
+   void apply(BankEvent event);
+}
@@ -0,0 +1,69 @@
+package com.arian.example.junit.ledger;
+
+import java.math.BigDecimal;
+import java.util.function.BiConsumer;
+
+import com.arian.example.junit.models.Account;
+
+/**
+ * Every balance of a bank as of one version of {@link VersionedBalances}. Reading it never blocks the bank, and it
+ * never changes, however many transfers happen meanwhile. Close it as soon as possible: while it is open, the versions
+ * it may read can't be garbage-collected.
+ */
+public class BalanceSnapshot implements AutoCloseable {
+
+   private final VersionedBalances versions;
+
+   private final long version;
+
+   private boolean closed;
+
+   BalanceSnapshot(final VersionedBalances versions, final long version) {
+      this.versions = versions;
+      this.version = version;
+   }
+
+   public long getVersion() {
+      return version;
+   }
+
+   /**
+    * @throws IllegalArgumentException if the account was not in the bank at this version
+    */
+   public BigDecimal getBalance(final Account account) {
+      checkOpen();
+      BigDecimal balance = versions.balanceAt(account, version);
+      if (balance == null) {
+         throw new IllegalArgumentException("The account " + account.getId() + " is not in the snapshot " + version);
+      }
+      return balance;
+   }
+
+   /**
+    * Every account of the bank at this version, with its balance. Accounts are not visited in any particular order.
+    */
+   public void forEach(final BiConsumer<Account, BigDecimal> action) {
+      checkOpen();
+      versions.forEachAt(version, action);
+   }
+
+   public BigDecimal getTotalBalance() {
+      BigDecimal[] total = { BigDecimal.ZERO };
+      forEach((account, balance) -> total[0] = total[0].add(balance));
+      return total[0];
+   }
+
+   private void checkOpen() {
+      if (closed) {
+         throw new IllegalStateException("The snapshot " + version + " is closed");
+      }
+   }
+
+   @Override
+   public void close() {
+      if (!closed) {
+         closed = true;
+         versions.release(version);
+      }
+   }
+}
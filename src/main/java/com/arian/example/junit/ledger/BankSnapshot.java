@@ -0,0 +1,259 @@
+package com.arian.example.junit.ledger;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+
+/**
+ * Compact binary snapshot of a {@link Bank} (name, and the id, holder and balance of every account), for fast startup
+ * instead of rebuilding the bank one addAccount at a time.
+ * <p>
+ * Balances are all captured at the same instant with {@link Bank#getConsistentBalances(List)}, which pauses transfers only
+ * while they are copied; the slow part (encoding and writing) runs afterwards, in the background with
+ * {@link #checkpoint(Bank, Path, Executor)}. Files are written next to the target and then moved over it, so a crash never
+ * leaves half a snapshot behind. Loading maps the file in memory (up to 2 GB). Loaded accounts are plain {@link Account}s.
+ * <p>
+ * A snapshot taken with the {@link Journal} of the bank records the journal position its balances correspond to:
+ * {@link #getJournalPosition(Path)} and {@link Journal#replay(Path, Bank, long)} bring the loaded bank up to date.
+ */
+public final class BankSnapshot {
+
+   private static final long MAGIC = 0x42414e4b534e4150L; // "BANKSNAP"
+
+   private static final int VERSION = 2;
+
+   private static final long NO_JOURNAL = -1;
+
+   private static final int BUFFER_SIZE = 1024 * 1024;
+
+   // Balance encodings: most unscaled values fit in a long, the rest are stored as BigInteger bytes
+   private static final byte LONG_BALANCE = 0;
+
+   private static final byte BIG_BALANCE = 1;
+
+   private BankSnapshot() {
+   }
+
+   public static void write(final Bank bank, final Path file) throws IOException {
+      write(bank, null, file);
+   }
+
+   /**
+    * Same as {@link #write(Bank, Path)}, also recording the position of the journal (null for none) the balances match.
+    */
+   public static void write(final Bank bank, final Journal journal, final Path file) throws IOException {
+      List<Account> accounts = bank.getAccounts();
+      Capture capture = capture(bank, journal, accounts);
+      write(bank.getName(), capture.journalPosition, accounts, capture.balances, file);
+   }
+
+   /**
+    * Captures the balances now and writes them in the background, while transfers go on.
+    */
+   public static CompletableFuture<Path> checkpoint(final Bank bank, final Path file, final Executor executor) {
+      return checkpoint(bank, null, file, executor);
+   }
+
+   /**
+    * Same as {@link #checkpoint(Bank, Path, Executor)}, also recording the position of the journal (null for none).
+    */
+   public static CompletableFuture<Path> checkpoint(final Bank bank, final Journal journal, final Path file, final Executor executor) {
+      List<Account> accounts = bank.getAccounts();
+      Capture capture = capture(bank, journal, accounts);
+      return CompletableFuture.supplyAsync(() -> {
+         try {
+            write(bank.getName(), capture.journalPosition, accounts, capture.balances, file);
+            return file;
+         } catch (IOException e) {
+            throw new CompletionException(e);
+         }
+      }, executor);
+   }
+
+   // The balances and the journal position, read together: no journaled transfer is half in the balances
+   private static final class Capture {
+
+      private List<BigDecimal> balances;
+
+      private long journalPosition = NO_JOURNAL;
+   }
+
+   private static Capture capture(final Bank bank, final Journal journal, final List<Account> accounts) {
+      if (journal == null) {
+         Capture capture = new Capture();
+         capture.balances = bank.getConsistentBalances(accounts);
+         return capture;
+      }
+      return bank.readConsistently(accounts, () -> {
+         Capture capture = new Capture();
+         capture.balances = new ArrayList<>(accounts.size());
+         for (Account account : accounts) {
+            capture.balances.add(account.getBalance());
+         }
+         capture.journalPosition = journal.getPosition();
+         return capture;
+      });
+   }
+
+   public static Bank read(final Path file) throws IOException {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+         MappedByteBuffer buffer = map(channel, file);
+
+         Bank bank = new Bank();
+         bank.setName(getString(buffer));
+         int count = buffer.getInt();
+         List<Account> accounts = new ArrayList<>(count);
+         long[] ids = new long[count];
+         for (int i = 0; i < count; i++) {
+            ids[i] = buffer.getLong();
+            String person = getString(buffer);
+            accounts.add(new Account(person, getBalance(buffer)));
+         }
+         bank.addAccounts(accounts);
+         for (int i = 0; i < count; i++) {
+            if (accounts.get(i).getId() != ids[i]) {
+               throw new IOException("Snapshot account " + ids[i] + " was loaded as " + accounts.get(i).getId() + ": " + file);
+            }
+         }
+         return bank;
+      }
+   }
+
+   /**
+    * The position of the journal the snapshot was taken at, for {@link Journal#replay(Path, Bank, long)}; -1 if it was
+    * written without a journal.
+    */
+   public static long getJournalPosition(final Path file) throws IOException {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+         return map(channel, file).getLong(Long.BYTES + Integer.BYTES);
+      }
+   }
+
+   // Checks the header and leaves the buffer right after the journal position
+   private static MappedByteBuffer map(final FileChannel channel, final Path file) throws IOException {
+      if (channel.size() > Integer.MAX_VALUE) {
+         throw new IOException("Snapshot too large to be mapped: " + file);
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.remaining() < Long.BYTES + Integer.BYTES || buffer.getLong() != MAGIC) {
+         throw new IOException("Not a bank snapshot: " + file);
+      }
+      int version = buffer.getInt();
+      if (version != VERSION) {
+         throw new IOException("Unsupported snapshot version " + version + ": " + file);
+      }
+      buffer.getLong();
+      return buffer;
+   }
+
+   private static void write(final String name, final long journalPosition, final List<Account> accounts, final List<BigDecimal> balances,
+         final Path file) throws IOException {
+      Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+      try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+         ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+         buffer.putLong(MAGIC).putInt(VERSION).putLong(journalPosition);
+         if (name == null) {
+            buffer.putInt(-1);
+         } else {
+            putBytes(channel, buffer, bytes(name));
+         }
+         buffer.putInt(accounts.size());
+         for (int i = 0; i < accounts.size(); i++) {
+            Account account = accounts.get(i);
+            // Room for the id, the balance when it fits in a long, and the lengths
+            if (buffer.remaining() < 64) {
+               drain(channel, buffer);
+            }
+            buffer.putLong(account.getId());
+            putBytes(channel, buffer, bytes(account.getPerson()));
+            putBalance(channel, buffer, balances.get(i));
+         }
+         drain(channel, buffer);
+         channel.force(true);
+      }
+      Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+   }
+
+   private static void drain(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+         channel.write(buffer);
+      }
+      buffer.clear();
+   }
+
+   private static void putBalance(final FileChannel channel, final ByteBuffer buffer, final BigDecimal balance) throws IOException {
+      BigInteger unscaled = balance.unscaledValue();
+      if (buffer.remaining() < Integer.BYTES + 1 + Long.BYTES) {
+         drain(channel, buffer);
+      }
+      buffer.putInt(balance.scale());
+      if (unscaled.bitLength() < Long.SIZE) {
+         buffer.put(LONG_BALANCE).putLong(unscaled.longValue());
+      } else {
+         buffer.put(BIG_BALANCE);
+         putBytes(channel, buffer, unscaled.toByteArray());
+      }
+   }
+
+   /**
+    * Length-prefixed bytes, through the buffer when they fit in it, or else straight to the channel (a huge holder name
+    * or balance never overflows the buffer).
+    */
+   private static void putBytes(final FileChannel channel, final ByteBuffer buffer, final byte[] bytes) throws IOException {
+      if (buffer.remaining() < Integer.BYTES + bytes.length) {
+         drain(channel, buffer);
+      }
+      buffer.putInt(bytes.length);
+      if (bytes.length <= buffer.remaining()) {
+         buffer.put(bytes);
+      } else {
+         drain(channel, buffer);
+         ByteBuffer large = ByteBuffer.wrap(bytes);
+         while (large.hasRemaining()) {
+            channel.write(large);
+         }
+      }
+   }
+
+   private static BigDecimal getBalance(final ByteBuffer buffer) {
+      int scale = buffer.getInt();
+      if (buffer.get() == LONG_BALANCE) {
+         return BigDecimal.valueOf(buffer.getLong(), scale);
+      }
+      byte[] bytes = new byte[buffer.getInt()];
+      buffer.get(bytes);
+      return new BigDecimal(new BigInteger(bytes), scale);
+   }
+
+   private static String getString(final ByteBuffer buffer) {
+      int length = buffer.getInt();
+      if (length < 0) {
+         return null;
+      }
+      byte[] bytes = new byte[length];
+      buffer.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+   }
+
+   private static byte[] bytes(final String value) {
+      return value.getBytes(StandardCharsets.UTF_8);
+   }
+}
@@ -0,0 +1,506 @@
+package com.arian.example.junit.ledger;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+import com.arian.example.junit.models.BankListener;
+import com.arian.example.junit.models.Transfer;
+
+/**
+ * Append-only write-ahead journal of a {@link Bank}: new accounts, debits, credits and transfers are appended to a binary
+ * file through a {@link FileChannel}, and {@link #recover(Path)} rebuilds the bank by replaying it.
+ * <p>
+ * Group commit: records are buffered in memory and many of them are written with a single fsync, either when
+ * {@link JournalOptions#getBatchSize()} records are waiting or every {@link JournalOptions#getFlushInterval()}.
+ * {@link #commit()} blocks until everything appended so far is durable; callers committing at the same time share the
+ * same fsync.
+ * <p>
+ * Every record is framed as {@code length, crc32, payload}, so a record torn by a crash is detected and dropped.
+ * Accounts of other banks are journaled as "external": only the side of the transfer inside this bank is replayed (the
+ * bank notifies the journals of both sides of a cross-bank transfer).
+ * Recovered accounts are plain {@link Account}s.
+ */
+public class Journal implements BankListener, Closeable {
+
+   private static final long MAGIC = 0x42414e4b4a524e32L; // "BANKJRN2", amounts of any length
+
+   private static final int HEADER_SIZE = Long.BYTES;
+
+   private static final long EXTERNAL_ACCOUNT = -1;
+
+   private static final byte BANK = 1;
+
+   private static final byte OPEN = 2;
+
+   private static final byte DEBIT = 3;
+
+   private static final byte CREDIT = 4;
+
+   private static final byte TRANSFER = 5;
+
+   private static final byte BATCH = 6;
+
+   private final FileChannel channel;
+
+   private final JournalOptions options;
+
+   private final ScheduledExecutorService flusher;
+
+   // Guards the buffer and the counters below; never held during an fsync
+   private final Object appendLock = new Object();
+
+   // Only one thread writes and fsyncs at a time, the others wait here for its group commit
+   private final Object flushLock = new Object();
+
+   private final CRC32 crc = new CRC32();
+
+   // Double buffering: appends fill "pending" while the flusher writes the other one
+   private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+
+   private ByteBuffer spare = ByteBuffer.allocate(64 * 1024);
+
+   private int pendingRecords;
+
+   private long appended;
+
+   // File offset right after the last record appended (written or not yet)
+   private long position;
+
+   private volatile long durable;
+
+   private boolean flushRequested;
+
+   private volatile IOException failure;
+
+   private Bank bank;
+
+   private final boolean empty;
+
+   private Journal(final FileChannel channel, final JournalOptions options, final boolean empty) throws IOException {
+      this.channel = channel;
+      this.position = channel.size();
+      this.options = options;
+      this.empty = empty;
+      this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+         Thread thread = new Thread(r, "journal-flusher");
+         thread.setDaemon(true);
+         return thread;
+      });
+      long interval = options.getFlushInterval().toNanos();
+      flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.NANOSECONDS);
+   }
+
+   /**
+    * Opens (or creates) a journal to append to. A record torn by a previous crash is cut off first.
+    */
+   public static Journal open(final Path file, final JournalOptions options) throws IOException {
+      FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      try {
+         if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putLong(MAGIC).flip();
+            while (header.hasRemaining()) {
+               channel.write(header);
+            }
+            channel.force(true);
+         } else {
+            long validLength = read(file, null, HEADER_SIZE);
+            channel.truncate(validLength);
+         }
+         channel.position(channel.size());
+         return new Journal(channel, options, channel.size() == HEADER_SIZE);
+      } catch (IOException | RuntimeException e) {
+         channel.close();
+         throw e;
+      }
+   }
+
+   /**
+    * Rebuilds the bank journaled in the file, stopping at the first torn or corrupt record.
+    */
+   public static Bank recover(final Path file) throws IOException {
+      Bank bank = new Bank();
+      read(file, bank, HEADER_SIZE);
+      return bank;
+   }
+
+   /**
+    * Replays into the bank only the records after the position, e.g. into a bank loaded from a {@link BankSnapshot} taken
+    * at that {@link #getPosition() position} of this journal.
+    *
+    * @return the bank, with the changes after the position applied
+    */
+   public static Bank replay(final Path file, final Bank bank, final long position) throws IOException {
+      read(file, bank, position);
+      return bank;
+   }
+
+   /**
+    * The position right after the last record appended so far (durable or not), for {@link #replay(Path, Bank, long)}.
+    */
+   public long getPosition() {
+      synchronized (appendLock) {
+         return position;
+      }
+   }
+
+   /**
+    * Starts journaling the bank. On an empty journal, the bank and its current accounts are written first; otherwise the
+    * bank is expected to be the one recovered from this journal.
+    */
+   public void attach(final Bank bank) {
+      this.bank = bank;
+      // Paused, so no transfer is lost or journaled twice between writing the accounts and listening
+      bank.addListener(this, () -> {
+         if (empty) {
+            append(BANK, buffer -> putString(buffer, bank.getName()));
+            bank.getAccounts().forEach(this::accountAdded);
+         }
+      });
+   }
+
+   @Override
+   public void accountAdded(final Account account) {
+      append(OPEN, buffer -> {
+         buffer.putLong(account.getId());
+         putString(buffer, account.getPerson());
+         putDecimal(buffer, account.getBalance());
+      });
+   }
+
+   @Override
+   public void debited(final Account account, final BigDecimal amount) {
+      append(DEBIT, buffer -> {
+         buffer.putLong(idOf(account));
+         putDecimal(buffer, amount);
+      });
+   }
+
+   @Override
+   public void credited(final Account account, final BigDecimal amount) {
+      append(CREDIT, buffer -> {
+         buffer.putLong(idOf(account));
+         putDecimal(buffer, amount);
+      });
+   }
+
+   @Override
+   public void transferred(final Account origin, final Account destination, final BigDecimal amount) {
+      if (idOf(origin) == EXTERNAL_ACCOUNT && idOf(destination) == EXTERNAL_ACCOUNT) {
+         return; // Called on this bank, but between two other banks: nothing changed here
+      }
+      append(TRANSFER, buffer -> putTransfer(buffer, origin, destination, amount));
+   }
+
+   // A batch is only valid as a whole (debits are checked against its net effect), so it is replayed as a whole
+   @Override
+   public void transferredAll(final List<Transfer> transfers) {
+      append(BATCH, buffer -> {
+         buffer.putInt(transfers.size());
+         transfers.forEach(t -> putTransfer(buffer, t.getOrigin(), t.getDestination(), t.getAmount()));
+      });
+   }
+
+   /**
+    * Blocks until every record appended before this call is on disk.
+    */
+   public void commit() throws IOException {
+      long target;
+      synchronized (appendLock) {
+         target = appended;
+      }
+      flush(target);
+   }
+
+   @Override
+   public void close() throws IOException {
+      if (bank != null) {
+         bank.removeListener(this);
+      }
+      flusher.shutdown();
+      try {
+         commit();
+      } finally {
+         channel.close();
+      }
+   }
+
+   private interface Encoder {
+
+      void encode(ByteBuffer buffer);
+   }
+
+   private void append(final byte type, final Encoder encoder) {
+      if (failure != null) {
+         throw new UncheckedIOException("The journal can't be written", failure);
+      }
+      synchronized (appendLock) {
+         int start = pending.position();
+         // Skipping the frame past the limit is an IllegalArgumentException, not an overflow: the frame must fit first
+         if (pending.capacity() - start <= 2 * Integer.BYTES) {
+            grow(start);
+         }
+         while (true) {
+            try {
+               pending.position(start + 2 * Integer.BYTES);
+               pending.put(type);
+               encoder.encode(pending);
+               break;
+            } catch (BufferOverflowException e) {
+               grow(start);
+            }
+         }
+         int end = pending.position();
+         int payloadLength = end - start - 2 * Integer.BYTES;
+         crc.reset();
+         crc.update(pending.array(), start + 2 * Integer.BYTES, payloadLength);
+         pending.putInt(start, payloadLength);
+         pending.putInt(start + Integer.BYTES, (int) crc.getValue());
+         position += end - start;
+         appended++;
+         if (++pendingRecords >= options.getBatchSize() && !flushRequested) {
+            flushRequested = true;
+            flusher.execute(this::flushQuietly);
+         }
+      }
+   }
+
+   // Called with the append lock held; keeps the records before start
+   private void grow(final int start) {
+      ByteBuffer bigger = ByteBuffer.allocate(pending.capacity() * 2);
+      pending.flip().limit(start);
+      bigger.put(pending);
+      pending = bigger;
+   }
+
+   private void flushQuietly() {
+      try {
+         long target;
+         synchronized (appendLock) {
+            target = appended;
+         }
+         flush(target);
+      } catch (IOException e) {
+         // Already kept in failure, the next append or commit will report it
+      }
+   }
+
+   private void flush(final long target) throws IOException {
+      synchronized (flushLock) {
+         if (failure != null) {
+            throw failure;
+         }
+         if (durable >= target) {
+            return; // Somebody else's group commit already covered us
+         }
+         ByteBuffer batch;
+         long batchEnd;
+         synchronized (appendLock) {
+            batch = pending.flip();
+            batchEnd = appended;
+            pending = spare;
+            pendingRecords = 0;
+            flushRequested = false;
+         }
+         try {
+            while (batch.hasRemaining()) {
+               channel.write(batch);
+            }
+            channel.force(false);
+         } catch (IOException e) {
+            failure = e;
+            throw e;
+         }
+         batch.clear();
+         spare = batch;
+         durable = batchEnd;
+      }
+   }
+
+   private long idOf(final Account account) {
+      return account.getBank() == bank ? account.getId() : EXTERNAL_ACCOUNT;
+   }
+
+   private void putTransfer(final ByteBuffer buffer, final Account origin, final Account destination, final BigDecimal amount) {
+      buffer.putLong(idOf(origin));
+      buffer.putLong(idOf(destination));
+      putDecimal(buffer, amount);
+   }
+
+   private static void putString(final ByteBuffer buffer, final String value) {
+      if (value == null) {
+         buffer.putInt(-1);
+         return;
+      }
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      buffer.putInt(bytes.length);
+      buffer.put(bytes);
+   }
+
+   private static void putDecimal(final ByteBuffer buffer, final BigDecimal value) {
+      byte[] unscaled = value.unscaledValue().toByteArray();
+      buffer.putInt(value.scale());
+      buffer.putInt(unscaled.length);
+      buffer.put(unscaled);
+   }
+
+   /**
+    * Reads the journal, replaying the records from the position into the bank when there is one.
+    *
+    * @return the length of the valid part of the file (everything before a torn or corrupt record)
+    */
+   private static long read(final Path file, final Bank bank, final long from) throws IOException {
+      try (InputStream stream = new BufferedInputStream(Files.newInputStream(file))) {
+         DataInputStream input = new DataInputStream(stream);
+         if (input.readLong() != MAGIC) {
+            throw new IOException("Not a bank journal: " + file);
+         }
+         if (from < HEADER_SIZE) {
+            throw new IOException("Position " + from + " is not in the journal: " + file);
+         }
+         if (from >= Files.size(file)) {
+            return from; // Nothing after it (or a snapshot newer than what was made durable)
+         }
+         input.skipNBytes(from - HEADER_SIZE);
+         long valid = from;
+         CRC32 crc = new CRC32();
+         while (true) {
+            byte[] payload;
+            try {
+               int length = input.readInt();
+               int checksum = input.readInt();
+               if (length <= 0) {
+                  return valid;
+               }
+               payload = input.readNBytes(length);
+               crc.reset();
+               crc.update(payload);
+               if (payload.length < length || (int) crc.getValue() != checksum) {
+                  return valid;
+               }
+            } catch (EOFException e) {
+               return valid;
+            }
+            if (bank != null) {
+               replay(ByteBuffer.wrap(payload), bank);
+            }
+            valid += 2 * Integer.BYTES + payload.length;
+         }
+      }
+   }
+
+   private static void replay(final ByteBuffer record, final Bank bank) throws IOException {
+      byte type = record.get();
+      switch (type) {
+      case BANK:
+         bank.setName(getString(record));
+         break;
+      case OPEN:
+         long id = record.getLong();
+         Account account = new Account(getString(record), getDecimal(record));
+         bank.addAccount(account);
+         if (account.getId() != id) {
+            throw new IOException("Journal out of order: account " + id + " was recovered as " + account.getId());
+         }
+         break;
+      case DEBIT:
+         account(bank, record.getLong()).debit(getDecimal(record));
+         break;
+      case CREDIT:
+         account(bank, record.getLong()).credit(getDecimal(record));
+         break;
+      case TRANSFER:
+         replayTransfer(bank, record.getLong(), record.getLong(), getDecimal(record));
+         break;
+      case BATCH:
+         replayBatch(record, bank);
+         break;
+      default:
+         throw new IOException("Unknown journal record type: " + type);
+      }
+   }
+
+   /**
+    * Applied the way {@link Bank#transferAll(List)} applied it live: each account of this bank by its net amount over the
+    * whole batch, external legs included, credits first. Replaying leg by leg could refuse a debit the net allowed.
+    */
+   private static void replayBatch(final ByteBuffer record, final Bank bank) throws IOException {
+      int size = record.getInt();
+      Map<Account, BigDecimal> netAmounts = new LinkedHashMap<>();
+      for (int i = 0; i < size; i++) {
+         long originId = record.getLong();
+         long destinationId = record.getLong();
+         BigDecimal amount = getDecimal(record);
+         if (originId != EXTERNAL_ACCOUNT) {
+            netAmounts.merge(account(bank, originId), amount.negate(), BigDecimal::add);
+         }
+         if (destinationId != EXTERNAL_ACCOUNT) {
+            netAmounts.merge(account(bank, destinationId), amount, BigDecimal::add);
+         }
+      }
+      netAmounts.forEach((account, net) -> {
+         if (net.signum() > 0) {
+            account.credit(net);
+         }
+      });
+      netAmounts.forEach((account, net) -> {
+         if (net.signum() < 0) {
+            account.debit(net.negate());
+         }
+      });
+   }
+
+   private static void replayTransfer(final Bank bank, final long originId, final long destinationId, final BigDecimal amount)
+         throws IOException {
+      if (originId == EXTERNAL_ACCOUNT) {
+         account(bank, destinationId).credit(amount);
+      } else if (destinationId == EXTERNAL_ACCOUNT) {
+         account(bank, originId).debit(amount);
+      } else {
+         bank.transfer(account(bank, originId), account(bank, destinationId), amount);
+      }
+   }
+
+   private static Account account(final Bank bank, final long id) throws IOException {
+      return bank.findAccount(id).orElseThrow(() -> new IOException("Journal refers to an unknown account: " + id));
+   }
+
+   private static String getString(final ByteBuffer record) {
+      int length = record.getInt();
+      if (length < 0) {
+         return null;
+      }
+      byte[] bytes = new byte[length];
+      record.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+   }
+
+   private static BigDecimal getDecimal(final ByteBuffer record) {
+      int scale = record.getInt();
+      byte[] unscaled = new byte[record.getInt()];
+      record.get(unscaled);
+      return new BigDecimal(new BigInteger(unscaled), scale);
+   }
+}
@@ -0,0 +1,22 @@
+package com.arian.example.junit.ledger;
+
+import java.time.Duration;
+
+import lombok.Value;
+
+/**
+ * Latency vs throughput of a {@link Journal}: records are written and fsync'ed together once {@code batchSize} records are
+ * waiting, or every {@code flushInterval} at the latest. Bigger values mean fewer fsyncs, but a longer window of
+ * operations lost on a crash (unless {@link Journal#commit()} is called).
+ */
+@Value
+public class JournalOptions {
+
+   int batchSize;
+
+   Duration flushInterval;
+
+   public static JournalOptions defaults() {
+      return new JournalOptions(1_000, Duration.ofMillis(10));
+   }
+}
@@ -0,0 +1,153 @@
+package com.arian.example.junit.ledger;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+import com.arian.example.junit.models.Transfer;
+
+/**
+ * Replays a list of transfers through {@link Bank#transfer} using every core, with the same final balances (and the same
+ * rejected transfers) as a one-by-one sequential replay.
+ * <p>
+ * Accounts are partitioned with a union-find: a transfer between two partitions merges them, so each partition ends up
+ * closed (no transfer crosses it). Partitions are then independent and are replayed in parallel on a {@link ForkJoinPool},
+ * each one keeping the original order of its transfers. The speed-up depends on the data: a single account that trades
+ * with everybody puts every transfer in the same partition.
+ */
+public class LedgerReplay {
+
+   // Minimum number of transfers worth a fork/join task of its own
+   private static final int THRESHOLD = 1024;
+
+   private final Bank bank;
+
+   private final ForkJoinPool pool;
+
+   public LedgerReplay(final Bank bank) {
+      this(bank, ForkJoinPool.commonPool());
+   }
+
+   public LedgerReplay(final Bank bank, final ForkJoinPool pool) {
+      this.bank = bank;
+      this.pool = pool;
+   }
+
+   public ReplayReport replay(final List<Transfer> transfers) {
+      long start = System.nanoTime();
+      Transfer[] ordered = transfers.toArray(new Transfer[0]);
+
+      // 1. Union-find of the accounts
+      Map<Account, Integer> indexes = new IdentityHashMap<>();
+      int[] parent = new int[ordered.length * 2];
+      int[] origins = new int[ordered.length];
+      for (int i = 0; i < ordered.length; i++) {
+         origins[i] = indexOf(ordered[i].getOrigin(), indexes, parent);
+         union(parent, origins[i], indexOf(ordered[i].getDestination(), indexes, parent));
+      }
+
+      // 2. Transfers grouped by partition (counting sort, so the original order is kept inside a partition)
+      int[] partitionOfRoot = new int[indexes.size()];
+      int partitions = 0;
+      for (int account = 0; account < indexes.size(); account++) {
+         if (find(parent, account) == account) {
+            partitionOfRoot[account] = partitions++;
+         }
+      }
+      int[] offsets = new int[partitions + 1];
+      int[] partitionOf = new int[ordered.length];
+      for (int i = 0; i < ordered.length; i++) {
+         partitionOf[i] = partitionOfRoot[find(parent, origins[i])];
+         offsets[partitionOf[i] + 1]++;
+      }
+      for (int p = 0; p < partitions; p++) {
+         offsets[p + 1] += offsets[p];
+      }
+      int[] next = offsets.clone();
+      Transfer[] grouped = new Transfer[ordered.length];
+      for (int i = 0; i < ordered.length; i++) {
+         grouped[next[partitionOf[i]]++] = ordered[i];
+      }
+
+      // 3. Partitions replayed in parallel
+      LongAdder rejected = new LongAdder();
+      pool.invoke(new ReplayTask(bank, grouped, offsets, 0, partitions, rejected));
+      return new ReplayReport(ordered.length, rejected.sum(), partitions, System.nanoTime() - start);
+   }
+
+   private static int indexOf(final Account account, final Map<Account, Integer> indexes, final int[] parent) {
+      Integer index = indexes.get(account);
+      if (index == null) {
+         index = indexes.size();
+         indexes.put(account, index);
+         parent[index] = index;
+      }
+      return index;
+   }
+
+   private static int find(final int[] parent, int account) {
+      while (parent[account] != account) {
+         parent[account] = parent[parent[account]];
+         account = parent[account];
+      }
+      return account;
+   }
+
+   private static void union(final int[] parent, final int first, final int second) {
+      int firstRoot = find(parent, first);
+      int secondRoot = find(parent, second);
+      if (firstRoot != secondRoot) {
+         parent[Math.max(firstRoot, secondRoot)] = Math.min(firstRoot, secondRoot);
+      }
+   }
+
+   /**
+    * Replays the partitions [from, to), splitting in halves while there are enough transfers to share. Never serialized,
+    * so none of its state is serializable.
+    */
+   @SuppressWarnings("serial")
+   private static final class ReplayTask extends RecursiveAction {
+
+      private final Bank bank;
+
+      private final Transfer[] grouped;
+
+      private final int[] offsets;
+
+      private final int from;
+
+      private final int to;
+
+      private final LongAdder rejected;
+
+      ReplayTask(final Bank bank, final Transfer[] grouped, final int[] offsets, final int from, final int to, final LongAdder rejected) {
+         this.bank = bank;
+         this.grouped = grouped;
+         this.offsets = offsets;
+         this.from = from;
+         this.to = to;
+         this.rejected = rejected;
+      }
+
+      @Override
+      protected void compute() {
+         if (to - from > 1 && offsets[to] - offsets[from] > THRESHOLD) {
+            int middle = (from + to) >>> 1;
+            invokeAll(new ReplayTask(bank, grouped, offsets, from, middle, rejected),
+                  new ReplayTask(bank, grouped, offsets, middle, to, rejected));
+            return;
+         }
+         for (int i = offsets[from]; i < offsets[to]; i++) {
+            Transfer transfer = grouped[i];
+            if (!bank.tryTransfer(transfer.getOrigin(), transfer.getDestination(), transfer.getAmount())) {
+               rejected.increment();
+            }
+         }
+      }
+   }
+}
@@ -0,0 +1,35 @@
+package com.arian.example.junit.ledger;
+
+import lombok.Value;
+
+/**
+ * What a {@link TransactionLoader#load(java.nio.file.Path)} run did, and how fast.
+ */
+@Value
+public class LoadReport {
+
+   long records;
+
+   // Records whose debit was refused with InsufficientFundsException (the credit was still applied)
+   long rejected;
+
+   // Lines that could not be parsed, or whose expected and actual holders differ
+   long malformed;
+
+   // 1-based line number and byte offset of the first malformed line (0 and -1 if there is none)
+   long firstMalformedLine;
+
+   long firstMalformedOffset;
+
+   long bytes;
+
+   long elapsedNanos;
+
+   public double getRecordsPerSecond() {
+      return elapsedNanos == 0 ? 0 : records * 1_000_000_000d / elapsedNanos;
+   }
+
+   public double getMegabytesPerSecond() {
+      return elapsedNanos == 0 ? 0 : bytes * 1_000_000_000d / elapsedNanos / (1024 * 1024);
+   }
+}
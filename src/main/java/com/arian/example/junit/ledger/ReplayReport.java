@@ -0,0 +1,24 @@
+package com.arian.example.junit.ledger;
+
+import lombok.Value;
+
+/**
+ * What a {@link LedgerReplay#replay(java.util.List)} run did, and how fast.
+ */
+@Value
+public class ReplayReport {
+
+   long transfers;
+
+   // Transfers refused with InsufficientFundsException, exactly the ones a sequential replay would refuse
+   long rejected;
+
+   // Independent groups of accounts, replayed in parallel
+   int partitions;
+
+   long elapsedNanos;
+
+   public double getTransfersPerSecond() {
+      return elapsedNanos == 0 ? 0 : transfers * 1_000_000_000d / elapsedNanos;
+   }
+}
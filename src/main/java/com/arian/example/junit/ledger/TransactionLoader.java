@@ -0,0 +1,398 @@
+package com.arian.example.junit.ledger;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+import com.arian.example.junit.models.HolderNames;
+import com.arian.example.junit.models.LedgerAccount;
+import com.arian.example.junit.models.MoneyScale;
+
+/**
+ * Streams transaction files shaped like data2.csv ({@code balance,amount,expectedHolder,actualHolder}) into a {@link Bank}.
+ * <p>
+ * Each record credits {@code balance} to the holder's account (opened at zero with a {@link LedgerAccount} the first time
+ * the holder is seen) and then debits {@code amount} from it. The file is memory-mapped one window at a time and parsed
+ * byte by byte: amounts go straight to minor units and holders are matched on their raw bytes, so no String is built per
+ * line (only once per distinct holder, or per line for the rare holders that are not plain ASCII, which are upper-cased
+ * with {@link HolderNames#canonical(String)} like every registered holder). Memory stays constant whatever the size of
+ * the file.
+ * <p>
+ * Fields are trimmed (e.g. the " Brian Daniel" row), blank lines are ignored, and lines that can't be parsed are counted
+ * as malformed instead of aborting the load (the report tells where the first one is). Amounts are plain unsigned
+ * decimals ({@code digits[.digits]}): a sign would overdraw an opening balance or turn a debit into a credit, and an
+ * exponent ({@code 1E+3}) is not an amount anyone writes in a ledger, so either makes the line malformed. Not
+ * thread-safe: one loader per file.
+ */
+public class TransactionLoader {
+
+   static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+   private static final int FIELDS = 4;
+
+   private final Bank bank;
+
+   private final MoneyScale moneyScale;
+
+   private final int windowSize;
+
+   private final long[] pow10;
+
+   // Open-addressing table of the holders seen so far: canonical (see HolderNames) UTF-8 name bytes -> account
+   private byte[][] holderKeys = new byte[1024][];
+
+   private Account[] holderAccounts = new Account[1024];
+
+   private int holderCount;
+
+   // Field boundaries of the current line, reused for every line
+   private final int[] fieldStart = new int[FIELDS];
+
+   private final int[] fieldEnd = new int[FIELDS];
+
+   private long records;
+
+   private long rejected;
+
+   private long malformed;
+
+   // Where we are in the file, to report the first malformed line
+   private long windowPosition;
+
+   private long line;
+
+   private long firstMalformedLine;
+
+   private long firstMalformedOffset;
+
+   public TransactionLoader(final Bank bank, final MoneyScale moneyScale) {
+      this(bank, moneyScale, DEFAULT_WINDOW_SIZE);
+   }
+
+   TransactionLoader(final Bank bank, final MoneyScale moneyScale, final int windowSize) {
+      this.bank = bank;
+      this.moneyScale = moneyScale;
+      this.windowSize = windowSize;
+      this.pow10 = new long[moneyScale.getScale() + 1];
+      pow10[0] = 1;
+      for (int i = 1; i < pow10.length; i++) {
+         pow10[i] = pow10[i - 1] * 10;
+      }
+   }
+
+   public LoadReport load(final Path file) throws IOException {
+      long start = System.nanoTime();
+      records = 0;
+      rejected = 0;
+      malformed = 0;
+      line = 0;
+      firstMalformedLine = 0;
+      firstMalformedOffset = -1;
+      long size;
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+         size = channel.size();
+         long position = 0;
+         while (position < size) {
+            long length = Math.min(windowSize, size - position);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            windowPosition = position;
+            int consumed = parseWindow(window, position + length == size);
+            if (consumed == 0) {
+               throw new IOException("Line longer than " + windowSize + " bytes at position " + position + " of " + file);
+            }
+            position += consumed;
+         }
+      }
+      return new LoadReport(records, rejected, malformed, firstMalformedLine, firstMalformedOffset, size, System.nanoTime() - start);
+   }
+
+   /**
+    * Parses every complete line of the window (and the last one, even without a new line, if this is the end of the file).
+    *
+    * @return the number of bytes consumed, the next window starts right after them
+    */
+   private int parseWindow(final MappedByteBuffer window, final boolean lastWindow) {
+      int limit = window.limit();
+      int lineStart = 0;
+      for (int i = 0; i < limit; i++) {
+         if (window.get(i) == '\n') {
+            parseLine(window, lineStart, i);
+            lineStart = i + 1;
+         }
+      }
+      if (lastWindow && lineStart < limit) {
+         parseLine(window, lineStart, limit);
+         return limit;
+      }
+      return lineStart;
+   }
+
+   private void parseLine(final MappedByteBuffer buffer, final int start, final int end) {
+      line++;
+      int field = 0;
+      fieldStart[0] = start;
+      for (int i = start; i < end; i++) {
+         if (buffer.get(i) == ',') {
+            if (field == FIELDS - 1) {
+               malformed(start);
+               return;
+            }
+            fieldEnd[field++] = i;
+            fieldStart[field] = i + 1;
+         }
+      }
+      fieldEnd[field] = end;
+      for (int f = 0; f <= field; f++) {
+         trim(buffer, f);
+      }
+      if (field == 0 && fieldStart[0] == fieldEnd[0]) {
+         return; // Blank line
+      }
+      if (field != FIELDS - 1 || !sameHolder(buffer)) {
+         malformed(start);
+         return;
+      }
+
+      long balance;
+      long amount;
+      try {
+         balance = parseUnits(buffer, fieldStart[0], fieldEnd[0]);
+         amount = parseUnits(buffer, fieldStart[1], fieldEnd[1]);
+      } catch (NumberFormatException | ArithmeticException e) {
+         malformed(start);
+         return;
+      }
+      apply(holderAccount(buffer, fieldStart[3], fieldEnd[3]), balance, amount);
+   }
+
+   private void malformed(final int lineStart) {
+      if (malformed++ == 0) {
+         firstMalformedLine = line;
+         firstMalformedOffset = windowPosition + lineStart;
+      }
+   }
+
+   private void apply(final Account account, final long balance, final long amount) {
+      records++;
+      boolean debited;
+      if (account instanceof LedgerAccount && moneyScale.equals(((LedgerAccount) account).getMoneyScale())) {
+         LedgerAccount ledgerAccount = (LedgerAccount) account;
+         ledgerAccount.creditUnits(balance);
+         debited = ledgerAccount.tryDebitUnits(amount);
+      } else {
+         account.credit(moneyScale.toBigDecimal(balance));
+         debited = account.tryDebit(moneyScale.toBigDecimal(amount));
+      }
+      if (!debited) {
+         rejected++;
+      }
+   }
+
+   private void trim(final MappedByteBuffer buffer, final int field) {
+      while (fieldStart[field] < fieldEnd[field] && isBlank(buffer.get(fieldStart[field]))) {
+         fieldStart[field]++;
+      }
+      while (fieldEnd[field] > fieldStart[field] && isBlank(buffer.get(fieldEnd[field] - 1))) {
+         fieldEnd[field]--;
+      }
+   }
+
+   private static boolean isBlank(final byte b) {
+      return b == ' ' || b == '\t' || b == '\r';
+   }
+
+   private boolean sameHolder(final MappedByteBuffer buffer) {
+      if (!isAscii(buffer, fieldStart[2], fieldEnd[2]) || !isAscii(buffer, fieldStart[3], fieldEnd[3])) {
+         return fieldEnd[2] > fieldStart[2] && HolderNames.canonical(utf8(buffer, fieldStart[2], fieldEnd[2]))
+               .equals(HolderNames.canonical(utf8(buffer, fieldStart[3], fieldEnd[3])));
+      }
+      int length = fieldEnd[2] - fieldStart[2];
+      if (length == 0 || length != fieldEnd[3] - fieldStart[3]) {
+         return false;
+      }
+      for (int i = 0; i < length; i++) {
+         if (upper(buffer.get(fieldStart[2] + i)) != upper(buffer.get(fieldStart[3] + i))) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Parses a plain unsigned decimal (e.g. 1000.12345) straight into minor units: a sign or an exponent is not a digit,
+    * so it is rejected like any other character, and so are a dot without digits on both sides. Amounts with more
+    * decimals than the scale are rare, so those go through BigDecimal (once every byte is checked) to apply the rounding
+    * policy of the {@link MoneyScale}.
+    */
+   private long parseUnits(final MappedByteBuffer buffer, final int start, final int end) {
+      int i = start;
+      long integerPart = 0;
+      int digits = 0;
+      for (; i < end && buffer.get(i) != '.'; i++, digits++) {
+         integerPart = Math.addExact(Math.multiplyExact(integerPart, 10), digit(buffer.get(i)));
+      }
+      if (digits == 0) {
+         throw new NumberFormatException("No integer digits");
+      }
+      long fraction = 0;
+      int decimals = 0;
+      if (i < end) {
+         if (i + 1 == end) {
+            throw new NumberFormatException("No decimals after the dot");
+         }
+         for (i++; i < end; i++, decimals++) {
+            if (decimals == moneyScale.getScale()) {
+               for (int j = i; j < end; j++) {
+                  digit(buffer.get(j));
+               }
+               return moneyScale.toUnits(new BigDecimal(ascii(buffer, start, end)));
+            }
+            fraction = fraction * 10 + digit(buffer.get(i));
+         }
+      }
+      return Math.addExact(Math.multiplyExact(integerPart, pow10[moneyScale.getScale()]), fraction * pow10[moneyScale.getScale() - decimals]);
+   }
+
+   private static int digit(final byte b) {
+      if (b < '0' || b > '9') {
+         throw new NumberFormatException("Not a digit: " + (char) b);
+      }
+      return b - '0';
+   }
+
+   private Account holderAccount(final MappedByteBuffer buffer, final int start, final int end) {
+      if (!isAscii(buffer, start, end)) {
+         return holderAccount(HolderNames.canonical(utf8(buffer, start, end)).getBytes(StandardCharsets.UTF_8));
+      }
+      int length = end - start;
+      int hash = 0;
+      for (int i = start; i < end; i++) {
+         hash = 31 * hash + upper(buffer.get(i));
+      }
+      int mask = holderKeys.length - 1;
+      for (int slot = (hash ^ (hash >>> 16)) & mask; ; slot = (slot + 1) & mask) {
+         byte[] key = holderKeys[slot];
+         if (key == null) {
+            return addHolder(slot, buffer, start, end);
+         }
+         if (key.length == length && sameBytes(key, buffer, start)) {
+            return holderAccounts[slot];
+         }
+      }
+   }
+
+   private static boolean sameBytes(final byte[] key, final MappedByteBuffer buffer, final int start) {
+      for (int i = 0; i < key.length; i++) {
+         if (key[i] != upper(buffer.get(start + i))) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   // Same table, for a key that is already canonical
+   private Account holderAccount(final byte[] key) {
+      int hash = keyHash(key);
+      int mask = holderKeys.length - 1;
+      for (int slot = (hash ^ (hash >>> 16)) & mask; ; slot = (slot + 1) & mask) {
+         if (holderKeys[slot] == null) {
+            return addHolder(slot, key);
+         }
+         if (Arrays.equals(holderKeys[slot], key)) {
+            return holderAccounts[slot];
+         }
+      }
+   }
+
+   private Account addHolder(final int slot, final MappedByteBuffer buffer, final int start, final int end) {
+      byte[] key = new byte[end - start];
+      for (int i = 0; i < key.length; i++) {
+         key[i] = upper(buffer.get(start + i));
+      }
+      return addHolder(slot, key);
+   }
+
+   private Account addHolder(final int slot, final byte[] key) {
+      String person = new String(key, StandardCharsets.UTF_8);
+      List<Account> existing = bank.findAccountsByPerson(person);
+      Account account;
+      if (existing.isEmpty()) {
+         account = new LedgerAccount(person, BigDecimal.ZERO, moneyScale);
+         bank.addAccount(account);
+      } else {
+         account = existing.get(0);
+      }
+      holderKeys[slot] = key;
+      holderAccounts[slot] = account;
+      if (++holderCount * 2 > holderKeys.length) {
+         resizeHolders();
+      }
+      return account;
+   }
+
+   private void resizeHolders() {
+      byte[][] oldKeys = holderKeys;
+      Account[] oldAccounts = holderAccounts;
+      holderKeys = new byte[oldKeys.length * 2][];
+      holderAccounts = new Account[oldKeys.length * 2];
+      int mask = holderKeys.length - 1;
+      for (int i = 0; i < oldKeys.length; i++) {
+         if (oldKeys[i] != null) {
+            int hash = keyHash(oldKeys[i]);
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (holderKeys[slot] != null) {
+               slot = (slot + 1) & mask;
+            }
+            holderKeys[slot] = oldKeys[i];
+            holderAccounts[slot] = oldAccounts[i];
+         }
+      }
+   }
+
+   // Same hash as computed in holderAccount, keys are already upper-cased
+   private static int keyHash(final byte[] key) {
+      int hash = 0;
+      for (byte b : key) {
+         hash = 31 * hash + b;
+      }
+      return hash;
+   }
+
+   // ASCII upper-casing is what HolderNames.canonical does for ASCII names, any other byte needs the real thing
+   private static boolean isAscii(final MappedByteBuffer buffer, final int start, final int end) {
+      for (int i = start; i < end; i++) {
+         if (buffer.get(i) < 0) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private static byte upper(final byte b) {
+      return b >= 'a' && b <= 'z' ? (byte) (b - 32) : b;
+   }
+
+   private static String ascii(final MappedByteBuffer buffer, final int start, final int end) {
+      byte[] bytes = new byte[end - start];
+      for (int i = 0; i < bytes.length; i++) {
+         bytes[i] = buffer.get(start + i);
+      }
+      return new String(bytes, StandardCharsets.US_ASCII);
+   }
+
+   private static String utf8(final MappedByteBuffer buffer, final int start, final int end) {
+      byte[] bytes = new byte[end - start];
+      for (int i = 0; i < bytes.length; i++) {
+         bytes[i] = buffer.get(start + i);
+      }
+      return new String(bytes, StandardCharsets.UTF_8);
+   }
+}
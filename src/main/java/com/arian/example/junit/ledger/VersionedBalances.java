@@ -0,0 +1,332 @@
+package com.arian.example.junit.ledger;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiConsumer;
+
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+import com.arian.example.junit.models.BankListener;
+import com.arian.example.junit.models.Transfer;
+
+/**
+ * Multi-version balances of a {@link Bank}: every committed change (transfer, batch, debit, credit, new account) gets a
+ * version, and the balances it leaves are kept as a new version of each account it touched. A
+ * {@link BalanceSnapshot} reads every balance as of one version while transfers keep running: readers never block
+ * writers, and writers never wait for readers.
+ * <p>
+ * Old versions are dropped as soon as no open snapshot can see them, so without snapshots each account keeps just its
+ * latest balance. A snapshot kept open for long keeps every version newer than it: close them!
+ * <p>
+ * Writers take no lock: a change gets its version from an {@link AtomicLong}, adds it to the chain of each account with
+ * a CAS on that chain only, and marks its version done. Snapshots read the last published version, moved forward (with
+ * a CAS) by whichever writer finds the next versions done, so they see all of a transfer or none of it. Writers don't
+ * wait for each other (unless {@link #PENDING_VERSIONS} changes are done behind one that is not), and snapshots never
+ * hold them back. Transfers and batches are atomic across accounts. Direct debits and credits racing with transfers on
+ * the same account are versioned in the order they get their version.
+ */
+public class VersionedBalances implements BankListener, AutoCloseable {
+
+   private final Bank bank;
+
+   private final Map<Account, Chain> chains = new ConcurrentHashMap<>();
+
+   // Versions that can be done but not published yet, waiting for an older change: the size of the done ring
+   static final int PENDING_VERSIONS = 1024;
+
+   // The last version given to a change
+   private final AtomicLong nextVersion = new AtomicLong();
+
+   // The last version whose change, and every one before it, is in the chains: what snapshots read
+   private final AtomicLong published = new AtomicLong();
+
+   // Version v is done (in the chains) once done[v % PENDING_VERSIONS] == v
+   private final AtomicLongArray done = new AtomicLongArray(PENDING_VERSIONS);
+
+   // Guards the open snapshots; only readers take it
+   private final Object snapshotLock = new Object();
+
+   // Guarded by snapshotLock: version -> number of snapshots open at that version
+   private final TreeMap<Long, Integer> openSnapshots = new TreeMap<>();
+
+   // The oldest version an open snapshot may read, MAX_VALUE when none is open; written under snapshotLock
+   private volatile long horizon = Long.MAX_VALUE;
+
+   private VersionedBalances(final Bank bank) {
+      this.bank = bank;
+   }
+
+   /**
+    * Starts versioning the bank, from a copy of its current balances taken while transfers are paused.
+    */
+   public static VersionedBalances attach(final Bank bank) {
+      VersionedBalances versions = new VersionedBalances(bank);
+      bank.addListener(versions, () -> {
+         for (Account account : bank.getAccounts()) {
+            versions.chains.put(account, new Chain(account, new Version(0, account.getBalance(), null)));
+         }
+      });
+      return versions;
+   }
+
+   /**
+    * A consistent view of every balance as of the last committed version. Must be closed.
+    */
+   public BalanceSnapshot openSnapshot() {
+      synchronized (snapshotLock) {
+         // Hold the versions back first: a writer that missed this write read a published version no newer than ours
+         horizon = Math.min(horizon, published.get());
+         long version = published.get();
+         openSnapshots.merge(version, 1, Integer::sum);
+         horizon = openSnapshots.firstKey();
+         return new BalanceSnapshot(this, version);
+      }
+   }
+
+   /**
+    * Closes a snapshot and drops the versions nobody can read anymore. The sweep runs outside the snapshot lock (on the
+    * reader's thread, which just scanned the accounts anyway).
+    */
+   void release(final long version) {
+      synchronized (snapshotLock) {
+         openSnapshots.computeIfPresent(version, (v, count) -> count == 1 ? null : count - 1);
+         horizon = openSnapshots.isEmpty() ? Long.MAX_VALUE : openSnapshots.firstKey();
+      }
+      long sweepHorizon = pruneHorizon();
+      for (Chain chain : chains.values()) {
+         chain.prune(sweepHorizon);
+      }
+   }
+
+   public long getVersion() {
+      return published.get();
+   }
+
+   /**
+    * Versions older than the newest one visible at this version can be dropped. The published version is read BEFORE the
+    * horizon: a snapshot opening meanwhile lowers the horizon before it reads the published version, so either we see
+    * its horizon or it reads a version at least as new as ours.
+    */
+   private long pruneHorizon() {
+      long lastPublished = published.get();
+      return Math.min(lastPublished, horizon);
+   }
+
+   /**
+    * The balance of the account as of the given version, null if the account was not in the bank yet.
+    */
+   BigDecimal balanceAt(final Account account, final long version) {
+      Chain chain = chains.get(account);
+      return chain == null ? null : chain.balanceAt(version);
+   }
+
+   void forEachAt(final long version, final BiConsumer<Account, BigDecimal> action) {
+      for (Chain chain : chains.values()) {
+         BigDecimal balance = chain.balanceAt(version);
+         if (balance != null) {
+            action.accept(chain.account, balance);
+         }
+      }
+   }
+
+   // Versions kept in memory, for the tests of the garbage collection
+   int getRetainedVersions() {
+      int retained = 0;
+      for (Chain chain : chains.values()) {
+         for (Version v = chain.head; v != null; v = v.older) {
+            retained++;
+         }
+      }
+      return retained;
+   }
+
+   @Override
+   public void accountAdded(final Account account) {
+      commit(List.of(account));
+   }
+
+   @Override
+   public void debited(final Account account, final BigDecimal amount) {
+      commit(List.of(account));
+   }
+
+   @Override
+   public void credited(final Account account, final BigDecimal amount) {
+      commit(List.of(account));
+   }
+
+   @Override
+   public void transferred(final Account origin, final Account destination, final BigDecimal amount) {
+      commit(List.of(origin, destination));
+   }
+
+   @Override
+   public void transferredAll(final List<Transfer> transfers) {
+      Account[] accounts = new Account[transfers.size() * 2];
+      for (int i = 0; i < transfers.size(); i++) {
+         accounts[2 * i] = transfers.get(i).getOrigin();
+         accounts[2 * i + 1] = transfers.get(i).getDestination();
+      }
+      commit(List.of(accounts));
+   }
+
+   /**
+    * Called while the accounts are still locked by the bank, so the balances read here are exactly the ones the change
+    * left, and the version is taken under those locks: the versions of an account go up in the order of its transfers.
+    * Accounts of other banks (the other side of a cross-bank transfer) are not versioned here.
+    */
+   private void commit(final List<Account> accounts) {
+      Chain[] touched = new Chain[accounts.size()];
+      long version = nextVersion.incrementAndGet();
+      try {
+         for (int i = 0; i < touched.length; i++) {
+            Account account = accounts.get(i);
+            if (account.getBank() == bank) {
+               touched[i] = chains.computeIfAbsent(account, a -> new Chain(a, null));
+               touched[i].append(version, account.getBalance());
+            }
+         }
+      } finally {
+         // Even if an append failed: the versions after ours must still be published
+         publish(version);
+      }
+      long pruneHorizon = pruneHorizon();
+      for (Chain chain : touched) {
+         if (chain != null) {
+            chain.prune(pruneHorizon);
+         }
+      }
+   }
+
+   /**
+    * Marks the version done, then publishes every done version after the published one. If an older change is not done
+    * yet, its writer publishes ours when it gets there: it reads our mark after writing its own, or we read its mark.
+    */
+   private void publish(final long version) {
+      long last = version;
+      // Usual case, nothing older pending: published right away, no mark (the CAS orders us like the mark would)
+      if (!published.compareAndSet(version - 1, version)) {
+         // The slot is still the mark of version - PENDING_VERSIONS until that one is published
+         while (published.get() < version - PENDING_VERSIONS) {
+            Thread.yield();
+         }
+         done.set(slotOf(version), version);
+         last = published.get();
+      }
+      while (done.get(slotOf(last + 1)) == last + 1) {
+         if (published.compareAndSet(last, last + 1)) {
+            last++;
+         } else {
+            last = published.get();
+         }
+      }
+   }
+
+   private static int slotOf(final long version) {
+      return (int) (version & (PENDING_VERSIONS - 1));
+   }
+
+   @Override
+   public void close() {
+      bank.removeListener(this);
+   }
+
+   /**
+    * The versions of one account, newest first.
+    */
+   private static final class Chain {
+
+      private static final VarHandle HEAD;
+
+      static {
+         try {
+            HEAD = MethodHandles.lookup().findVarHandle(Chain.class, "head", Version.class);
+         } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+         }
+      }
+
+      private final Account account;
+
+      private volatile Version head;
+
+      Chain(final Account account, final Version head) {
+         this.account = account;
+         this.head = head;
+      }
+
+      /**
+       * Adds the version in its place, newest first. Transfers of the account come in order (they hold its lock), only a
+       * direct debit or credit racing with them may have to go below the head.
+       */
+      void append(final long version, final BigDecimal balance) {
+         while (true) {
+            Version newer = null;
+            Version older = head;
+            while (older != null && older.version > version) {
+               newer = older;
+               older = older.older;
+            }
+            Version added = new Version(version, balance, older);
+            if (newer == null ? HEAD.compareAndSet(this, older, added) : Version.OLDER.compareAndSet(newer, older, added)) {
+               return;
+            }
+         }
+      }
+
+      // Everything older than the newest version visible at the horizon can't be read anymore
+      void prune(final long horizon) {
+         for (Version v = head; v != null; v = v.older) {
+            if (v.version <= horizon) {
+               // Don't write when there is nothing to cut: writers would lose the cache line for nothing
+               if (v.older != null) {
+                  v.older = null;
+               }
+               return;
+            }
+         }
+      }
+
+      BigDecimal balanceAt(final long version) {
+         for (Version v = head; v != null; v = v.older) {
+            if (v.version <= version) {
+               return v.balance;
+            }
+         }
+         return null;
+      }
+   }
+
+   private static final class Version {
+
+      private static final VarHandle OLDER;
+
+      static {
+         try {
+            OLDER = MethodHandles.lookup().findVarHandle(Version.class, "older", Version.class);
+         } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+         }
+      }
+
+      private final long version;
+
+      private final BigDecimal balance;
+
+      // Cut (set to null) by the garbage collection; readers never need what is cut
+      private volatile Version older;
+
+      Version(final long version, final BigDecimal balance, final Version older) {
+         this.version = version;
+         this.balance = balance;
+         this.older = older;
+      }
+   }
+}
@@ -0,0 +1,318 @@
+package com.arian.example.junit.metrics;
+
+import java.io.Closeable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters, contention and transfer latencies of a {@link com.arian.example.junit.models.Bank}.
+ * <p>
+ * Built for the hot path: nothing is ever CASed. Transfers are counted with a plain increment in the row of a lock stripe
+ * the transfer already holds, direct debits and credits (which hold no lock) in a row of counters of their own thread,
+ * and only one transfer out of {@code sampleRate} is timed, because reading the clock twice costs more than the rest of
+ * the bookkeeping. The getters add up the rows: reading is the slow part.
+ * A bank starts with {@link #disabled()}: every {@code record*} method is then a single branch.
+ */
+public class BankMetrics implements BankMetricsMXBean {
+
+   public static final int DEFAULT_SAMPLE_RATE = 64;
+
+   // Returned by startTimer() when this operation is not timed
+   public static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+   private static final BankMetrics DISABLED = new BankMetrics(false, 1);
+
+   // Same number of stripes as the account locks: one row per lock, so a row only has one writer at a time
+   static final int STRIPES = 1024;
+
+   // 8 longs = one cache line per row, so threads holding different stripes don't fight for the same line
+   private static final int ROW = 8;
+
+   private static final int TRANSFERS = 0;
+
+   private static final int BATCHES = 1;
+
+   private static final int LOCKED_REJECTIONS = 2;
+
+   private static final int CONTENDED = 3;
+
+   private static final VarHandle COUNTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+   private final boolean enabled;
+
+   private final int sampleRate;
+
+   // Written only by the holder of the lock of each row, read racily (opaque) by the getters
+   private final long[] lockedCounts;
+
+   // Direct debits, credits and rejections (outside the locks): one row per thread, written only by that thread
+   private final ThreadLocal<ThreadCounts> threadCounts = ThreadLocal.withInitial(this::newThreadCounts);
+
+   // Every row ever handed out, to be added up; rows of dead threads stay (their operations happened)
+   private final ConcurrentLinkedQueue<ThreadCounts> allThreadCounts = new ConcurrentLinkedQueue<>();
+
+   // What reset() took away from the thread rows, which only their own thread may write
+   private volatile long debitsAtReset;
+
+   private volatile long creditsAtReset;
+
+   private volatile long rejectionsAtReset;
+
+   private final LatencyHistogram transferLatency = new LatencyHistogram();
+
+   public BankMetrics() {
+      this(DEFAULT_SAMPLE_RATE);
+   }
+
+   /**
+    * @param sampleRate one transfer out of {@code sampleRate} is timed, 1 times all of them
+    */
+   public BankMetrics(final int sampleRate) {
+      this(true, sampleRate);
+   }
+
+   private BankMetrics(final boolean enabled, final int sampleRate) {
+      if (sampleRate < 1) {
+         throw new IllegalArgumentException("The sample rate must be at least 1: " + sampleRate);
+      }
+      this.enabled = enabled;
+      this.sampleRate = sampleRate;
+      this.lockedCounts = new long[enabled ? STRIPES * ROW : 0];
+   }
+
+   public static BankMetrics disabled() {
+      return DISABLED;
+   }
+
+   @Override
+   public boolean isEnabled() {
+      return enabled;
+   }
+
+   public void recordDebit() {
+      if (enabled) {
+         threadCounts.get().increment(ThreadCounts.DEBITS);
+      }
+   }
+
+   public void recordCredit() {
+      if (enabled) {
+         threadCounts.get().increment(ThreadCounts.CREDITS);
+      }
+   }
+
+   public void recordRejection() {
+      if (enabled) {
+         threadCounts.get().increment(ThreadCounts.REJECTIONS);
+      }
+   }
+
+   /**
+    * A rejection of a transfer or batch; the caller MUST hold the lock of {@code stripe}.
+    */
+   public void recordRejection(final int stripe) {
+      if (enabled) {
+         increment(stripe, LOCKED_REJECTIONS);
+      }
+   }
+
+   /**
+    * @return {@link System#nanoTime()} if this operation is sampled, {@link #NOT_SAMPLED} otherwise
+    */
+   public long startTimer() {
+      if (!enabled || ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+         return NOT_SAMPLED;
+      }
+      return System.nanoTime();
+   }
+
+   /**
+    * The caller MUST hold the lock of {@code stripe}, and keep it until this returns.
+    */
+   public void recordTransfer(final int stripe, final long start, final boolean contended) {
+      if (enabled) {
+         record(stripe, TRANSFERS, start, contended);
+      }
+   }
+
+   /**
+    * The caller MUST hold the lock of {@code stripe}, and keep it until this returns.
+    */
+   public void recordBatch(final int stripe, final long start, final boolean contended) {
+      if (enabled) {
+         record(stripe, BATCHES, start, contended);
+      }
+   }
+
+   private void record(final int stripe, final int counter, final long start, final boolean contended) {
+      increment(stripe, counter);
+      if (contended) {
+         increment(stripe, CONTENDED);
+      }
+      if (start != NOT_SAMPLED) {
+         transferLatency.record(System.nanoTime() - start);
+      }
+   }
+
+   // Single writer (the lock holder): read-increment-write is safe, opaque only so the getters see it
+   private void increment(final int stripe, final int counter) {
+      int index = stripe * ROW + counter;
+      COUNTS.setOpaque(lockedCounts, index, lockedCounts[index] + 1);
+   }
+
+   private ThreadCounts newThreadCounts() {
+      ThreadCounts counts = new ThreadCounts();
+      allThreadCounts.add(counts);
+      return counts;
+   }
+
+   private long sumOfThreads(final int counter) {
+      long total = 0;
+      for (ThreadCounts counts : allThreadCounts) {
+         total += counts.get(counter);
+      }
+      return total;
+   }
+
+   private long sum(final int counter) {
+      long total = 0;
+      for (int index = counter; index < lockedCounts.length; index += ROW) {
+         total += (long) COUNTS.getOpaque(lockedCounts, index);
+      }
+      return total;
+   }
+
+   @Override
+   public long getDebits() {
+      return sumOfThreads(ThreadCounts.DEBITS) - debitsAtReset;
+   }
+
+   @Override
+   public long getCredits() {
+      return sumOfThreads(ThreadCounts.CREDITS) - creditsAtReset;
+   }
+
+   @Override
+   public long getTransfers() {
+      return sum(TRANSFERS);
+   }
+
+   @Override
+   public long getBatches() {
+      return sum(BATCHES);
+   }
+
+   @Override
+   public long getRejections() {
+      return sumOfThreads(ThreadCounts.REJECTIONS) - rejectionsAtReset + sum(LOCKED_REJECTIONS);
+   }
+
+   @Override
+   public long getContendedLocks() {
+      return sum(CONTENDED);
+   }
+
+   @Override
+   public long getTransferLatencyP50() {
+      return transferLatency.getValueAtPercentile(50);
+   }
+
+   @Override
+   public long getTransferLatencyP99() {
+      return transferLatency.getValueAtPercentile(99);
+   }
+
+   @Override
+   public long getTransferLatencyP999() {
+      return transferLatency.getValueAtPercentile(99.9);
+   }
+
+   @Override
+   public long getTransferLatencyMax() {
+      return transferLatency.getMax();
+   }
+
+   public MetricsSnapshot snapshot() {
+      return new MetricsSnapshot(getDebits(), getCredits(), getTransfers(), getBatches(), getRejections(), getContendedLocks(),
+            transferLatency.getCount(), getTransferLatencyP50(), getTransferLatencyP99(), getTransferLatencyP999(),
+            getTransferLatencyMax());
+   }
+
+   /**
+    * Not atomic: operations running meanwhile may or may not be counted.
+    */
+   @Override
+   public void reset() {
+      debitsAtReset = sumOfThreads(ThreadCounts.DEBITS);
+      creditsAtReset = sumOfThreads(ThreadCounts.CREDITS);
+      rejectionsAtReset = sumOfThreads(ThreadCounts.REJECTIONS);
+      for (int index = 0; index < lockedCounts.length; index++) {
+         COUNTS.setOpaque(lockedCounts, index, 0L);
+      }
+      transferLatency.reset();
+   }
+
+   /**
+    * Publishes these metrics in the platform MBean server as
+    * {@code com.arian.example.junit:type=BankMetrics,name=<name>}.
+    */
+   public ObjectName registerMBean(final String name) throws JMException {
+      ObjectName objectName = objectNameOf(name);
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+      return objectName;
+   }
+
+   public void unregisterMBean(final String name) throws JMException {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectNameOf(name));
+   }
+
+   private static ObjectName objectNameOf(final String name) throws JMException {
+      return ObjectName.getInstance("com.arian.example.junit:type=BankMetrics,name=" + ObjectName.quote(name));
+   }
+
+   /**
+    * Sends a {@link #snapshot()} to the reporter every {@code period}, from a daemon thread, until the returned
+    * {@link Closeable} is closed.
+    */
+   public Closeable startReporting(final MetricsReporter reporter, final Duration period) {
+      ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+         Thread thread = new Thread(r, "metrics-reporter");
+         thread.setDaemon(true);
+         return thread;
+      });
+      long interval = period.toNanos();
+      scheduler.scheduleAtFixedRate(() -> reporter.report(snapshot()), interval, interval, TimeUnit.NANOSECONDS);
+      return scheduler::shutdown;
+   }
+
+   private static final class ThreadCounts {
+
+      // In the middle of the array: a cache line of padding on both sides, whatever is allocated next to it
+      static final int DEBITS = ROW;
+
+      static final int CREDITS = ROW + 1;
+
+      static final int REJECTIONS = ROW + 2;
+
+      private final long[] counts = new long[3 * ROW];
+
+      // Single writer (the owner thread): read-increment-write is safe, opaque only so the getters see it
+      void increment(final int counter) {
+         COUNTS.setOpaque(counts, counter, counts[counter] + 1);
+      }
+
+      long get(final int counter) {
+         return (long) COUNTS.getOpaque(counts, counter);
+      }
+   }
+}
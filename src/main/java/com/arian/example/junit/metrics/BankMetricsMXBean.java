@@ -0,0 +1,31 @@
+package com.arian.example.junit.metrics;
+
+/**
+ * What JConsole/VisualVM (or any JMX client) sees of a {@link BankMetrics}.
+ */
+public interface BankMetricsMXBean {
+
+   boolean isEnabled();
+
+   long getDebits();
+
+   long getCredits();
+
+   long getTransfers();
+
+   long getBatches();
+
+   long getRejections();
+
+   long getContendedLocks();
+
+   long getTransferLatencyP50();
+
+   long getTransferLatencyP99();
+
+   long getTransferLatencyP999();
+
+   long getTransferLatencyMax();
+
+   void reset();
+}
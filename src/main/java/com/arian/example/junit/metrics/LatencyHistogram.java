@@ -0,0 +1,93 @@
+package com.arian.example.junit.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear latency histogram, the same bucketing idea as HdrHistogram: every power of two is split into 16 linear
+ * sub-buckets, so any recorded value is off by at most 1/16 (~6%) and the whole long range fits in 960 counters.
+ * Recording is one index computation and one atomic increment, no allocation, no lock.
+ */
+public class LatencyHistogram {
+
+   private static final int SUB_BUCKET_BITS = 4;
+
+   private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+   // Values below 2 * SUB_BUCKETS have a bucket each, above that 16 buckets per power of two
+   static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+   private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+   public void record(final long nanos) {
+      counts.incrementAndGet(bucketOf(Math.max(nanos, 0)));
+   }
+
+   static int bucketOf(final long value) {
+      if (value < 2 * SUB_BUCKETS) {
+         return (int) value;
+      }
+      int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - 1 - SUB_BUCKET_BITS;
+      // value >>> shift is in [16, 32): the power of two picks the row, the next 4 bits the sub-bucket
+      return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+   }
+
+   static long lowestValueOf(final int bucket) {
+      if (bucket < 2 * SUB_BUCKETS) {
+         return bucket;
+      }
+      int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+      return (long) ((bucket & (SUB_BUCKETS - 1)) | SUB_BUCKETS) << shift;
+   }
+
+   static long highestValueOf(final int bucket) {
+      return bucket == BUCKETS - 1 ? Long.MAX_VALUE : lowestValueOf(bucket + 1) - 1;
+   }
+
+   public long getCount() {
+      long total = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+         total += counts.get(i);
+      }
+      return total;
+   }
+
+   /**
+    * The highest value of the bucket holding the given percentile (0-100), 0 when nothing was recorded. Concurrent
+    * recordings may or may not be seen.
+    */
+   public long getValueAtPercentile(final double percentile) {
+      long[] snapshot = new long[BUCKETS];
+      long total = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+         snapshot[i] = counts.get(i);
+         total += snapshot[i];
+      }
+      if (total == 0) {
+         return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(total * Math.min(percentile, 100) / 100));
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+         seen += snapshot[i];
+         if (seen >= rank) {
+            return highestValueOf(i);
+         }
+      }
+      return highestValueOf(BUCKETS - 1);
+   }
+
+   public long getMax() {
+      for (int i = BUCKETS - 1; i >= 0; i--) {
+         if (counts.get(i) > 0) {
+            return highestValueOf(i);
+         }
+      }
+      return 0;
+   }
+
+   public void reset() {
+      for (int i = 0; i < BUCKETS; i++) {
+         counts.set(i, 0);
+      }
+   }
+}
@@ -0,0 +1,11 @@
+package com.arian.example.junit.metrics;
+
+/**
+ * Where the metrics of a bank go when they are not read through JMX: logs, a push gateway, a test...
+ * Called from the reporting thread of {@link BankMetrics#startReporting}, so it should not block for long.
+ */
+@FunctionalInterface
+public interface MetricsReporter {
+
+   void report(MetricsSnapshot snapshot);
+}
@@ -0,0 +1,34 @@
+package com.arian.example.junit.metrics;
+
+import lombok.Value;
+
+/**
+ * The metrics of a bank at some point in time. Latencies are in nanoseconds and come from the sampled transfers only.
+ */
+@Value
+public class MetricsSnapshot {
+
+   long debits;
+
+   long credits;
+
+   long transfers;
+
+   long batches;
+
+   // InsufficientFundsException thrown by debits, transfers and batches
+   long rejections;
+
+   // Transfers and batches that found one of their locks already taken
+   long contendedLocks;
+
+   long sampledTransfers;
+
+   long transferLatencyP50;
+
+   long transferLatencyP99;
+
+   long transferLatencyP999;
+
+   long transferLatencyMax;
+}
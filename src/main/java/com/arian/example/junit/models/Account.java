@@ -1,21 +1,26 @@
 package com.arian.example.junit.models;
 
 import java.math.BigDecimal;
-import java.util.Locale;
 
 import com.arian.example.junit.exceptions.InsufficientFundsException;
 
-import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+/**
+ * Accounts are equal only to themselves (identity, no equals/hashCode override): two accounts with the same holder, or
+ * the same id in two banks, are different accounts, and the hash never changes while the account is registered, moves
+ * money or is renamed, so an account can key any map or set.
+ */
 @Getter
 @Setter
-@EqualsAndHashCode
 @NoArgsConstructor
 public class Account {
 
+   // Assigned by the bank on addAccount, 0 while the account is not registered; unique inside one bank only
+   private long id;
+
    private String person;
 
    private Bank bank;
@@ -23,21 +28,101 @@ public class Account {
    private BigDecimal balance;
 
    public Account(final String person, final BigDecimal balance) {
-      this.person = person.toUpperCase(Locale.ROOT);
+      this.person = HolderNames.canonical(person);
       this.balance = balance;
    }
 
    /**
+    * @throws InsufficientFundsException if the balance is lower than the amount; see {@link #tryDebit(BigDecimal)}
+    */
+   public void debit(final BigDecimal monto) {
+      if (!tryDebit(monto)) {
+         throw new InsufficientFundsException("Insufficient funds or money!");
+      }
+   }
+
+   /**
+    * Same as {@link #debit(BigDecimal)}, but a rejected debit just returns false: no exception, no stack trace.
+    * Use it where rejections are expected and frequent (a client retrying against an empty account).
+    */
+   public boolean tryDebit(final BigDecimal monto) {
+      if (!tryApplyDebit(monto)) {
+         if (bank != null) {
+            bank.getMetrics().recordRejection();
+            bank.rejected(this, monto);
+            bank.afterChange();
+         }
+         return false;
+      }
+      if (bank != null) {
+         bank.getMetrics().recordDebit();
+         bank.debited(this, monto);
+         bank.afterChange();
+      }
+      return true;
+   }
+
+   public void credit(final BigDecimal monto) {
+      applyCredit(monto);
+      if (bank != null) {
+         bank.getMetrics().recordCredit();
+         bank.credited(this, monto);
+         bank.afterChange();
+      }
+   }
+
+   /**
+    * What a debit or credit of {@code monto} really moves: accounts keeping minor units round it to their scale.
+    */
+   public BigDecimal applied(final BigDecimal monto) {
+      return monto;
+   }
+
+   /**
+    * Changes the balance without notifying the bank listeners. Subclasses with another balance representation
+    * override these two methods.
     * BigDecimal IS INMUTABLE!
+    *
+    * @return false, leaving the balance untouched, if the balance is lower than the amount
     **/
-   public void debit(final BigDecimal monto) {
+   protected boolean tryApplyDebit(final BigDecimal monto) {
       if (monto.compareTo(this.balance) == 1) {
-         throw new InsufficientFundsException("Insufficient funds or money!");
+         return false;
       }
       this.balance = this.balance.subtract(monto);
+      return true;
    }
 
-   public void credit(final BigDecimal monto) {
+   protected void applyCredit(final BigDecimal monto) {
       this.balance = this.balance.add(monto);
    }
+
+   /**
+    * Adds the interest on the current balance (or takes the fee, when the rate is negative) and notifies the bank
+    * listeners. Called by {@link InterestAccrual} with the account locked. Minor-unit accounts override it so no
+    * BigDecimal is allocated.
+    *
+    * @return false, leaving the balance untouched, if a fee is more than the balance
+    */
+   boolean accrue(final InterestRate rate) {
+      BigDecimal interest = rate.on(getBalance());
+      if (interest.signum() > 0) {
+         applyCredit(interest);
+      } else if (interest.signum() < 0 && !tryApplyDebit(interest.negate())) {
+         return false;
+      }
+      accrued(interest);
+      return true;
+   }
+
+   void accrued(final BigDecimal interest) {
+      if (bank == null || interest.signum() == 0) {
+         return;
+      }
+      if (interest.signum() > 0) {
+         bank.credited(this, interest);
+      } else {
+         bank.debited(this, interest.negate());
+      }
+   }
 }
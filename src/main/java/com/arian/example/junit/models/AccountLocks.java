@@ -0,0 +1,168 @@
+package com.arian.example.junit.models;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped locks shared by every {@link Account}, whatever {@link Bank} it belongs to.
+ * An account is mapped to a stripe by its identity hash, and stripes are ALWAYS acquired in ascending order,
+ * so two transfers can never wait on each other in a cycle (no deadlocks!).
+ * <p>
+ * Every stripe is also a seqlock: its version is odd while a writer holds it and goes up by 2 per write, so readers can
+ * read balances without taking any lock and then check that no transfer touched those stripes meanwhile
+ * ({@link #readVersions(int[], long[])} and {@link #validate(int[], long[])}). Readers never block writers.
+ */
+final class AccountLocks {
+
+   // BankMetrics keeps one row of counters per stripe: change both together
+   static final int STRIPES = 1024;
+
+   private static final Stripe[] LOCKS = new Stripe[STRIPES];
+
+   static {
+      for (int i = 0; i < STRIPES; i++) {
+         LOCKS[i] = new Stripe();
+      }
+   }
+
+   // The version lives next to its lock: stripes are separate objects, so writers of different stripes don't share it
+   @SuppressWarnings("serial")
+   private static final class Stripe extends ReentrantLock {
+
+      private static final VarHandle VERSION;
+
+      static {
+         try {
+            VERSION = MethodHandles.lookup().findVarHandle(Stripe.class, "version", long.class);
+         } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+         }
+      }
+
+      // Only written by the lock holder, and only by the outermost hold (a listener may transfer again)
+      private long version;
+
+      void beginWrite() {
+         if (getHoldCount() == 1) {
+            VERSION.setOpaque(this, version + 1);
+            // The balances written next can't be seen before the odd version
+            VarHandle.storeStoreFence();
+         }
+      }
+
+      void endWrite() {
+         if (getHoldCount() == 1) {
+            VERSION.setRelease(this, version + 1);
+         }
+      }
+
+      long readVersion() {
+         return (long) VERSION.getAcquire(this);
+      }
+
+      long recheckVersion() {
+         return (long) VERSION.getOpaque(this);
+      }
+   }
+
+   private AccountLocks() {
+   }
+
+   static int stripeOf(final Account account) {
+      // Identity hash, NOT hashCode(): it is cheap and never changes while the balance moves
+      int h = System.identityHashCode(account);
+      return (h ^ (h >>> 16)) & (STRIPES - 1);
+   }
+
+   /**
+    * Locks the stripes of both accounts, lowest stripe first. Both accounts may share the same stripe.
+    *
+    * @return true if one of the stripes was held by another thread and we had to wait (contention)
+    */
+   static boolean lock(final int first, final int second) {
+      int low = Math.min(first, second);
+      int high = Math.max(first, second);
+      boolean contended = acquire(LOCKS[low]);
+      if (high != low) {
+         contended |= acquire(LOCKS[high]);
+      }
+      return contended;
+   }
+
+   // tryLock() first: it costs nothing more when the lock is free and tells us whether we are going to wait
+   private static boolean acquire(final Stripe lock) {
+      boolean contended = !lock.tryLock();
+      if (contended) {
+         lock.lock();
+      }
+      lock.beginWrite();
+      return contended;
+   }
+
+   private static void release(final Stripe lock) {
+      lock.endWrite();
+      lock.unlock();
+   }
+
+   static void unlock(final int first, final int second) {
+      int low = Math.min(first, second);
+      int high = Math.max(first, second);
+      if (high != low) {
+         release(LOCKS[high]);
+      }
+      release(LOCKS[low]);
+   }
+
+   /**
+    * The distinct stripes of the given accounts, sorted, ready for {@link #lockAll(int[])}.
+    */
+   static int[] stripesOf(final Collection<? extends Account> accounts) {
+      return accounts.stream().mapToInt(AccountLocks::stripeOf).distinct().sorted().toArray();
+   }
+
+   static boolean lockAll(final int[] sortedStripes) {
+      boolean contended = false;
+      for (int stripe : sortedStripes) {
+         contended |= acquire(LOCKS[stripe]);
+      }
+      return contended;
+   }
+
+   static void unlockAll(final int[] sortedStripes) {
+      for (int i = sortedStripes.length - 1; i >= 0; i--) {
+         release(LOCKS[sortedStripes[i]]);
+      }
+   }
+
+   /**
+    * Starts an optimistic read of the given stripes.
+    *
+    * @return false if a writer holds one of them right now (no point in reading, try again)
+    */
+   static boolean readVersions(final int[] stripes, final long[] versions) {
+      for (int i = 0; i < stripes.length; i++) {
+         versions[i] = LOCKS[stripes[i]].readVersion();
+         if ((versions[i] & 1) != 0) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * @return true if no writer touched the given stripes since {@link #readVersions(int[], long[])}: whatever was read in
+    *         between is consistent
+    */
+   static boolean validate(final int[] stripes, final long[] versions) {
+      // The balances read before can't be reordered after the version checks below
+      VarHandle.loadLoadFence();
+      for (int i = 0; i < stripes.length; i++) {
+         if (LOCKS[stripes[i]].recheckVersion() != versions[i]) {
+            return false;
+         }
+      }
+      return true;
+   }
+}
@@ -0,0 +1,34 @@
+package com.arian.example.junit.models;
+
+import lombok.Value;
+
+/**
+ * What one {@link InterestAccrual#run()} did, and how fast.
+ */
+@Value
+public class AccrualReport {
+
+   // Accounts that got their interest (or paid their fee) in this run
+   long accounts;
+
+   // Accounts whose fee was more than their balance, or whose interest would overflow it: nothing was moved
+   long rejected;
+
+   // Accounts skipped: already accrued by an earlier, interrupted run of the same job
+   long alreadyAccrued;
+
+   // Chunks done so far, this run and the previous ones (see the checkpoint)
+   int chunksDone;
+
+   int chunks;
+
+   long elapsedNanos;
+
+   public boolean isComplete() {
+      return chunksDone == chunks;
+   }
+
+   public double getAccountsPerSecond() {
+      return elapsedNanos == 0 ? 0 : (accounts + rejected) * 1_000_000_000d / elapsedNanos;
+   }
+}
@@ -0,0 +1,49 @@
+package com.arian.example.junit.models;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free account: the balance is swapped with compare-and-set, retrying when another thread changed it first.
+ * The insufficient funds check is done inside the retry loop, against the very balance being replaced, so concurrent
+ * debits can never overdraw the account. Useful for hot accounts (e.g. merchant settlement) that many threads debit and
+ * credit directly, where a lock would serialize all of them.
+ */
+public class AtomicAccount extends Account {
+
+   private final AtomicReference<BigDecimal> atomicBalance;
+
+   public AtomicAccount(final String person, final BigDecimal balance) {
+      super(person, null);
+      this.atomicBalance = new AtomicReference<>(balance);
+   }
+
+   @Override
+   protected boolean tryApplyDebit(final BigDecimal monto) {
+      BigDecimal current;
+      BigDecimal updated;
+      do {
+         current = atomicBalance.get();
+         if (monto.compareTo(current) > 0) {
+            return false;
+         }
+         updated = current.subtract(monto);
+      } while (!atomicBalance.compareAndSet(current, updated));
+      return true;
+   }
+
+   @Override
+   protected void applyCredit(final BigDecimal monto) {
+      atomicBalance.accumulateAndGet(monto, BigDecimal::add);
+   }
+
+   @Override
+   public BigDecimal getBalance() {
+      return atomicBalance.get();
+   }
+
+   @Override
+   public void setBalance(final BigDecimal balance) {
+      atomicBalance.set(balance);
+   }
+}
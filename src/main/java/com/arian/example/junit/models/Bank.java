@@ -2,33 +2,432 @@ package com.arian.example.junit.models;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 
-import lombok.EqualsAndHashCode;
+import com.arian.example.junit.exceptions.InsufficientFundsException;
+import com.arian.example.junit.metrics.BankMetrics;
+
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
+/**
+ * Banks are equal only to themselves (identity): the name is just a label, it may be missing, repeated or changed.
+ */
 @Getter
 @Setter
-@EqualsAndHashCode
 public class Bank {
 
+   // Optimistic attempts of a consistent read: the first ones spin, the next ones back off longer and longer
+   private static final int OPTIMISTIC_READS = 12;
+
+   private static final int SPINNING_READS = 4;
+
+   private static final long MAX_BACKOFF_NANOS = 256_000;
+
+   // Written only inside addAccount(s), always together with the indexes below
+   @Setter(AccessLevel.NONE)
    private List<Account> accounts;
 
+   // Hash indexes, so lookups are O(1) instead of scanning the whole list
+   @Getter(AccessLevel.NONE)
+   @Setter(AccessLevel.NONE)
+   private final Map<Long, Account> accountsById = new ConcurrentHashMap<>();
+
+   @Getter(AccessLevel.NONE)
+   @Setter(AccessLevel.NONE)
+   private final Map<String, HolderAccounts> accountsByPerson = new ConcurrentHashMap<>();
+
+   @Getter(AccessLevel.NONE)
+   @Setter(AccessLevel.NONE)
+   private long lastAccountId;
+
+   @Getter(AccessLevel.NONE)
+   @Setter(AccessLevel.NONE)
+   private final List<BankListener> listeners = new CopyOnWriteArrayList<>();
+
+   // Disabled unless somebody sets real metrics, see BankMetrics
+   private volatile BankMetrics metrics = BankMetrics.disabled();
+
    private String name;
 
    public Bank() {
       accounts = new ArrayList<>();
    }
 
-   public void addAccount(final Account account) {
+   /**
+    * Registers the account and gives it a stable id, unique inside this bank (1, 2, 3...).
+    */
+   public synchronized void addAccount(final Account account) {
+      register(account);
+      accountsByPerson.computeIfAbsent(account.getPerson(), p -> new HolderAccounts()).add(account);
+      listeners.forEach(listener -> listener.accountAdded(account));
+      afterChange();
+   }
+
+   /**
+    * Same as calling {@link #addAccount(Account)} for each account, but much faster for many accounts
+    * (e.g. when loading a snapshot): the holder index is looked up once per holder.
+    */
+   public synchronized void addAccounts(final List<? extends Account> newAccounts) {
+      Map<String, List<Account>> byPerson = new HashMap<>();
+      for (Account account : newAccounts) {
+         register(account);
+         byPerson.computeIfAbsent(account.getPerson(), p -> new ArrayList<>()).add(account);
+      }
+      byPerson.forEach((person, added) -> accountsByPerson.computeIfAbsent(person, p -> new HolderAccounts()).addAll(added));
+      newAccounts.forEach(account -> listeners.forEach(listener -> listener.accountAdded(account)));
+      afterChange();
+   }
+
+   private void register(final Account account) {
       account.setBank(this);
+      account.setId(++lastAccountId);
       accounts.add(account);
+      accountsById.put(account.getId(), account);
+   }
+
+   /**
+    * The accounts of one holder, append-only: added under the bank monitor (amortized O(1), the array doubles when
+    * full), read without any lock. A reader takes the size, then the array: the first {@code size} slots of any later
+    * array hold the same accounts, so it gets a fixed view, never a list being modified.
+    */
+   private static final class HolderAccounts {
+
+      private volatile Account[] accounts = new Account[2];
+
+      private volatile int size;
+
+      void add(final Account account) {
+         if (size == accounts.length) {
+            accounts = Arrays.copyOf(accounts, size * 2);
+         }
+         accounts[size] = account;
+         size++;
+      }
+
+      void addAll(final List<Account> added) {
+         if (size + added.size() > accounts.length) {
+            accounts = Arrays.copyOf(accounts, Math.max(size * 2, size + added.size()));
+         }
+         for (Account account : added) {
+            accounts[size] = account;
+            size++;
+         }
+      }
+
+      List<Account> view() {
+         int length = size;
+         return Collections.unmodifiableList(Arrays.asList(accounts).subList(0, length));
+      }
+   }
+
+   public void addListener(final BankListener listener) {
+      listeners.add(listener);
+   }
+
+   /**
+    * Adds a listener that needs to start from a consistent copy of the bank: {@code init} (e.g. copying every balance)
+    * runs while transfers and new accounts are paused, and the listener is notified of everything after it.
+    * Only the stripes of this bank's accounts are locked (no new account can join meanwhile, we hold the bank): other
+    * banks go on, and so do optimistic readers of other stripes. Direct {@link Account#debit}/{@link Account#credit}
+    * calls are not paused.
+    */
+   public synchronized void addListener(final BankListener listener, final Runnable init) {
+      int[] stripes = AccountLocks.stripesOf(accounts);
+      AccountLocks.lockAll(stripes);
+      try {
+         init.run();
+         listeners.add(listener);
+      } finally {
+         AccountLocks.unlockAll(stripes);
+      }
+      listener.afterChange();
+   }
+
+   public void removeListener(final BankListener listener) {
+      listeners.remove(listener);
+   }
+
+   private boolean isLocal(final Account account) {
+      return account.getBank() == null || account.getBank() == this;
+   }
+
+   /**
+    * The listeners of this bank plus those of the other banks of these accounts, each one once: the other side of a
+    * cross-bank transfer (e.g. its Journal) must see it too, but a listener of both banks (e.g. an EventLog) only once.
+    */
+   private List<BankListener> listenersOf(final Collection<Account> involved) {
+      List<BankListener> all = listeners;
+      for (Account account : involved) {
+         if (!isLocal(account)) {
+            for (BankListener listener : account.getBank().listeners) {
+               if (all.stream().noneMatch(l -> l == listener)) {
+                  if (all == listeners) {
+                     all = new ArrayList<>(listeners);
+                  }
+                  all.add(listener);
+               }
+            }
+         }
+      }
+      return all;
+   }
+
+   boolean hasListeners() {
+      return !listeners.isEmpty();
+   }
+
+   void debited(final Account account, final BigDecimal amount) {
+      listeners.forEach(listener -> listener.debited(account, amount));
+   }
+
+   void credited(final Account account, final BigDecimal amount) {
+      listeners.forEach(listener -> listener.credited(account, amount));
+   }
+
+   void rejected(final Account account, final BigDecimal amount) {
+      listeners.forEach(listener -> listener.rejected(account, amount));
+   }
+
+   // Once the locks of the accounts just notified are released
+   void afterChange() {
+      listeners.forEach(BankListener::afterChange);
+   }
+
+   /**
+    * A snapshot of the registered accounts, in registration order.
+    */
+   public synchronized List<Account> getAccounts() {
+      return Collections.unmodifiableList(new ArrayList<>(accounts));
+   }
+
+   /**
+    * The balances of the given accounts, all taken at the same instant: no transfer is seen half applied.
+    * Read optimistically, see {@link #readConsistently(int[], Supplier)}.
+    */
+   public List<BigDecimal> getConsistentBalances(final List<? extends Account> accountsToRead) {
+      return readConsistently(accountsToRead, () -> {
+         List<BigDecimal> balances = new ArrayList<>(accountsToRead.size());
+         for (Account account : accountsToRead) {
+            balances.add(account.getBalance());
+         }
+         return balances;
+      });
+   }
+
+   /**
+    * Runs the read with no transfer or batch of the given accounts applied half-way through it, e.g. to read their balances
+    * together with the position of a listener (a Journal) that is notified of those transfers. The read may run more than
+    * once: it must have no side effects.
+    */
+   public <T> T readConsistently(final List<? extends Account> accountsToRead, final Supplier<T> read) {
+      return readConsistently(AccountLocks.stripesOf(accountsToRead), read);
    }
 
+   /**
+    * Same as {@link Account#getBalance()}, but never in the middle of a transfer or batch of this account.
+    */
+   public BigDecimal getBalance(final Account account) {
+      return readConsistently(new int[] { AccountLocks.stripeOf(account) }, account::getBalance);
+   }
+
+   /**
+    * The money held by all the accounts of this bank (what the bank owes), as of one instant between transfers: money
+    * moving between two accounts is counted exactly once. Accounts added after the call starts are not included.
+    */
+   public BigDecimal getTotalBalance() {
+      List<Account> all = new ArrayList<>(accountsById.values());
+      return readConsistently(all, () -> {
+         BigDecimal total = BigDecimal.ZERO;
+         for (Account account : all) {
+            total = total.add(account.getBalance());
+         }
+         return total;
+      });
+   }
+
+   /**
+    * Seqlock read: reads without any lock and keeps the result only if no transfer touched those stripes meanwhile,
+    * so dashboards don't slow transfers down. Failed attempts back off (up to {@link #MAX_BACKOFF_NANOS}) to let the
+    * transfers through. After {@link #OPTIMISTIC_READS} of them (a read too long for a busy bank, e.g. the total of
+    * thousands of accounts) it locks the stripes of the read, in ascending order, for the time of one read: only
+    * transfers of those accounts wait, and never longer than that one read. Other banks, and accounts on other stripes,
+    * are never stopped. Direct {@link Account#debit}/{@link Account#credit} calls take no lock and are not covered.
+    */
+   private static <T> T readConsistently(final int[] stripes, final Supplier<T> read) {
+      long[] versions = new long[stripes.length];
+      long backoff = 1_000;
+      for (int attempt = 0; attempt < OPTIMISTIC_READS; attempt++) {
+         if (AccountLocks.readVersions(stripes, versions)) {
+            T result = read.get();
+            if (AccountLocks.validate(stripes, versions)) {
+               return result;
+            }
+         }
+         if (attempt < SPINNING_READS) {
+            Thread.onSpinWait();
+         } else {
+            LockSupport.parkNanos(backoff);
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_NANOS);
+         }
+      }
+      AccountLocks.lockAll(stripes);
+      try {
+         return read.get();
+      } finally {
+         AccountLocks.unlockAll(stripes);
+      }
+   }
+
+   public Optional<Account> findAccount(final long id) {
+      return Optional.ofNullable(accountsById.get(id));
+   }
+
+   /**
+    * Accounts held by the given person, as registered. The name is upper-cased the same way as in {@link Account}.
+    * The list does not change: accounts registered after the call are not in it.
+    */
+   public List<Account> findAccountsByPerson(final String person) {
+      HolderAccounts holder = accountsByPerson.get(HolderNames.canonical(person));
+      return holder == null ? List.of() : holder.view();
+   }
+
+   /**
+    * Thread-safe: both accounts are locked (see {@link AccountLocks}) so the debit and the credit are applied together,
+    * or not at all when the origin has insufficient funds.
+    *
+    * @throws InsufficientFundsException if the origin can't pay; see {@link #tryTransfer(Account, Account, BigDecimal)}
+    */
    public void transfer(final Account origin, final Account destination, final BigDecimal amount) {
-      origin.debit(amount);
-      destination.credit(amount);
+      if (!tryTransfer(origin, destination, amount)) {
+         throw new InsufficientFundsException("Insufficient funds or money!");
+      }
+   }
+
+   /**
+    * Same as {@link #transfer(Account, Account, BigDecimal)}, but returns false instead of throwing when the origin
+    * can't pay: cheap enough to be called in a loop against an empty account.
+    *
+    * @throws ArithmeticException if the destination can't take the amount (its balance would overflow, or its scale
+    *                             can't hold the amount); the origin gets its money back, nothing is moved
+    */
+   public boolean tryTransfer(final Account origin, final Account destination, final BigDecimal amount) {
+      BankMetrics bankMetrics = metrics;
+      long start = bankMetrics.startTimer();
+      int originStripe = AccountLocks.stripeOf(origin);
+      int destinationStripe = AccountLocks.stripeOf(destination);
+      List<BankListener> notified = listeners;
+      boolean contended = AccountLocks.lock(originStripe, destinationStripe);
+      try {
+         if (!origin.tryApplyDebit(amount)) {
+            bankMetrics.recordRejection(originStripe);
+            rejected(origin, amount);
+            return false;
+         }
+         try {
+            destination.applyCredit(amount);
+         } catch (ArithmeticException e) {
+            // Same amount, same conversion as the debit: giving it back can't fail
+            origin.applyCredit(amount);
+            throw e;
+         }
+         if (!isLocal(origin) || !isLocal(destination)) {
+            notified = listenersOf(List.of(origin, destination));
+         }
+         notified.forEach(listener -> listener.transferred(origin, destination, amount));
+         bankMetrics.recordTransfer(originStripe, start, contended);
+         return true;
+      } finally {
+         AccountLocks.unlock(originStripe, destinationStripe);
+         notified.forEach(BankListener::afterChange);
+      }
    }
 
+   /**
+    * Applies the whole batch or nothing. Every account is checked against the NET effect of the batch (so an account may
+    * pay out money it receives in the same batch), then each account is updated once. The locks of all the accounts
+    * involved are taken once for the whole batch.
+    *
+    * @throws InsufficientFundsException if any account would end up with a negative balance; no transfer is applied
+    * @throws ArithmeticException        if an account can't take its net credit (its balance would overflow, or its
+    *                                    scale can't hold the amount); no transfer is applied
+    */
+   public void transferAll(final List<Transfer> transfers) {
+      if (transfers.isEmpty()) {
+         return;
+      }
+      BankMetrics bankMetrics = metrics;
+      long start = bankMetrics.startTimer();
+      Map<Account, BigDecimal> netAmounts = new IdentityHashMap<>();
+      for (Transfer transfer : transfers) {
+         netAmounts.merge(transfer.getOrigin(), transfer.getAmount().negate(), BigDecimal::add);
+         netAmounts.merge(transfer.getDestination(), transfer.getAmount(), BigDecimal::add);
+      }
+
+      int[] stripes = AccountLocks.stripesOf(netAmounts.keySet());
+      List<BankListener> notified = listeners;
+      boolean contended = AccountLocks.lockAll(stripes);
+      try {
+         netAmounts.forEach((account, net) -> {
+            if (net.signum() < 0 && account.getBalance().add(net).signum() < 0) {
+               bankMetrics.recordRejection(stripes[0]);
+               rejected(account, net.negate());
+               throw new InsufficientFundsException("Insufficient funds or money!");
+            }
+         });
+         apply(netAmounts);
+         notified = listenersOf(netAmounts.keySet());
+         notified.forEach(listener -> listener.transferredAll(transfers));
+         bankMetrics.recordBatch(stripes[0], start, contended);
+      } finally {
+         AccountLocks.unlockAll(stripes);
+         notified.forEach(BankListener::afterChange);
+      }
+   }
+
+   // Debits first, then credits; if one fails (a debit outside of the bank meanwhile, a conversion, an overflow), the
+   // ones already applied are undone with the same amounts, so the batch is never left half applied
+   private static void apply(final Map<Account, BigDecimal> netAmounts) {
+      List<Map.Entry<Account, BigDecimal>> applied = new ArrayList<>(netAmounts.size());
+      try {
+         for (Map.Entry<Account, BigDecimal> entry : netAmounts.entrySet()) {
+            if (entry.getValue().signum() < 0) {
+               // Already checked, it can only fail if the account is debited outside of the bank meanwhile
+               if (!entry.getKey().tryApplyDebit(entry.getValue().negate())) {
+                  throw new InsufficientFundsException("Insufficient funds or money!");
+               }
+               applied.add(entry);
+            }
+         }
+         for (Map.Entry<Account, BigDecimal> entry : netAmounts.entrySet()) {
+            if (entry.getValue().signum() > 0) {
+               entry.getKey().applyCredit(entry.getValue());
+               applied.add(entry);
+            }
+         }
+      } catch (RuntimeException e) {
+         for (int i = applied.size() - 1; i >= 0; i--) {
+            Account account = applied.get(i).getKey();
+            BigDecimal net = applied.get(i).getValue();
+            if (net.signum() < 0) {
+               account.applyCredit(net.negate());
+            } else {
+               account.tryApplyDebit(net);
+            }
+         }
+         throw e;
+      }
+   }
 }
@@ -0,0 +1,48 @@
+package com.arian.example.junit.models;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Notified of every change made to a {@link Bank} and its accounts, after the change is applied.
+ * Transfers are notified while the accounts are still locked, so listeners see them in the order they were applied
+ * (and must be quick! anything slower goes in {@link #afterChange()}). A transfer is notified only as a transfer, never as a debit plus a credit. A transfer (or batch)
+ * between accounts of different banks is notified to the listeners of all of them, once per listener.
+ */
+public interface BankListener {
+
+   default void accountAdded(final Account account) {
+   }
+
+   default void debited(final Account account, final BigDecimal amount) {
+   }
+
+   default void credited(final Account account, final BigDecimal amount) {
+   }
+
+   default void transferred(final Account origin, final Account destination, final BigDecimal amount) {
+   }
+
+   /**
+    * A debit or transfer refused because the account can't pay the amount (what {@code InsufficientFundsException}
+    * reports); nothing was changed. For a {@link Bank#transferAll(List)} batch, the amount is the net debit of the account
+    * that can't pay it.
+    */
+   default void rejected(final Account account, final BigDecimal amount) {
+   }
+
+   /**
+    * A whole {@link Bank#transferAll(List)} batch. By default, one {@link #transferred} per transfer of the batch.
+    */
+   default void transferredAll(final List<Transfer> transfers) {
+      transfers.forEach(t -> transferred(t.getOrigin(), t.getDestination(), t.getAmount()));
+   }
+
+   /**
+    * Called after the notifications of a change (or a whole batch), once the bank released the locks of its accounts,
+    * on the same thread: the place for the slow part of the work. A listener of several banks may be called for
+    * changes of another bank made meanwhile by other threads.
+    */
+   default void afterChange() {
+   }
+}
@@ -0,0 +1,83 @@
+package com.arian.example.junit.models;
+
+import java.util.Locale;
+
+/**
+ * Canonical (upper-cased, {@link Locale#ROOT}) holder names, shared: loading a million accounts of the same few
+ * thousand customers keeps a few thousand Strings, not a million copies.
+ * <p>
+ * Bounded, direct-mapped cache: each name goes to one slot picked by its hash, and a newer name simply replaces the
+ * older one in that slot (eviction for free, no lock, no LRU bookkeeping). Entries are immutable, so threads racing on
+ * a slot can only lose a cache hit (and some sharing), never get a wrong name. Names that are already canonical (ASCII without lower case
+ * letters, the usual case for bulk files) skip the upper-casing.
+ * <p>
+ * {@link #canonical(String)} uses the one cache of the JVM; tests make their own instance so no other test takes its slots.
+ */
+public final class HolderNames {
+
+   static final int CACHE_SIZE = 4096;
+
+   private static final HolderNames SHARED = new HolderNames(CACHE_SIZE);
+
+   private final Entry[] cache;
+
+   HolderNames(final int size) {
+      if (Integer.bitCount(size) != 1) {
+         throw new IllegalArgumentException("The cache size must be a power of two but was: " + size);
+      }
+      this.cache = new Entry[size];
+   }
+
+   public static String canonical(final String name) {
+      return SHARED.canonicalize(name);
+   }
+
+   String canonicalize(final String name) {
+      int slot = slotOf(name);
+      Entry entry = cache[slot];
+      if (entry != null && entry.name.equals(name)) {
+         return entry.canonical;
+      }
+      String canonical = isCanonical(name) ? name : name.toUpperCase(Locale.ROOT);
+      if (canonical != name) {
+         // "Arian" and "ARIAN" give the same instance (as long as the slot of "ARIAN" was not taken by another name)
+         int canonicalSlot = slotOf(canonical);
+         Entry shared = cache[canonicalSlot];
+         if (shared != null && shared.name.equals(canonical)) {
+            canonical = shared.canonical;
+         } else {
+            cache[canonicalSlot] = new Entry(canonical, canonical);
+         }
+      }
+      cache[slot] = new Entry(name, canonical);
+      return canonical;
+   }
+
+   private int slotOf(final String name) {
+      int h = name.hashCode();
+      return (h ^ (h >>> 16)) & (cache.length - 1);
+   }
+
+   // ASCII and no lower case letter: toUpperCase(Locale.ROOT) would return the same characters
+   static boolean isCanonical(final String name) {
+      for (int i = 0; i < name.length(); i++) {
+         char c = name.charAt(i);
+         if (c >= 0x80 || c >= 'a' && c <= 'z') {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private static final class Entry {
+
+      private final String name;
+
+      private final String canonical;
+
+      Entry(final String name, final String canonical) {
+         this.name = name;
+         this.canonical = canonical;
+      }
+   }
+}
@@ -0,0 +1,347 @@
+package com.arian.example.junit.models;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bulk interest (or fees, with a negative rate) for every account of a bank, e.g. nightly.
+ * <p>
+ * Accounts are split in chunks of consecutive ids (registration order), processed in parallel on a
+ * {@link ForkJoinPool}. Each account is locked only while its own interest is applied, so a transfer never waits for
+ * more than that (much less than a chunk), and money moving meanwhile is never counted twice. Minor-unit accounts
+ * ({@link LedgerAccount}, {@link StripedAccount}) are accrued with long arithmetic only; every amount is rounded with the
+ * rounding mode of the one {@link MoneyScale} of the job (see {@link InterestRate}).
+ * <p>
+ * The job keeps the set of accounts it accrued (one bit per account, by registration order), each one recorded before
+ * its interest is applied, so a chunk left half done (paused, or failed, e.g. a listener threw) is applied again without
+ * accruing any account twice. Interest that doesn't fit an account (its balance would overflow) is rejected like a fee
+ * larger than the balance, and is not tried again.
+ * <p>
+ * With a checkpoint file, the set is saved there with the as-of date and rate of the job (e.g. "interest of
+ * 2024-03-31"): about once a second while the chunks go on, and when the run ends, is paused or fails. {@link #pause()}
+ * stops after the chunks in progress, and a later {@link #run()} (of this or a new job of the same run, e.g. after a
+ * restart) goes on with the accounts left. A completed checkpoint is kept: running the same job again accrues nothing
+ * twice, and the checkpoint of another as-of date or rate is refused (use one checkpoint file per night). A run also
+ * accrues the accounts opened since the last one. Run one job at a time per bank: two jobs don't see each other's set.
+ * After a crash, the accounts accrued since the last save are accrued again unless the bank is rebuilt as of it.
+ */
+public class InterestAccrual {
+
+   public static final int DEFAULT_CHUNK_SIZE = 16_384;
+
+   private static final long MAGIC = 0x4143435255414c33L; // "ACCRUAL3"
+
+   private static final long CHECKPOINT_INTERVAL_NANOS = 1_000_000_000L;
+
+   private final Bank bank;
+
+   private final InterestRate rate;
+
+   // Null: a run of its own
+   private final LocalDate asOf;
+
+   private final int chunkSize;
+
+   private final ForkJoinPool pool;
+
+   // Null: no checkpoint, only this job knows what it accrued
+   private final Path checkpoint;
+
+   // Accounts accrued (or rejected) by this job, by index in the bank; guards recorded too
+   private final BitSet accrued = new BitSet();
+
+   // Bumped every time accounts are added to the set
+   private long recorded;
+
+   // Only one thread writes the checkpoint at a time; guards saved
+   private final Object saving = new Object();
+
+   // Value of recorded in the checkpoint file
+   private long saved;
+
+   private volatile long lastSave;
+
+   private volatile boolean paused;
+
+   public InterestAccrual(final Bank bank, final BigDecimal rate, final MoneyScale moneyScale) {
+      this(bank, rate, moneyScale, null, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool(), null);
+   }
+
+   /**
+    * @param asOf       the day the interest is for; may only be null without a checkpoint
+    * @param checkpoint null for none
+    */
+   public InterestAccrual(final Bank bank, final BigDecimal rate, final MoneyScale moneyScale, final LocalDate asOf, final int chunkSize,
+         final ForkJoinPool pool, final Path checkpoint) {
+      if (chunkSize <= 0) {
+         throw new IllegalArgumentException("The chunk size must be positive but was: " + chunkSize);
+      }
+      if (checkpoint != null && asOf == null) {
+         throw new IllegalArgumentException("A job with a checkpoint needs an as-of date");
+      }
+      this.bank = bank;
+      this.rate = new InterestRate(rate, moneyScale);
+      this.asOf = asOf;
+      this.chunkSize = chunkSize;
+      this.pool = pool;
+      this.checkpoint = checkpoint;
+   }
+
+   /**
+    * Accrues every account not accrued yet, and returns when they are all done or the job is paused.
+    *
+    * @throws IOException if the checkpoint can't be read or written, or belongs to another job
+    */
+   public AccrualReport run() throws IOException {
+      long start = System.nanoTime();
+      paused = false;
+      lastSave = start;
+      List<Account> accounts = bank.getAccounts();
+      int chunks = (accounts.size() + chunkSize - 1) / chunkSize;
+      if (checkpoint != null && Files.exists(checkpoint)) {
+         BitSet saved = readCheckpoint();
+         synchronized (accrued) {
+            accrued.or(saved);
+         }
+      }
+      AtomicInteger nextChunk = new AtomicInteger();
+      LongAdder accruedNow = new LongAdder();
+      LongAdder rejected = new LongAdder();
+      LongAdder alreadyAccrued = new LongAdder();
+
+      // One worker per core, each one takes the next chunk left
+      List<Future<?>> workers = new ArrayList<>();
+      for (int i = 0; i < Math.min(pool.getParallelism(), chunks); i++) {
+         workers.add(pool.submit(() -> {
+            int chunk;
+            while (!paused && (chunk = nextChunk.getAndIncrement()) < chunks) {
+               int from = chunk * chunkSize;
+               int to = Math.min(accounts.size(), from + chunkSize);
+               if (!isDone(from, to)) {
+                  accrue(accounts, from, to, accruedNow, rejected, alreadyAccrued);
+                  if (System.nanoTime() - lastSave >= CHECKPOINT_INTERVAL_NANOS) {
+                     try {
+                        saveCheckpoint();
+                     } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                     }
+                  }
+               }
+            }
+         }));
+      }
+      try {
+         awaitAll(workers);
+      } finally {
+         // Paused or failed too: the accounts of a chunk left half done are not accrued again
+         saveCheckpoint();
+      }
+      return new AccrualReport(accruedNow.sum(), rejected.sum(), alreadyAccrued.sum(), chunksDone(accounts.size(), chunks), chunks,
+            System.nanoTime() - start);
+   }
+
+   /**
+    * Stops a run in progress once its current chunks are done; {@link #run()} goes on from there.
+    */
+   public void pause() {
+      paused = true;
+   }
+
+   private void accrue(final List<Account> accounts, final int from, final int to, final LongAdder accruedNow, final LongAdder rejected,
+         final LongAdder alreadyAccrued) {
+      long accruedInChunk = 0;
+      long rejectedInChunk = 0;
+      long alreadyInChunk = 0;
+      // Bit i is account from + i; only this worker has the chunk
+      BitSet done;
+      synchronized (accrued) {
+         done = accrued.get(from, to);
+      }
+      try {
+         for (int i = from; i < to; i++) {
+            if (done.get(i - from)) {
+               alreadyInChunk++;
+               continue;
+            }
+            // Recorded first: if a listener throws once the interest is applied, the account is still done
+            done.set(i - from);
+            Account account = accounts.get(i);
+            int stripe = AccountLocks.stripeOf(account);
+            AccountLocks.lock(stripe, stripe);
+            try {
+               if (accrue(account)) {
+                  accruedInChunk++;
+               } else {
+                  rejectedInChunk++;
+               }
+            } finally {
+               AccountLocks.unlock(stripe, stripe);
+               bank.afterChange();
+            }
+         }
+      } finally {
+         record(done, from);
+         accruedNow.add(accruedInChunk);
+         rejected.add(rejectedInChunk);
+         alreadyAccrued.add(alreadyInChunk);
+      }
+   }
+
+   // An overflow is thrown before the balance changes
+   private boolean accrue(final Account account) {
+      try {
+         return account.accrue(rate);
+      } catch (ArithmeticException e) {
+         return false;
+      }
+   }
+
+   private boolean isDone(final int from, final int to) {
+      synchronized (accrued) {
+         return accrued.nextClearBit(from) >= to;
+      }
+   }
+
+   private void record(final BitSet done, final int from) {
+      synchronized (accrued) {
+         for (int i = done.nextSetBit(0); i >= 0; i = done.nextSetBit(i + 1)) {
+            accrued.set(from + i);
+         }
+         recorded++;
+      }
+   }
+
+   private int chunksDone(final int accounts, final int chunks) {
+      int done = 0;
+      for (int chunk = 0; chunk < chunks; chunk++) {
+         if (isDone(chunk * chunkSize, Math.min(accounts, (chunk + 1) * chunkSize))) {
+            done++;
+         }
+      }
+      return done;
+   }
+
+   // Every worker, even once one failed (the others stop after their chunk), so the checkpoint has all they did
+   private void awaitAll(final List<Future<?>> workers) throws IOException {
+      Exception failure = null;
+      for (Future<?> worker : workers) {
+         try {
+            await(worker);
+         } catch (IOException | RuntimeException e) {
+            paused = true;
+            if (failure == null) {
+               failure = e;
+            } else {
+               failure.addSuppressed(e);
+            }
+         }
+      }
+      if (failure instanceof IOException io) {
+         throw io;
+      }
+      if (failure != null) {
+         throw (RuntimeException) failure;
+      }
+   }
+
+   private static void await(final Future<?> worker) throws IOException {
+      try {
+         worker.get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new IOException("Interrupted while accruing interest", e);
+      } catch (ExecutionException e) {
+         if (e.getCause() instanceof UncheckedIOException io) {
+            throw io.getCause();
+         }
+         throw new IllegalStateException("Interest accrual failed", e.getCause());
+      }
+   }
+
+   // A copy of the set is taken and written outside of its lock, the workers go on meanwhile
+   private void saveCheckpoint() throws IOException {
+      if (checkpoint == null) {
+         return;
+      }
+      synchronized (saving) {
+         long version;
+         long[] words;
+         synchronized (accrued) {
+            version = recorded;
+            words = accrued.toLongArray();
+         }
+         if (saved == version) {
+            return; // Somebody else's save already covered us
+         }
+         writeCheckpoint(words);
+         saved = version;
+         lastSave = System.nanoTime();
+      }
+   }
+
+   // Written next to the checkpoint, forced to disk and moved over it: a crash never leaves half a checkpoint
+   private void writeCheckpoint(final long[] words) throws IOException {
+      Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+      try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+         DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+         writeHeader(out);
+         out.writeInt(words.length);
+         for (long word : words) {
+            out.writeLong(word);
+         }
+         out.flush();
+         channel.force(true);
+      }
+      Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+   }
+
+   private BitSet readCheckpoint() throws IOException {
+      try (InputStream file = Files.newInputStream(checkpoint); DataInputStream in = new DataInputStream(file)) {
+         if (in.readLong() != MAGIC) {
+            throw new IOException("Not an interest accrual checkpoint: " + checkpoint);
+         }
+         String checkpointAsOf = in.readUTF();
+         if (!checkpointAsOf.equals(asOf.toString())) {
+            throw new IOException("The checkpoint " + checkpoint + " is of the run as of " + checkpointAsOf + ", not " + asOf);
+         }
+         if (!in.readUTF().equals(rate.getRate().toString()) || in.readInt() != rate.getMoneyScale().getScale()
+               || !in.readUTF().equals(rate.getMoneyScale().getRoundingMode().name())) {
+            throw new IOException("Not a checkpoint of this interest accrual: " + checkpoint);
+         }
+         long[] words = new long[in.readInt()];
+         for (int i = 0; i < words.length; i++) {
+            words[i] = in.readLong();
+         }
+         return BitSet.valueOf(words);
+      }
+   }
+
+   private void writeHeader(final DataOutputStream out) throws IOException {
+      out.writeLong(MAGIC);
+      out.writeUTF(asOf.toString());
+      out.writeUTF(rate.getRate().toString());
+      out.writeInt(rate.getMoneyScale().getScale());
+      out.writeUTF(rate.getMoneyScale().getRoundingMode().name());
+   }
+}
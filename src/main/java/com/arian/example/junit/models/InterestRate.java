@@ -0,0 +1,70 @@
+package com.arian.example.junit.models;
+
+import java.math.BigDecimal;
+
+/**
+ * A rate of interest (a fee, when negative) with the ONE rounding policy of an {@link InterestAccrual} (or a bulk
+ * AccountStore interest run): BigDecimal balances get their interest rounded to the scale of the {@link MoneyScale},
+ * minor-unit balances to one unit; both with its rounding mode. The rate is never rounded itself, however many decimals
+ * it has.
+ */
+public final class InterestRate {
+
+   private static final long[] POWERS_OF_TEN = new long[19];
+
+   static {
+      POWERS_OF_TEN[0] = 1;
+      for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+         POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+      }
+   }
+
+   private final BigDecimal rate;
+
+   private final MoneyScale moneyScale;
+
+   // rate == unscaled / divisor, when both fit in a long: interest on units is then long arithmetic only
+   private final boolean fixedPoint;
+
+   private final long unscaled;
+
+   private final long divisor;
+
+   public InterestRate(final BigDecimal rate, final MoneyScale moneyScale) {
+      this.rate = rate;
+      this.moneyScale = moneyScale;
+      BigDecimal exact = rate.stripTrailingZeros();
+      if (exact.scale() < 0) {
+         exact = exact.setScale(0);
+      }
+      this.fixedPoint = exact.scale() < POWERS_OF_TEN.length && exact.unscaledValue().bitLength() < Long.SIZE;
+      this.unscaled = fixedPoint ? exact.unscaledValue().longValue() : 0;
+      this.divisor = fixedPoint ? POWERS_OF_TEN[exact.scale()] : 1;
+   }
+
+   public BigDecimal getRate() {
+      return rate;
+   }
+
+   public MoneyScale getMoneyScale() {
+      return moneyScale;
+   }
+
+   public BigDecimal on(final BigDecimal balance) {
+      return balance.multiply(rate).setScale(moneyScale.getScale(), moneyScale.getRoundingMode());
+   }
+
+   /**
+    * @throws ArithmeticException if the interest doesn't fit in a long
+    */
+   public long onUnits(final long units) {
+      if (fixedPoint) {
+         long product = units * unscaled;
+         // No overflow: the high half of the 128-bit product is just the sign of the low half
+         if (Math.multiplyHigh(units, unscaled) == product >> 63) {
+            return moneyScale.divide(product, divisor);
+         }
+      }
+      return BigDecimal.valueOf(units).multiply(rate).setScale(0, moneyScale.getRoundingMode()).longValueExact();
+   }
+}
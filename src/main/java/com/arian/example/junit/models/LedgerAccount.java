@@ -0,0 +1,132 @@
+package com.arian.example.junit.models;
+
+import java.math.BigDecimal;
+
+import com.arian.example.junit.exceptions.InsufficientFundsException;
+
+import lombok.Getter;
+
+/**
+ * Account whose balance is a primitive long of minor units (see {@link MoneyScale}) instead of a BigDecimal.
+ * {@link #debitUnits(long)} and {@link #creditUnits(long)} do not allocate anything; the BigDecimal methods are kept
+ * so a LedgerAccount can be used wherever an {@link Account} is expected (e.g. {@link Bank#transfer}).
+ */
+@Getter
+public class LedgerAccount extends Account {
+
+   private final MoneyScale moneyScale;
+
+   private long units;
+
+   public LedgerAccount(final String person, final BigDecimal balance) {
+      this(person, balance, MoneyScale.MICROS);
+   }
+
+   public LedgerAccount(final String person, final BigDecimal balance, final MoneyScale moneyScale) {
+      super(person, null);
+      this.moneyScale = moneyScale;
+      this.units = moneyScale.toUnits(balance);
+   }
+
+   /**
+    * @throws InsufficientFundsException if the balance is lower than the amount; see {@link #tryDebitUnits(long)}
+    */
+   public void debitUnits(final long amount) {
+      if (!tryDebitUnits(amount)) {
+         throw new InsufficientFundsException("Insufficient funds or money!");
+      }
+   }
+
+   /**
+    * @return false, without throwing, if the balance is lower than the amount
+    */
+   public boolean tryDebitUnits(final long amount) {
+      Bank bank = getBank();
+      if (!tryApplyDebitUnits(amount)) {
+         if (bank != null) {
+            bank.getMetrics().recordRejection();
+            if (bank.hasListeners()) {
+               bank.rejected(this, moneyScale.toBigDecimal(amount));
+               bank.afterChange();
+            }
+         }
+         return false;
+      }
+      if (bank != null) {
+         bank.getMetrics().recordDebit();
+         // Only allocates a BigDecimal when somebody listens to the bank
+         if (bank.hasListeners()) {
+            bank.debited(this, moneyScale.toBigDecimal(amount));
+            bank.afterChange();
+         }
+      }
+      return true;
+   }
+
+   /**
+    * @throws ArithmeticException if the balance would overflow
+    */
+   public void creditUnits(final long amount) {
+      applyCreditUnits(amount);
+      Bank bank = getBank();
+      if (bank != null) {
+         bank.getMetrics().recordCredit();
+         if (bank.hasListeners()) {
+            bank.credited(this, moneyScale.toBigDecimal(amount));
+            bank.afterChange();
+         }
+      }
+   }
+
+   @Override
+   protected boolean tryApplyDebit(final BigDecimal monto) {
+      return tryApplyDebitUnits(moneyScale.toUnits(monto));
+   }
+
+   @Override
+   public BigDecimal applied(final BigDecimal monto) {
+      return moneyScale.round(monto);
+   }
+
+   @Override
+   protected void applyCredit(final BigDecimal monto) {
+      applyCreditUnits(moneyScale.toUnits(monto));
+   }
+
+   @Override
+   boolean accrue(final InterestRate rate) {
+      long interest = rate.onUnits(units);
+      if (interest > 0) {
+         applyCreditUnits(interest);
+      } else if (interest < 0 && !tryApplyDebitUnits(-interest)) {
+         return false;
+      }
+      Bank bank = getBank();
+      if (interest != 0 && bank != null && bank.hasListeners()) {
+         accrued(moneyScale.toBigDecimal(interest));
+      }
+      return true;
+   }
+
+   private boolean tryApplyDebitUnits(final long amount) {
+      if (amount > units) {
+         return false;
+      }
+      units = Math.subtractExact(units, amount);
+      return true;
+   }
+
+   private void applyCreditUnits(final long amount) {
+      units = Math.addExact(units, amount);
+   }
+
+   @Override
+   public BigDecimal getBalance() {
+      return moneyScale.toBigDecimal(units);
+   }
+
+   @Override
+   public void setBalance(final BigDecimal balance) {
+      this.units = moneyScale.toUnits(balance);
+   }
+}
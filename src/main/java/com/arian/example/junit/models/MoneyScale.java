@@ -0,0 +1,98 @@
+package com.arian.example.junit.models;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Fixed-scale representation of money as a long number of minor units (cents, micros...), with ONE explicit rounding
+ * policy for amounts that carry more decimals than the scale (e.g. 1000.12345 at cents).
+ * Converting back with {@link #toBigDecimal(long)} gives exactly {@code amount.setScale(scale, roundingMode)}.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class MoneyScale {
+
+   public static final MoneyScale CENTS = new MoneyScale(2, RoundingMode.HALF_EVEN);
+
+   public static final MoneyScale MICROS = new MoneyScale(6, RoundingMode.HALF_EVEN);
+
+   private final int scale;
+
+   private final RoundingMode roundingMode;
+
+   public MoneyScale(final int scale, final RoundingMode roundingMode) {
+      if (scale < 0 || scale > 18) {
+         throw new IllegalArgumentException("The scale must be between 0 and 18 but was: " + scale);
+      }
+      this.scale = scale;
+      this.roundingMode = roundingMode;
+   }
+
+   /**
+    * @throws ArithmeticException if the amount does not fit in a long at this scale
+    *                             (or needs rounding and the rounding mode is UNNECESSARY)
+    */
+   public long toUnits(final BigDecimal amount) {
+      return amount.setScale(scale, roundingMode).unscaledValue().longValueExact();
+   }
+
+   /**
+    * The amount as it is kept at this scale: {@code toBigDecimal(toUnits(amount))} without going through a long.
+    */
+   public BigDecimal round(final BigDecimal amount) {
+      return amount.setScale(scale, roundingMode);
+   }
+
+   public BigDecimal toBigDecimal(final long units) {
+      return BigDecimal.valueOf(units, scale);
+   }
+
+   /**
+    * {@code dividend / divisor} rounded with the rounding mode of this scale, without going through BigDecimal
+    * (e.g. interest on a balance: {@code divide(units * rateMicros, 1_000_000)}).
+    *
+    * @throws ArithmeticException if rounding is needed and the rounding mode is UNNECESSARY
+    */
+   public long divide(final long dividend, final long divisor) {
+      long quotient = dividend / divisor;
+      long remainder = dividend % divisor;
+      if (remainder == 0) {
+         return quotient;
+      }
+      int sign = (dividend ^ divisor) < 0 ? -1 : 1;
+      // |remainder| vs |divisor| / 2, without overflowing
+      int half = Long.compare(Math.abs(remainder), Math.abs(divisor) - Math.abs(remainder));
+      boolean awayFromZero;
+      switch (roundingMode) {
+         case UP:
+            awayFromZero = true;
+            break;
+         case DOWN:
+            awayFromZero = false;
+            break;
+         case CEILING:
+            awayFromZero = sign > 0;
+            break;
+         case FLOOR:
+            awayFromZero = sign < 0;
+            break;
+         case HALF_UP:
+            awayFromZero = half >= 0;
+            break;
+         case HALF_DOWN:
+            awayFromZero = half > 0;
+            break;
+         case HALF_EVEN:
+            awayFromZero = half > 0 || half == 0 && (quotient & 1) != 0;
+            break;
+         default:
+            throw new ArithmeticException("Rounding necessary: " + dividend + " / " + divisor);
+      }
+      return awayFromZero ? quotient + sign : quotient;
+   }
+}
@@ -0,0 +1,375 @@
+package com.arian.example.junit.models;
+
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deferred net settlement of transfers between accounts of different banks.
+ * <p>
+ * {@link #submit} only queues the transfer with those of its bank pair: no account is locked or changed. It is refused
+ * right away if the origin's balance doesn't cover it. {@link #settle()} then settles each pair in one operation: both
+ * legs are netted per account (a customer paying a hundred times is debited once, a merchant paid a thousand times is
+ * credited once, an account that pays and receives only moves the difference), and every net is applied under a single
+ * acquisition of the locks of the pair's accounts. The net position of the pair (what one bank owes the other) is
+ * reported. Gross, each of those transfers would lock two accounts of two banks and mutate both. Transfers inside one
+ * bank are not deferred: they go straight to {@link Bank#tryTransfer}.
+ * <p>
+ * Until a transfer is settled the money stays with its origin, which can still spend it elsewhere: an origin that can't
+ * pay its net debit any more when the pair is settled has all its transfers of the cycle refused. Listeners see, per
+ * account and cycle, one debit or credit with its net amount, and one rejection per refused origin (with the total it
+ * could not pay).
+ */
+public class SettlementEngine {
+
+   // Settle swaps in a new cycle with one CAS, which submits can't hold back (a write lock against a steady stream of
+   // submits may never get its turn), then only waits for the submits still adding to the old one
+   private final AtomicReference<Cycle> current = new AtomicReference<>(new Cycle());
+
+   // Last exception thrown by a scheduled cycle
+   private volatile RuntimeException lastFailure;
+
+   /**
+    * @return false, without throwing, if the origin's balance doesn't cover the amount (it may still be refused when
+    *         settled)
+    * @throws IllegalArgumentException if one of the accounts does not belong to a bank
+    */
+   public boolean submit(final Account origin, final Account destination, final BigDecimal amount) {
+      Bank originBank = origin.getBank();
+      Bank destinationBank = destination.getBank();
+      if (originBank == null || destinationBank == null) {
+         throw new IllegalArgumentException("Only accounts of a bank can be settled");
+      }
+      if (originBank == destinationBank) {
+         return originBank.tryTransfer(origin, destination, amount);
+      }
+      // A first check only, without locking: settling checks the net again
+      if (origin.getBalance().compareTo(amount) < 0) {
+         originBank.getMetrics().recordRejection();
+         originBank.rejected(origin, amount);
+         originBank.afterChange();
+         return false;
+      }
+      Cycle cycle = enter();
+      try {
+         cycle.pending.computeIfAbsent(new BankPair(originBank, destinationBank), p -> new Pending(originBank, destinationBank))
+               .add(new Transfer(origin, destination, amount));
+      } finally {
+         cycle.submits.decrement();
+      }
+      return true;
+   }
+
+   /**
+    * Settles everything submitted so far, one bank pair after the other. Submits go on meanwhile, for the next cycle.
+    * A credit that can't be applied (e.g. the balance would overflow) stays in transit for the next cycle; so do the
+    * pairs not settled yet if a listener throws.
+    */
+   public SettlementReport settle() {
+      long start = System.nanoTime();
+      Cycle ended = current.getAndSet(new Cycle());
+      while (ended.submits.sum() != 0) {
+         Thread.yield();
+      }
+      Map<BankPair, Pending> due = ended.pending;
+
+      int pairs = 0;
+      long transfers = 0;
+      int debits = 0;
+      int credits = 0;
+      int failedCredits = 0;
+      long refusedTransfers = 0;
+      Map<String, BigDecimal> netPositions = new TreeMap<>();
+      try {
+         for (Pending owed : due.values()) {
+            long owedTransfers = owed.transfers.sum();
+            if (owedTransfers == 0) {
+               continue;
+            }
+            pairs++;
+            transfers += owedTransfers;
+            Settled settled = owed.settle();
+            debits += settled.debits();
+            credits += settled.credits();
+            failedCredits += settled.failedCredits();
+            refusedTransfers += settled.refusedTransfers();
+            owed.report(netPositions, settled.firstOwedSecond());
+         }
+      } finally {
+         restore(due);
+      }
+      return new SettlementReport(pairs, transfers, debits, credits, failedCredits, refusedTransfers, netPositions, System.nanoTime() - start);
+   }
+
+   // Puts what was not settled back for the next cycle: credits that could not be applied (each one counted as one
+   // pending transfer), and the transfers of the pairs left when a listener threw
+   private void restore(final Map<BankPair, Pending> due) {
+      Cycle cycle = enter();
+      try {
+         due.forEach((pair, owed) -> {
+            if (owed.queued.isEmpty() && owed.carried.isEmpty()) {
+               return;
+            }
+            Pending next = cycle.pending.computeIfAbsent(pair, p -> new Pending(owed.first, owed.second));
+            next.queued.addAll(owed.queued);
+            owed.carried.forEach((account, amount) -> next.carried.merge(account, amount, BigDecimal::add));
+            // A settled pair only has its carried credits left
+            next.transfers.add(owed.queued.isEmpty() ? owed.carried.size() : owed.transfers.sum());
+         });
+      } finally {
+         cycle.submits.decrement();
+      }
+   }
+
+   // The current cycle, counted as being added to until its submits are decremented
+   private Cycle enter() {
+      while (true) {
+         Cycle cycle = current.get();
+         cycle.submits.increment();
+         if (cycle == current.get()) {
+            return cycle;
+         }
+         // Swapped meanwhile: it is being settled
+         cycle.submits.decrement();
+      }
+   }
+
+   /**
+    * Runs {@link #settle()} every period, on a background thread, until closed. A cycle that throws is kept in
+    * {@link #getLastFailure()} and the next one runs as planned. Closing settles one last time.
+    */
+   public Closeable startSettling(final Duration period) {
+      ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+         Thread thread = new Thread(r, "settlement");
+         thread.setDaemon(true);
+         return thread;
+      });
+      long interval = period.toNanos();
+      // An exception out of the task would cancel every later run
+      scheduler.scheduleAtFixedRate(() -> {
+         try {
+            settle();
+         } catch (RuntimeException e) {
+            lastFailure = e;
+         }
+      }, interval, interval, TimeUnit.NANOSECONDS);
+      return () -> {
+         scheduler.shutdown();
+         try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+         settle();
+      };
+   }
+
+   /**
+    * The last exception thrown by a cycle run by {@link #startSettling(Duration)}, or null.
+    */
+   public RuntimeException getLastFailure() {
+      return lastFailure;
+   }
+
+   /**
+    * Money debited from the origins and not credited yet: the credits that could not be applied.
+    */
+   public BigDecimal getInTransit() {
+      return current.get().pending.values().stream().flatMap(p -> p.carried.values().stream()).reduce(BigDecimal.ZERO, BigDecimal::add);
+   }
+
+   public long getPendingTransfers() {
+      return current.get().pending.values().stream().mapToLong(p -> p.transfers.sum()).sum();
+   }
+
+   private static final class Cycle {
+
+      private final Map<BankPair, Pending> pending = new ConcurrentHashMap<>();
+
+      // Submits adding to this cycle right now
+      private final LongAdder submits = new LongAdder();
+   }
+
+   private record Settled(int debits, int credits, int failedCredits, long refusedTransfers, BigDecimal firstOwedSecond) {
+   }
+
+   // Everything submitted between two banks in one cycle; first and second are in the order of the first submit of the pair
+   private static final class Pending {
+
+      private static final Comparator<String> NAMES = Comparator.nullsFirst(Comparator.naturalOrder());
+
+      private final Bank first;
+
+      private final Bank second;
+
+      private final Queue<Transfer> queued = new ConcurrentLinkedQueue<>();
+
+      // Credits already paid by their origins that could not be applied yet
+      private final Map<Account, BigDecimal> carried = new ConcurrentHashMap<>();
+
+      private final LongAdder transfers = new LongAdder();
+
+      Pending(final Bank first, final Bank second) {
+         this.first = first;
+         this.second = second;
+      }
+
+      void add(final Transfer transfer) {
+         queued.add(transfer);
+         transfers.increment();
+      }
+
+      /**
+       * Applies every net of the pair under one acquisition of the locks of its accounts: the net debits all or none (an
+       * origin that can't pay has its transfers refused, and the nets are worked out again without them), then the net
+       * credits. Listeners are notified once everything is applied.
+       */
+      Settled settle() {
+         Set<Account> refused = Collections.newSetFromMap(new IdentityHashMap<>());
+         Map<Account, BigDecimal> nets = nets(refused);
+         int[] stripes = AccountLocks.stripesOf(nets.keySet());
+         List<Map.Entry<Account, BigDecimal>> applied = new ArrayList<>(nets.size());
+         int failedCredits = 0;
+         AccountLocks.lockAll(stripes);
+         try {
+            Account unpaid;
+            while ((unpaid = debit(nets)) != null) {
+               refused.add(unpaid);
+               nets = nets(refused);
+            }
+            carried.clear();
+            for (Map.Entry<Account, BigDecimal> net : nets.entrySet()) {
+               if (net.getValue().signum() < 0) {
+                  applied.add(net);
+               } else if (net.getValue().signum() > 0) {
+                  try {
+                     net.getKey().applyCredit(net.getValue());
+                     applied.add(net);
+                  } catch (ArithmeticException e) {
+                     carried.put(net.getKey(), net.getValue());
+                     failedCredits++;
+                  }
+               }
+            }
+            BigDecimal firstOwedSecond = BigDecimal.ZERO;
+            Map<Account, BigDecimal> refusedTotals = new IdentityHashMap<>();
+            long refusedTransfers = 0;
+            for (Transfer transfer : queued) {
+               if (refused.contains(transfer.getOrigin())) {
+                  refusedTotals.merge(transfer.getOrigin(), transfer.getAmount(), BigDecimal::add);
+                  refusedTransfers++;
+               } else if (transfer.getOrigin().getBank() == first) {
+                  firstOwedSecond = firstOwedSecond.add(transfer.getAmount());
+               } else {
+                  firstOwedSecond = firstOwedSecond.subtract(transfer.getAmount());
+               }
+            }
+            // Settled: whatever a listener does now, it must not be settled again
+            queued.clear();
+            notify(refusedTotals, applied);
+            int debits = (int) applied.stream().filter(net -> net.getValue().signum() < 0).count();
+            return new Settled(debits, applied.size() - debits, failedCredits, refusedTransfers, firstOwedSecond);
+         } finally {
+            AccountLocks.unlockAll(stripes);
+            first.afterChange();
+            second.afterChange();
+         }
+      }
+
+      // Credits positive, debits negative, carried credits included, the transfers of refused origins left out
+      private Map<Account, BigDecimal> nets(final Set<Account> refused) {
+         Map<Account, BigDecimal> nets = new HashMap<>(carried);
+         for (Transfer transfer : queued) {
+            if (!refused.contains(transfer.getOrigin())) {
+               nets.merge(transfer.getOrigin(), transfer.getAmount().negate(), BigDecimal::add);
+               nets.merge(transfer.getDestination(), transfer.getAmount(), BigDecimal::add);
+            }
+         }
+         return nets;
+      }
+
+      // Applies every net debit, or none: returns the first account that can't pay, once the others got their money back
+      private static Account debit(final Map<Account, BigDecimal> nets) {
+         List<Map.Entry<Account, BigDecimal>> debited = new ArrayList<>();
+         try {
+            for (Map.Entry<Account, BigDecimal> net : nets.entrySet()) {
+               if (net.getValue().signum() >= 0) {
+                  continue;
+               }
+               if (!net.getKey().tryApplyDebit(net.getValue().negate())) {
+                  undo(debited);
+                  return net.getKey();
+               }
+               debited.add(net);
+            }
+            return null;
+         } catch (RuntimeException e) {
+            undo(debited);
+            throw e;
+         }
+      }
+
+      // Same amounts, same conversions as the debits: giving them back can't fail
+      private static void undo(final List<Map.Entry<Account, BigDecimal>> debited) {
+         debited.forEach(net -> net.getKey().applyCredit(net.getValue().negate()));
+      }
+
+      private static void notify(final Map<Account, BigDecimal> refused, final List<Map.Entry<Account, BigDecimal>> applied) {
+         refused.forEach((origin, total) -> {
+            origin.getBank().getMetrics().recordRejection();
+            origin.getBank().rejected(origin, total);
+         });
+         for (Map.Entry<Account, BigDecimal> net : applied) {
+            Account account = net.getKey();
+            if (net.getValue().signum() < 0) {
+               account.getBank().getMetrics().recordDebit();
+               account.getBank().debited(account, net.getValue().negate());
+            } else {
+               account.getBank().getMetrics().recordCredit();
+               account.getBank().credited(account, net.getValue());
+            }
+         }
+      }
+
+      // Reported with the names in order; pairs of banks with the same names are added up
+      void report(final Map<String, BigDecimal> netPositions, final BigDecimal firstOwedSecond) {
+         if (NAMES.compare(first.getName(), second.getName()) <= 0) {
+            netPositions.merge(first.getName() + " -> " + second.getName(), firstOwedSecond, BigDecimal::add);
+         } else {
+            netPositions.merge(second.getName() + " -> " + first.getName(), firstOwedSecond.negate(), BigDecimal::add);
+         }
+      }
+   }
+
+   // Banks by identity (their names can be missing, repeated or changed), unordered: A -> B and B -> A are the same
+   // pair, so they are netted together
+   private record BankPair(Bank one, Bank other) {
+
+      @Override
+      public boolean equals(final Object o) {
+         return o instanceof BankPair pair && (one == pair.one && other == pair.other || one == pair.other && other == pair.one);
+      }
+
+      @Override
+      public int hashCode() {
+         return System.identityHashCode(one) + System.identityHashCode(other);
+      }
+   }
+}
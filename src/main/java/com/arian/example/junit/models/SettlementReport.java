@@ -0,0 +1,38 @@
+package com.arian.example.junit.models;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import lombok.Value;
+
+/**
+ * What one {@link SettlementEngine#settle()} cycle did.
+ */
+@Value
+public class SettlementReport {
+
+   // Bank pairs settled, one locked operation each
+   int pairs;
+
+   // Cross-bank transfers submitted since the previous cycle (and credits carried from it)
+   long transfers;
+
+   // Account debits applied: one per account that paid more than it received, however many transfers it made
+   int debits;
+
+   // Account credits applied: one per account that received more than it paid, however many transfers it received
+   int credits;
+
+   // Credits that could not be applied (e.g. the balance would overflow): still in transit, retried next cycle
+   int failedCredits;
+
+   // Transfers refused when settling: their origin could no longer pay its net debit (money taken out of it meanwhile)
+   long refusedTransfers;
+
+   // Per pair ("FIRST BANK -> SECOND BANK", names in order): what the first owed the second for the transfers settled
+   // (negative: the other way).
+   // Pairs of banks with the same names are added up
+   Map<String, BigDecimal> netPositions;
+
+   long elapsedNanos;
+}
@@ -0,0 +1,89 @@
+package com.arian.example.junit.models;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+
+/**
+ * Account for credit-heavy destinations (fee collectors, merchant pools): credits are added to a {@link LongAdder},
+ * which spreads concurrent updates over several cells instead of fighting for a single field. The cells are folded
+ * (summed) only when an exact value is needed: by {@link #getBalance()} and by debits.
+ * <p>
+ * Balances are kept as minor units of a {@link MoneyScale}. Debits are serialized with a lock, but they never block
+ * credits. As credits only add money, a debit checked against the folded sum can't overdraw the account, even with
+ * credits still arriving.
+ */
+public class StripedAccount extends Account {
+
+   @Getter
+   private final MoneyScale moneyScale;
+
+   private final LongAdder credits = new LongAdder();
+
+   // Opening balance minus every debit, only written while holding the debit lock
+   private volatile long settled;
+
+   public StripedAccount(final String person, final BigDecimal balance) {
+      this(person, balance, MoneyScale.MICROS);
+   }
+
+   public StripedAccount(final String person, final BigDecimal balance, final MoneyScale moneyScale) {
+      super(person, null);
+      this.moneyScale = moneyScale;
+      this.settled = moneyScale.toUnits(balance);
+   }
+
+   @Override
+   public BigDecimal applied(final BigDecimal monto) {
+      return moneyScale.round(monto);
+   }
+
+   @Override
+   protected void applyCredit(final BigDecimal monto) {
+      credits.add(moneyScale.toUnits(monto));
+   }
+
+   @Override
+   protected synchronized boolean tryApplyDebit(final BigDecimal monto) {
+      long amount = moneyScale.toUnits(monto);
+      if (amount > Math.addExact(settled, credits.sum())) {
+         return false;
+      }
+      settled = Math.subtractExact(settled, amount);
+      return true;
+   }
+
+   @Override
+   boolean accrue(final InterestRate rate) {
+      long interest = rate.onUnits(getUnits());
+      if (interest > 0) {
+         credits.add(interest);
+      } else if (interest < 0 && !tryApplyDebit(moneyScale.toBigDecimal(-interest))) {
+         return false;
+      }
+      Bank bank = getBank();
+      if (interest != 0 && bank != null && bank.hasListeners()) {
+         accrued(moneyScale.toBigDecimal(interest));
+      }
+      return true;
+   }
+
+   @Override
+   public BigDecimal getBalance() {
+      return moneyScale.toBigDecimal(getUnits());
+   }
+
+   public long getUnits() {
+      return settled + credits.sum();
+   }
+
+   /**
+    * Not meant to be called while credits are arriving: a concurrent credit may be lost.
+    */
+   @Override
+   public synchronized void setBalance(final BigDecimal balance) {
+      settled = moneyScale.toUnits(balance);
+      credits.reset();
+   }
+}
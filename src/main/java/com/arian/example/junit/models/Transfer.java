@@ -0,0 +1,18 @@
+package com.arian.example.junit.models;
+
+import java.math.BigDecimal;
+
+import lombok.Value;
+
+/**
+ * One transfer of a batch, see {@link Bank#transferAll(java.util.List)}.
+ */
+@Value
+public class Transfer {
+
+   Account origin;
+
+   Account destination;
+
+   BigDecimal amount;
+}
@@ -0,0 +1,207 @@
+package com.arian.example.junit.service;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+
+/**
+ * Asynchronous front of {@link Bank#transfer}: each request goes to the mailbox of its origin account and the mailbox is
+ * drained on a virtual thread, so transfers debiting the same account are applied one at a time, in the order they were
+ * submitted, and hundreds of thousands of in-flight transfers don't need a platform thread each.
+ * <p>
+ * Mailboxes are bounded: when the mailbox of an account is full, the returned future fails right away with a
+ * {@link RejectedExecutionException} (backpressure), instead of queueing without limit. So do transfers submitted after
+ * {@link #close()}. A mailbox is dropped as soon as it is empty, so idle accounts cost nothing.
+ */
+public class TransferService implements AutoCloseable {
+
+   private final Bank bank;
+
+   private final int mailboxCapacity;
+
+   private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+   // Keyed by the account itself: its hash code is cheap and stable (id and holder)
+   private final Map<Account, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+   private final AtomicLong inFlight = new AtomicLong();
+
+   private final LongAdder rejected = new LongAdder();
+
+   public TransferService(final Bank bank, final int mailboxCapacity) {
+      this.bank = bank;
+      this.mailboxCapacity = mailboxCapacity;
+   }
+
+   /**
+    * @return a future completed once the transfer is applied, or failed with the exception of {@link Bank#transfer}
+    * (e.g. InsufficientFundsException) or with RejectedExecutionException when the origin's mailbox is full
+    */
+   public CompletableFuture<Void> transfer(final Account origin, final Account destination, final BigDecimal amount) {
+      CompletableFuture<Void> result = new CompletableFuture<>();
+      if (executor.isShutdown()) {
+         rejected.increment();
+         result.completeExceptionally(new RejectedExecutionException("The transfer service is closed"));
+         return result;
+      }
+      PendingTransfer task = new PendingTransfer(origin, destination, amount, result);
+      boolean[] accepted = new boolean[1];
+      // Enqueued inside compute(), so an empty mailbox is never dropped while a transfer is being added to it
+      Mailbox mailbox = mailboxes.compute(origin, (account, current) -> {
+         Mailbox box = current == null ? new Mailbox(account) : current;
+         accepted[0] = box.offer(task);
+         return box;
+      });
+      if (accepted[0]) {
+         mailbox.scheduleDrain();
+      } else {
+         rejected.increment();
+         result.completeExceptionally(new RejectedExecutionException("Too many pending transfers from account " + origin.getId()));
+      }
+      return result;
+   }
+
+   /**
+    * Transfers waiting (or running) in the mailbox of the account.
+    */
+   public int getQueueDepth(final Account account) {
+      Mailbox mailbox = mailboxes.get(account);
+      return mailbox == null ? 0 : mailbox.size.get();
+   }
+
+   /**
+    * Transfers waiting (or running) in all the mailboxes.
+    */
+   public long getInFlight() {
+      return inFlight.get();
+   }
+
+   public long getRejected() {
+      return rejected.sum();
+   }
+
+   // Mailboxes not dropped yet, for the tests
+   int getMailboxCount() {
+      return mailboxes.size();
+   }
+
+   /**
+    * Stops accepting transfers and waits (up to a minute) for the queued ones to be applied. If interrupted, it stops
+    * waiting and keeps the interrupt flag set.
+    *
+    * @throws IllegalStateException if transfers are still running after a minute (they go on in the background)
+    */
+   @Override
+   public void close() {
+      executor.shutdown();
+      try {
+         if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Transfers still running after closing the service: " + inFlight.get());
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   private record PendingTransfer(Account origin, Account destination, BigDecimal amount, CompletableFuture<Void> result) {
+   }
+
+   private final class Mailbox {
+
+      private final Account account;
+
+      private final Queue<PendingTransfer> tasks = new ConcurrentLinkedQueue<>();
+
+      private final AtomicInteger size = new AtomicInteger();
+
+      // At most one virtual thread drains a mailbox at a time
+      private final AtomicBoolean draining = new AtomicBoolean();
+
+      Mailbox(final Account account) {
+         this.account = account;
+      }
+
+      // Only called inside mailboxes.compute(), see retire()
+      boolean offer(final PendingTransfer task) {
+         if (size.incrementAndGet() > mailboxCapacity) {
+            size.decrementAndGet();
+            return false;
+         }
+         inFlight.incrementAndGet();
+         tasks.add(task);
+         return true;
+      }
+
+      void scheduleDrain() {
+         if (draining.compareAndSet(false, true)) {
+            try {
+               executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+               abandon(e);
+            }
+         }
+      }
+
+      // The service was closed meanwhile: these transfers will never run, fail them instead of leaving them pending
+      private void abandon(final RejectedExecutionException cause) {
+         PendingTransfer task;
+         while ((task = tasks.poll()) != null) {
+            size.decrementAndGet();
+            inFlight.decrementAndGet();
+            rejected.increment();
+            task.result().completeExceptionally(cause);
+         }
+         released();
+      }
+
+      private void drain() {
+         PendingTransfer task;
+         while ((task = tasks.poll()) != null) {
+            RuntimeException failure = null;
+            try {
+               bank.transfer(task.origin(), task.destination(), task.amount());
+            } catch (RuntimeException e) {
+               failure = e;
+            }
+            // Counted out before completing, so whoever waits on the future sees the metrics up to date
+            size.decrementAndGet();
+            inFlight.decrementAndGet();
+            if (failure == null) {
+               task.result().complete(null);
+            } else {
+               task.result().completeExceptionally(failure);
+            }
+         }
+         released();
+      }
+
+      private void released() {
+         draining.set(false);
+         // A task may have been added after the last poll, but before draining was released
+         if (!tasks.isEmpty()) {
+            scheduleDrain();
+         } else {
+            retire();
+         }
+      }
+
+      // Dropped only if empty: offers are counted in size inside compute() too, so none can be lost in a dropped mailbox
+      private void retire() {
+         mailboxes.computeIfPresent(account, (key, current) -> current == this && size.get() == 0 ? null : current);
+      }
+   }
+}
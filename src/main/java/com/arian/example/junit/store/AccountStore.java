@@ -0,0 +1,74 @@
+package com.arian.example.junit.store;
+
+import java.math.BigDecimal;
+
+import com.arian.example.junit.exceptions.InsufficientFundsException;
+import com.arian.example.junit.models.MoneyScale;
+
+/**
+ * Accounts stored by slot (0, 1, 2...) instead of as {@link com.arian.example.junit.models.Account} objects, for banks
+ * too big to be a list of objects. Balances are minor units of a {@link MoneyScale}, with the same rules as
+ * {@link com.arian.example.junit.models.LedgerAccount}: a debit never overdraws an account, a transfer is applied
+ * completely or not at all.
+ */
+public interface AccountStore {
+
+   /**
+    * Opens a new account and returns its slot. The holder is upper-cased like in Account.
+    */
+   int open(String holder, long units);
+
+   int size();
+
+   String getHolder(int slot);
+
+   long getUnits(int slot);
+
+   MoneyScale getMoneyScale();
+
+   default BigDecimal getBalance(final int slot) {
+      return getMoneyScale().toBigDecimal(getUnits(slot));
+   }
+
+   /**
+    * @return false, leaving the balance untouched, if the balance is lower than the amount
+    */
+   boolean tryDebit(int slot, long units);
+
+   default void debit(final int slot, final long units) {
+      if (!tryDebit(slot, units)) {
+         throw new InsufficientFundsException("Insufficient funds or money!");
+      }
+   }
+
+   /**
+    * @throws ArithmeticException if the balance would overflow
+    */
+   void credit(int slot, long units);
+
+   boolean tryTransfer(int origin, int destination, long units);
+
+   default void transfer(final int origin, final int destination, final long units) {
+      if (!tryTransfer(origin, destination, units)) {
+         throw new InsufficientFundsException("Insufficient funds or money!");
+      }
+   }
+
+   /**
+    * The sum of every balance, as of one instant (transfers are paused during the scan).
+    */
+   long sumUnits();
+
+   /**
+    * Adds {@code balance * rate} to every balance, rounded with the rounding mode of the scale (the rate itself is used
+    * exactly). Negative balances are charged the same rate. All or nothing.
+    *
+    * @throws ArithmeticException if any balance would overflow; then no balance is changed
+    */
+   void applyInterest(BigDecimal rate);
+
+   /**
+    * The slots of the accounts with a negative balance (only possible if they were opened like that).
+    */
+   int[] findOverdrawn();
+}
@@ -0,0 +1,99 @@
+package com.arian.example.junit.store;
+
+import java.util.Arrays;
+
+import com.arian.example.junit.models.InterestRate;
+import com.arian.example.junit.models.MoneyScale;
+
+/**
+ * Struct-of-arrays store: slot {@code i} is {@code balances[i]} and {@code holderIds[i]}, nothing else. A scan over
+ * every balance (sum, interest, overdrawn accounts) walks one contiguous long[] instead of chasing Account, BigDecimal
+ * and String pointers across the heap, and the JIT can unroll and vectorize it.
+ */
+public class ColumnarAccountStore extends StripedAccountStore {
+
+   // Replaced (bigger) only while every stripe is locked
+   private long[] balances;
+
+   private int[] holderIds;
+
+   public ColumnarAccountStore(final MoneyScale moneyScale) {
+      this(moneyScale, 1024);
+   }
+
+   public ColumnarAccountStore(final MoneyScale moneyScale, final int initialCapacity) {
+      super(moneyScale);
+      this.balances = new long[Math.max(initialCapacity, 16)];
+      this.holderIds = new int[balances.length];
+   }
+
+   @Override
+   int capacity() {
+      return balances.length;
+   }
+
+   @Override
+   void grow() {
+      balances = Arrays.copyOf(balances, balances.length * 2);
+      holderIds = Arrays.copyOf(holderIds, holderIds.length * 2);
+   }
+
+   @Override
+   long unitsAt(final int slot) {
+      return balances[slot];
+   }
+
+   @Override
+   void setUnitsAt(final int slot, final long units) {
+      balances[slot] = units;
+   }
+
+   @Override
+   int holderIdAt(final int slot) {
+      return holderIds[slot];
+   }
+
+   @Override
+   void setHolderIdAt(final int slot, final int holderId) {
+      holderIds[slot] = holderId;
+   }
+
+   @Override
+   long sum(final int count) {
+      long[] values = balances;
+      long sum = 0;
+      for (int i = 0; i < count; i++) {
+         sum += values[i];
+      }
+      return sum;
+   }
+
+   // Written to a new column, swapped in only once every balance is computed: an overflow leaves the old one untouched
+   @Override
+   void addInterest(final int count, final InterestRate rate) {
+      long[] values = balances;
+      long[] updated = new long[values.length];
+      for (int i = 0; i < count; i++) {
+         updated[i] = withInterest(values[i], rate);
+      }
+      balances = updated;
+   }
+
+   @Override
+   int[] overdrawn(final int count) {
+      long[] values = balances;
+      int found = 0;
+      for (int i = 0; i < count; i++) {
+         if (values[i] < 0) {
+            found++;
+         }
+      }
+      int[] overdrawn = new int[found];
+      for (int i = 0, j = 0; j < found; i++) {
+         if (values[i] < 0) {
+            overdrawn[j++] = i;
+         }
+      }
+      return overdrawn;
+   }
+}
@@ -0,0 +1,40 @@
+package com.arian.example.junit.store;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.arian.example.junit.models.HolderNames;
+
+/**
+ * Holder names interned as ints: a store keeps one int per account and one String per DISTINCT holder, instead of one
+ * String per account. Ids are dense (0, 1, 2...) in order of first use.
+ */
+final class HolderTable {
+
+   private final Map<String, Integer> ids = new HashMap<>();
+
+   private String[] names = new String[16];
+
+   synchronized int idOf(final String holder) {
+      String name = HolderNames.canonical(holder);
+      Integer id = ids.get(name);
+      if (id == null) {
+         id = ids.size();
+         if (id == names.length) {
+            names = Arrays.copyOf(names, names.length * 2);
+         }
+         names[id] = name;
+         ids.put(name, id);
+      }
+      return id;
+   }
+
+   synchronized String nameOf(final int id) {
+      return names[id];
+   }
+
+   synchronized int size() {
+      return ids.size();
+   }
+}
@@ -0,0 +1,136 @@
+package com.arian.example.junit.store;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import com.arian.example.junit.models.InterestRate;
+import com.arian.example.junit.models.MoneyScale;
+
+/**
+ * Store for banks of hundreds of millions of accounts: records live outside the Java heap, in direct ByteBuffer
+ * segments, so the garbage collector never sees them. The heap only holds the segment array and one String per
+ * DISTINCT holder, whatever the number of accounts. Growing adds a segment, nothing is copied.
+ * <p>
+ * Fixed-width records of {@value #RECORD_SIZE} bytes: balance (long), holder id (int), 4 reserved bytes.
+ * The memory of the segments is released when the store is garbage-collected.
+ */
+public class OffHeapAccountStore extends StripedAccountStore {
+
+   static final int RECORD_SIZE = 16;
+
+   private static final int BALANCE = 0;
+
+   private static final int HOLDER_ID = 8;
+
+   // 2^20 records = 16 MB per segment
+   private static final int DEFAULT_SEGMENT_BITS = 20;
+
+   private final int segmentBits;
+
+   private final int segmentMask;
+
+   // Replaced (one more segment) only while every stripe is locked
+   private ByteBuffer[] segments = new ByteBuffer[0];
+
+   public OffHeapAccountStore(final MoneyScale moneyScale) {
+      this(moneyScale, DEFAULT_SEGMENT_BITS);
+   }
+
+   OffHeapAccountStore(final MoneyScale moneyScale, final int segmentBits) {
+      super(moneyScale);
+      this.segmentBits = segmentBits;
+      this.segmentMask = (1 << segmentBits) - 1;
+   }
+
+   @Override
+   int capacity() {
+      return segments.length << segmentBits;
+   }
+
+   @Override
+   void grow() {
+      ByteBuffer segment = ByteBuffer.allocateDirect(RECORD_SIZE << segmentBits).order(ByteOrder.nativeOrder());
+      segments = Arrays.copyOf(segments, segments.length + 1);
+      segments[segments.length - 1] = segment;
+   }
+
+   private ByteBuffer segmentOf(final int slot) {
+      return segments[slot >>> segmentBits];
+   }
+
+   private int offsetOf(final int slot) {
+      return (slot & segmentMask) * RECORD_SIZE;
+   }
+
+   @Override
+   long unitsAt(final int slot) {
+      return segmentOf(slot).getLong(offsetOf(slot) + BALANCE);
+   }
+
+   @Override
+   void setUnitsAt(final int slot, final long units) {
+      segmentOf(slot).putLong(offsetOf(slot) + BALANCE, units);
+   }
+
+   @Override
+   int holderIdAt(final int slot) {
+      return segmentOf(slot).getInt(offsetOf(slot) + HOLDER_ID);
+   }
+
+   @Override
+   void setHolderIdAt(final int slot, final int holderId) {
+      segmentOf(slot).putInt(offsetOf(slot) + HOLDER_ID, holderId);
+   }
+
+   // The bulk loops go segment by segment, so the inner loop is a plain strided scan of one buffer
+
+   @Override
+   long sum(final int count) {
+      long sum = 0;
+      for (int first = 0; first < count; first += segmentMask + 1) {
+         ByteBuffer segment = segmentOf(first);
+         int end = Math.min(count - first, segmentMask + 1) * RECORD_SIZE;
+         for (int offset = BALANCE; offset < end; offset += RECORD_SIZE) {
+            sum += segment.getLong(offset);
+         }
+      }
+      return sum;
+   }
+
+   // Two passes instead of a copy (which would be as big as the store, on the heap): the first one only computes every
+   // new balance, so an overflow throws before anything is written
+   @Override
+   void addInterest(final int count, final InterestRate rate) {
+      interestPass(count, rate, false);
+      interestPass(count, rate, true);
+   }
+
+   private void interestPass(final int count, final InterestRate rate, final boolean write) {
+      for (int first = 0; first < count; first += segmentMask + 1) {
+         ByteBuffer segment = segmentOf(first);
+         int end = Math.min(count - first, segmentMask + 1) * RECORD_SIZE;
+         for (int offset = BALANCE; offset < end; offset += RECORD_SIZE) {
+            long updated = withInterest(segment.getLong(offset), rate);
+            if (write) {
+               segment.putLong(offset, updated);
+            }
+         }
+      }
+   }
+
+   @Override
+   int[] overdrawn(final int count) {
+      int[] found = new int[16];
+      int size = 0;
+      for (int slot = 0; slot < count; slot++) {
+         if (unitsAt(slot) < 0) {
+            if (size == found.length) {
+               found = Arrays.copyOf(found, size * 2);
+            }
+            found[size++] = slot;
+         }
+      }
+      return Arrays.copyOf(found, size);
+   }
+}
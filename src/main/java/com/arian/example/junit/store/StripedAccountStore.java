@@ -0,0 +1,229 @@
+package com.arian.example.junit.store;
+
+import java.math.BigDecimal;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.arian.example.junit.models.InterestRate;
+import com.arian.example.junit.models.MoneyScale;
+
+/**
+ * Locking and rules shared by the stores; subclasses only decide where the records live.
+ * <p>
+ * Single-account operations lock a stripe of slots (always in ascending order, like the account locks of the bank);
+ * bulk operations and growing the storage lock every stripe.
+ */
+abstract class StripedAccountStore implements AccountStore {
+
+   private static final int STRIPES = 256;
+
+   private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+   private final HolderTable holders = new HolderTable();
+
+   private final MoneyScale moneyScale;
+
+   private volatile int size;
+
+   StripedAccountStore(final MoneyScale moneyScale) {
+      this.moneyScale = moneyScale;
+      for (int i = 0; i < STRIPES; i++) {
+         locks[i] = new ReentrantLock();
+      }
+   }
+
+   /**
+    * Number of slots available without growing.
+    */
+   abstract int capacity();
+
+   /**
+    * Makes room for at least one more slot. Called with every stripe locked.
+    */
+   abstract void grow();
+
+   abstract long unitsAt(int slot);
+
+   abstract void setUnitsAt(int slot, long units);
+
+   abstract int holderIdAt(int slot);
+
+   abstract void setHolderIdAt(int slot, int holderId);
+
+   /**
+    * The bulk loops, called with every stripe locked.
+    */
+   abstract long sum(int count);
+
+   // All or nothing: every new balance is computed (and checked for overflow) before any is written
+   abstract void addInterest(int count, InterestRate rate);
+
+   abstract int[] overdrawn(int count);
+
+   @Override
+   public synchronized int open(final String holder, final long units) {
+      int slot = size;
+      int holderId = holders.idOf(holder);
+      if (slot == capacity()) {
+         lockAll();
+         try {
+            grow();
+         } finally {
+            unlockAll();
+         }
+      }
+      ReentrantLock lock = lockOf(slot);
+      lock.lock();
+      try {
+         setUnitsAt(slot, units);
+         setHolderIdAt(slot, holderId);
+      } finally {
+         lock.unlock();
+      }
+      size = slot + 1;
+      return slot;
+   }
+
+   @Override
+   public int size() {
+      return size;
+   }
+
+   @Override
+   public String getHolder(final int slot) {
+      ReentrantLock lock = lockOf(checkSlot(slot));
+      lock.lock();
+      try {
+         return holders.nameOf(holderIdAt(slot));
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   @Override
+   public long getUnits(final int slot) {
+      ReentrantLock lock = lockOf(checkSlot(slot));
+      lock.lock();
+      try {
+         return unitsAt(slot);
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   @Override
+   public MoneyScale getMoneyScale() {
+      return moneyScale;
+   }
+
+   @Override
+   public boolean tryDebit(final int slot, final long units) {
+      ReentrantLock lock = lockOf(checkSlot(slot));
+      lock.lock();
+      try {
+         long balance = unitsAt(slot);
+         if (units > balance) {
+            return false;
+         }
+         setUnitsAt(slot, balance - units);
+         return true;
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   @Override
+   public void credit(final int slot, final long units) {
+      ReentrantLock lock = lockOf(checkSlot(slot));
+      lock.lock();
+      try {
+         setUnitsAt(slot, Math.addExact(unitsAt(slot), units));
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   @Override
+   public boolean tryTransfer(final int origin, final int destination, final long units) {
+      int first = checkSlot(origin) & (STRIPES - 1);
+      int second = checkSlot(destination) & (STRIPES - 1);
+      ReentrantLock low = locks[Math.min(first, second)];
+      ReentrantLock high = locks[Math.max(first, second)];
+      low.lock();
+      high.lock();
+      try {
+         long balance = unitsAt(origin);
+         if (units > balance) {
+            return false;
+         }
+         if (origin != destination) {
+            // Checked before touching the origin: an overflow must leave both balances as they were
+            long credited = Math.addExact(unitsAt(destination), units);
+            setUnitsAt(origin, balance - units);
+            setUnitsAt(destination, credited);
+         }
+         return true;
+      } finally {
+         high.unlock();
+         low.unlock();
+      }
+   }
+
+   @Override
+   public long sumUnits() {
+      lockAll();
+      try {
+         return sum(size);
+      } finally {
+         unlockAll();
+      }
+   }
+
+   @Override
+   public void applyInterest(final BigDecimal rate) {
+      // Exact fixed-point rate, so the loop is long arithmetic only (with a BigDecimal fallback, see InterestRate)
+      InterestRate interestRate = new InterestRate(rate, moneyScale);
+      lockAll();
+      try {
+         addInterest(size, interestRate);
+      } finally {
+         unlockAll();
+      }
+   }
+
+   static long withInterest(final long units, final InterestRate rate) {
+      return Math.addExact(units, rate.onUnits(units));
+   }
+
+   @Override
+   public int[] findOverdrawn() {
+      lockAll();
+      try {
+         return overdrawn(size);
+      } finally {
+         unlockAll();
+      }
+   }
+
+   private int checkSlot(final int slot) {
+      if (slot < 0 || slot >= size) {
+         throw new IndexOutOfBoundsException("No account in slot " + slot);
+      }
+      return slot;
+   }
+
+   private ReentrantLock lockOf(final int slot) {
+      return locks[slot & (STRIPES - 1)];
+   }
+
+   private void lockAll() {
+      for (ReentrantLock lock : locks) {
+         lock.lock();
+      }
+   }
+
+   private void unlockAll() {
+      for (int i = STRIPES - 1; i >= 0; i--) {
+         locks[i].unlock();
+      }
+   }
+}
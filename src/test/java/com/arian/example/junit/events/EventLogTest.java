@@ -0,0 +1,306 @@
+package com.arian.example.junit.events;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.arian.example.junit.exceptions.InsufficientFundsException;
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+import com.arian.example.junit.models.LedgerAccount;
+import com.arian.example.junit.models.MoneyScale;
+import com.arian.example.junit.models.Transfer;
+
+@Tag("events")
+@DisplayName("Testing the EventLog and its projections!")
+class EventLogTest {
+
+   private Bank bank;
+
+   private Account john;
+
+   private Account arian;
+
+   private EventLog log;
+
+   @BeforeEach
+   void setUp() {
+      bank = new Bank();
+      bank.setName("Banco del estado");
+      john = new Account("John Doe", new BigDecimal("2500"));
+      arian = new Account("Arian Doe", new BigDecimal("1500.8989"));
+      bank.addAccount(john);
+      bank.addAccount(arian);
+      log = new EventLog();
+      log.attach(bank);
+   }
+
+   @Test
+   @DisplayName("Every change of the bank is logged in order, rejections included")
+   void testEventsAreOrdered() {
+      bank.transfer(john, arian, new BigDecimal("500"));
+      john.debit(new BigDecimal("0.5"));
+      arian.credit(new BigDecimal("100"));
+      assertFalse(bank.tryTransfer(john, arian, new BigDecimal("10000")));
+      bank.transferAll(List.of(new Transfer(arian, john, new BigDecimal("1")), new Transfer(john, arian, new BigDecimal("2"))));
+
+      List<BankEvent> events = log.getEvents();
+
+      assertAll("Events", () -> assertEquals(8, events.size()),
+            () -> assertEquals(List.of(BankEvent.Type.OPENED, BankEvent.Type.OPENED, BankEvent.Type.TRANSFERRED, BankEvent.Type.DEBITED,
+                  BankEvent.Type.CREDITED, BankEvent.Type.REJECTED, BankEvent.Type.TRANSFERRED, BankEvent.Type.TRANSFERRED),
+                  events.stream().map(BankEvent::getType).toList()),
+            () -> assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L), events.stream().map(BankEvent::getSequence).toList()),
+            () -> assertEquals(new BankEvent(3, BankEvent.Type.TRANSFERRED, new BankEvent.Leg(bank, john.getId(), "JOHN DOE", new BigDecimal("500")),
+                  new BankEvent.Leg(bank, arian.getId(), "ARIAN DOE", new BigDecimal("500"))), events.get(2)),
+            () -> assertEquals(new BankEvent(6, BankEvent.Type.REJECTED, new BankEvent.Leg(bank, john.getId(), "JOHN DOE", new BigDecimal("10000")), null),
+                  events.get(5)));
+   }
+
+   @Test
+   @DisplayName("Events keep what the accounts were when the change was applied, with the amount each account really moved")
+   void testEventsAreSnapshots() {
+      LedgerAccount cata = new LedgerAccount("Cata", BigDecimal.ZERO, MoneyScale.CENTS);
+      bank.addAccount(cata);
+      bank.transfer(john, cata, new BigDecimal("10.255"));
+      john.setPerson("SOMEONE ELSE");
+      john.credit(BigDecimal.ONE);
+
+      BankEvent transfer = log.getEvents().get(3);
+
+      assertAll("Snapshots", () -> assertEquals("JOHN DOE", transfer.getAccount().getHolder()),
+            () -> assertEquals(new BigDecimal("10.255"), transfer.getAccount().getAmount()),
+            () -> assertEquals(new BigDecimal("10.26"), transfer.getCounterparty().getAmount()),
+            () -> assertEquals(cata.getId(), transfer.getCounterparty().getAccountId()),
+            () -> assertSame(bank, transfer.getCounterparty().getBank()));
+   }
+
+   @Test
+   @DisplayName("Only the last events are kept; projections built before still see every event")
+   void testBoundedLog() {
+      EventLog small = new EventLog(4);
+      BankLiabilities liabilities = new BankLiabilities();
+      small.subscribe(liabilities);
+      small.attach(bank);
+      for (int i = 0; i < 8; i++) {
+         bank.transfer(john, arian, BigDecimal.ONE);
+         john.credit(BigDecimal.ONE);
+      }
+
+      assertAll("Bounded", () -> assertEquals(4, small.size()), () -> assertEquals(15, small.getFirstSequence()),
+            () -> assertEquals(18, small.getLastSequence()),
+            () -> assertEquals(List.of(15L, 16L, 17L, 18L), small.getEvents().stream().map(BankEvent::getSequence).toList()),
+            () -> assertEquals(0, bank.getTotalBalance().compareTo(liabilities.getLiabilities(bank))),
+            () -> assertThrows(IllegalStateException.class, () -> small.subscribe(new HolderTotals())),
+            () -> assertThrows(IllegalStateException.class, () -> small.replay(new HolderTotals())));
+   }
+
+   @Nested
+   @DisplayName("Testing the projections!")
+   class ProjectionsTest {
+
+      private HolderTotals holders;
+
+      private BankLiabilities liabilities;
+
+      private OverdraftAttempts overdrafts;
+
+      @BeforeEach
+      void subscribe() {
+         holders = new HolderTotals();
+         liabilities = new BankLiabilities();
+         overdrafts = new OverdraftAttempts();
+         log.subscribe(holders);
+         log.subscribe(liabilities);
+         log.subscribe(overdrafts);
+      }
+
+      @Test
+      @DisplayName("Holder totals follow every account of the holder")
+      void testHolderTotals() {
+         Account johnSavings = new LedgerAccount("john doe", new BigDecimal("100"), MoneyScale.CENTS);
+         bank.addAccount(johnSavings);
+         bank.transfer(john, arian, new BigDecimal("500"));
+         bank.transfer(arian, johnSavings, new BigDecimal("10.25"));
+         johnSavings.debit(new BigDecimal("50"));
+
+         assertAll("Holder totals", () -> assertEquals(0, new BigDecimal("2060.25").compareTo(holders.getTotal("John Doe"))),
+               () -> assertEquals(0, holders.getTotal("John Doe").compareTo(john.getBalance().add(johnSavings.getBalance()))),
+               () -> assertEquals(new BigDecimal("1990.6489"), holders.getTotal("ARIAN DOE")),
+               () -> assertEquals(BigDecimal.ZERO, holders.getTotal("Nobody")));
+      }
+
+      @Test
+      @DisplayName("Transfers between banks move the liability from one bank to the other")
+      void testBankLiabilities() {
+         Bank otherBank = new Bank();
+         otherBank.setName("Banco de Chile");
+         Account pepe = new Account("Pepe", new BigDecimal("1000"));
+         otherBank.addAccount(pepe);
+         log.attach(otherBank);
+
+         bank.transfer(john, pepe, new BigDecimal("300"));
+         otherBank.transfer(pepe, arian, new BigDecimal("0.5"));
+         pepe.credit(new BigDecimal("10"));
+
+         assertAll("Liabilities", () -> assertEquals(0, bank.getTotalBalance().compareTo(liabilities.getLiabilities(bank))),
+               () -> assertEquals(0, otherBank.getTotalBalance().compareTo(liabilities.getLiabilities(otherBank))),
+               () -> assertEquals(new BigDecimal("1309.5"), liabilities.getLiabilities(otherBank)));
+      }
+
+      @Test
+      @DisplayName("Banks are told apart by identity: same names don't mix, renaming doesn't lose the liabilities")
+      void testBanksWithTheSameName() {
+         Bank twin = new Bank();
+         twin.setName(bank.getName());
+         Account pepe = new Account("Pepe", new BigDecimal("1000"));
+         twin.addAccount(pepe);
+         log.attach(twin);
+
+         bank.transfer(john, pepe, new BigDecimal("300"));
+         twin.setName("Banco gemelo");
+
+         assertAll("Twins", () -> assertEquals(new BigDecimal("3700.8989"), liabilities.getLiabilities(bank)),
+               () -> assertEquals(new BigDecimal("1300"), liabilities.getLiabilities(twin)));
+      }
+
+      @Test
+      @DisplayName("Refused debits and transfers are counted, whichever way they are refused")
+      void testOverdraftAttempts() {
+         LedgerAccount cata = new LedgerAccount("Cata", BigDecimal.ZERO, MoneyScale.CENTS);
+         bank.addAccount(cata);
+
+         assertThrows(InsufficientFundsException.class, () -> arian.debit(new BigDecimal("2000")));
+         assertThrows(InsufficientFundsException.class, () -> bank.transfer(arian, john, new BigDecimal("2000")));
+         assertThrows(InsufficientFundsException.class, () -> bank.transferAll(List.of(new Transfer(cata, john, BigDecimal.ONE))));
+         assertFalse(cata.tryDebitUnits(1));
+         john.debit(BigDecimal.ONE);
+
+         Bank otherBank = new Bank();
+         otherBank.addAccount(new Account("Pepe", BigDecimal.ZERO));
+         Account other = new Account(arian.getPerson(), BigDecimal.ZERO);
+         otherBank.addAccount(other);
+
+         assertAll("Overdrafts", () -> assertEquals(4, overdrafts.getTotal()), () -> assertEquals(2, overdrafts.getAttempts(arian)),
+               () -> assertEquals(2, overdrafts.getAttempts(cata)), () -> assertEquals(0, overdrafts.getAttempts(john)),
+               // Same id and holder as arian, in another bank
+               () -> assertEquals(arian.getId(), other.getId()), () -> assertEquals(0, overdrafts.getAttempts(other)));
+      }
+
+      @Test
+      @DisplayName("Replaying the log rebuilds the same projections")
+      void testReplay() {
+         bank.transfer(john, arian, new BigDecimal("500"));
+         arian.tryDebit(new BigDecimal("1000000"));
+         arian.credit(new BigDecimal("0.1011"));
+
+         HolderTotals rebuiltHolders = log.replay(new HolderTotals());
+         BankLiabilities rebuiltLiabilities = log.replay(new BankLiabilities());
+         OverdraftAttempts rebuiltOverdrafts = log.replay(new OverdraftAttempts());
+
+         assertAll("Replay", () -> assertEquals(holders.getTotal("Arian Doe"), rebuiltHolders.getTotal("Arian Doe")),
+               () -> assertEquals(new BigDecimal("2001.0000"), rebuiltHolders.getTotal("Arian Doe")),
+               () -> assertEquals(liabilities.getLiabilities(bank), rebuiltLiabilities.getLiabilities(bank)),
+               () -> assertEquals(1, rebuiltOverdrafts.getTotal()));
+      }
+   }
+
+   @Test
+   @DisplayName("A projection subscribed while transfers run ends up with the same totals as the bank")
+   void testSubscribeWhileRunning() throws Exception {
+      for (int i = 0; i < 20; i++) {
+         bank.addAccount(new Account("Person " + i, new BigDecimal("1000")));
+      }
+      List<Account> accounts = bank.getAccounts();
+      BankLiabilities liabilities = new BankLiabilities();
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+         List<Future<?>> futures = new ArrayList<>();
+         for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+               ThreadLocalRandom random = ThreadLocalRandom.current();
+               for (int i = 0; i < 20_000; i++) {
+                  bank.tryTransfer(accounts.get(random.nextInt(accounts.size())), accounts.get(random.nextInt(accounts.size())),
+                        BigDecimal.valueOf(random.nextInt(1, 300)));
+               }
+            }));
+         }
+         log.subscribe(liabilities);
+         for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+
+      assertAll("Caught up", () -> assertEquals(0, bank.getTotalBalance().compareTo(liabilities.getLiabilities(bank))),
+            () -> assertEquals(0, new BigDecimal("24000.8989").compareTo(liabilities.getLiabilities(bank))));
+   }
+
+   @Test
+   @DisplayName("Concurrent writers going round a small ring: projections get every event once, in sequence order")
+   void testConcurrentWritersOnSmallRing() throws Exception {
+      for (int i = 0; i < 20; i++) {
+         bank.addAccount(new Account("Person " + i, new BigDecimal("1000")));
+      }
+      List<Account> accounts = bank.getAccounts();
+      EventLog small = new EventLog(64);
+      BankLiabilities liabilities = new BankLiabilities();
+      AtomicLong lastSeen = new AtomicLong();
+      AtomicInteger outOfOrder = new AtomicInteger();
+      small.subscribe(event -> {
+         if (event.getSequence() != lastSeen.get() + 1) {
+            outOfOrder.incrementAndGet();
+         }
+         lastSeen.set(event.getSequence());
+      });
+      small.subscribe(liabilities);
+      small.attach(bank);
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+         List<Future<?>> futures = new ArrayList<>();
+         for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+               ThreadLocalRandom random = ThreadLocalRandom.current();
+               for (int i = 0; i < 5_000; i++) {
+                  Account account = accounts.get(random.nextInt(accounts.size()));
+                  if (i % 10 == 0) {
+                     account.credit(BigDecimal.ONE);
+                  } else {
+                     bank.tryTransfer(account, accounts.get(random.nextInt(accounts.size())), BigDecimal.valueOf(random.nextInt(1, 300)));
+                  }
+               }
+            }));
+         }
+         for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+
+      // 22 OPENED, then one event per call
+      assertAll("Every event, in order", () -> assertEquals(0, outOfOrder.get()), () -> assertEquals(22 + 4 * 5_000, lastSeen.get()),
+            () -> assertEquals(lastSeen.get(), small.getLastSequence()), () -> assertEquals(64, small.getEvents().size()),
+            () -> assertEquals(0, bank.getTotalBalance().compareTo(liabilities.getLiabilities(bank))));
+   }
+}
@@ -0,0 +1,186 @@
+package com.arian.example.junit.ledger;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.arian.example.junit.exceptions.InsufficientFundsException;
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+import com.arian.example.junit.models.LedgerAccount;
+import com.arian.example.junit.models.MoneyScale;
+
+@Tag("snapshot")
+@DisplayName("Testing Bank snapshots!")
+class BankSnapshotTest {
+
+   @TempDir
+   Path tempDir;
+
+   @Nested
+   @DisplayName("Testing round trips!")
+   class RoundTripTest {
+
+      @Test
+      @DisplayName("Name, ids, holders and balances survive a round trip")
+      void testRoundTrip() throws IOException {
+         Bank bank = new Bank();
+         bank.setName("Banco del estado");
+         bank.addAccount(new Account("John Doe", new BigDecimal("2500")));
+         bank.addAccount(new Account("Arian Doe", new BigDecimal("1500.8989")));
+         bank.addAccount(new LedgerAccount("Cata", new BigDecimal("1000.12345"), MoneyScale.CENTS));
+         bank.addAccount(new Account("Rich Doe", new BigDecimal("123456789012345678901234567890.12345")));
+         bank.addAccount(new Account("Jos\u00e9 \u00d1and\u00fa", new BigDecimal("-0.01")));
+         Path file = tempDir.resolve("bank.snapshot");
+
+         BankSnapshot.write(bank, file);
+         Bank loaded = BankSnapshot.read(file);
+
+         assertAll("Round trip", () -> assertEquals("Banco del estado", loaded.getName()), () -> assertEquals(5, loaded.getAccounts().size()),
+               () -> assertEquals(describe(bank), describe(loaded)), () -> assertEquals(1, loaded.findAccountsByPerson("john doe").get(0).getId()),
+               () -> assertEquals(5, loaded.findAccountsByPerson("Jos\u00e9 \u00d1and\u00fa").get(0).getId()));
+      }
+
+      @Test
+      @DisplayName("An empty bank without a name survives a round trip")
+      void testEmptyBank() throws IOException {
+         Path file = tempDir.resolve("empty.snapshot");
+
+         BankSnapshot.write(new Bank(), file);
+         Bank loaded = BankSnapshot.read(file);
+
+         assertAll("Empty bank", () -> assertNull(loaded.getName()), () -> assertTrue(loaded.getAccounts().isEmpty()));
+      }
+
+      @Test
+      @DisplayName("Names larger than the write buffer are written too")
+      void testHugeNames() throws IOException {
+         String huge = "X".repeat(3 * 1024 * 1024);
+         Bank bank = new Bank();
+         bank.setName(huge);
+         bank.addAccount(new Account("Arian", new BigDecimal("10")));
+         bank.addAccount(new Account(huge, new BigDecimal("20")));
+         bank.addAccount(new Account("A".repeat(1024 * 1024 - 70), new BigDecimal("30")));
+         bank.addAccount(new Account("John Doe", new BigDecimal("40")));
+         Path file = tempDir.resolve("huge.snapshot");
+
+         BankSnapshot.write(bank, file);
+         Bank loaded = BankSnapshot.read(file);
+
+         assertAll("Huge names", () -> assertEquals(huge, loaded.getName()), () -> assertEquals(describe(bank), describe(loaded)));
+      }
+
+      @Test
+      @DisplayName("A file that is not a snapshot is refused")
+      void testNotASnapshot() throws IOException {
+         Path file = Files.writeString(tempDir.resolve("data.csv"), "100,10,Arian,Arian\n");
+
+         assertThrows(IOException.class, () -> BankSnapshot.read(file));
+      }
+   }
+
+   @Test
+   @DisplayName("A background checkpoint taken during transfers is consistent")
+   void testCheckpointDuringTransfers() throws Exception {
+      Bank bank = new Bank();
+      for (int i = 0; i < 1_000; i++) {
+         bank.addAccount(new Account("Person " + i, new BigDecimal("100")));
+      }
+      List<Account> accounts = bank.getAccounts();
+      AtomicBoolean running = new AtomicBoolean(true);
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      List<Path> checkpoints = new ArrayList<>();
+      try {
+         for (int t = 0; t < 3; t++) {
+            executor.execute(() -> {
+               ThreadLocalRandom random = ThreadLocalRandom.current();
+               while (running.get()) {
+                  try {
+                     bank.transfer(accounts.get(random.nextInt(1_000)), accounts.get(random.nextInt(1_000)), BigDecimal.valueOf(random.nextInt(5_000), 2));
+                  } catch (InsufficientFundsException e) {
+                     // Nothing moved
+                  }
+               }
+            });
+         }
+         for (int i = 0; i < 5; i++) {
+            checkpoints.add(BankSnapshot.checkpoint(bank, tempDir.resolve("checkpoint-" + i), executor).get(1, TimeUnit.MINUTES));
+         }
+      } finally {
+         running.set(false);
+         executor.shutdown();
+         executor.awaitTermination(1, TimeUnit.MINUTES);
+      }
+
+      for (Path checkpoint : checkpoints) {
+         BigDecimal total = BankSnapshot.read(checkpoint).getAccounts().stream().map(Account::getBalance).reduce(BigDecimal.ZERO, BigDecimal::add);
+         assertEquals(0, new BigDecimal("100000").compareTo(total), () -> checkpoint + " is not consistent: " + total);
+      }
+   }
+
+   @Test
+   @DisplayName("A snapshot plus the journal after its position gives the bank of today")
+   void testSnapshotThenJournal() throws Exception {
+      Bank bank = new Bank();
+      bank.setName("Banco del estado");
+      for (int i = 0; i < 100; i++) {
+         bank.addAccount(new Account("Person " + i, new BigDecimal("100")));
+      }
+      List<Account> accounts = bank.getAccounts();
+      Path journalFile = tempDir.resolve("bank.journal");
+      Path snapshot = tempDir.resolve("bank.snapshot");
+      AtomicBoolean running = new AtomicBoolean(true);
+      ExecutorService executor = Executors.newFixedThreadPool(3);
+      try (Journal journal = Journal.open(journalFile, JournalOptions.defaults())) {
+         journal.attach(bank);
+         try {
+            for (int t = 0; t < 2; t++) {
+               executor.execute(() -> {
+                  ThreadLocalRandom random = ThreadLocalRandom.current();
+                  while (running.get()) {
+                     bank.tryTransfer(accounts.get(random.nextInt(100)), accounts.get(random.nextInt(100)), BigDecimal.valueOf(random.nextInt(5_000), 2));
+                  }
+               });
+            }
+            Thread.sleep(50);
+            BankSnapshot.checkpoint(bank, journal, snapshot, executor).get(1, TimeUnit.MINUTES);
+            Thread.sleep(50);
+         } finally {
+            running.set(false);
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+         }
+      }
+
+      long position = BankSnapshot.getJournalPosition(snapshot);
+      Bank recovered = Journal.replay(journalFile, BankSnapshot.read(snapshot), position);
+
+      assertAll("Snapshot and journal", () -> assertTrue(position > 0), () -> assertEquals(describe(bank), describe(recovered)));
+   }
+
+   private static List<String> describe(final Bank bank) {
+      List<String> accounts = new ArrayList<>();
+      bank.getAccounts().forEach(a -> accounts.add(a.getId() + " " + a.getPerson() + " " + a.getBalance().toPlainString()));
+      return accounts;
+   }
+}
@@ -0,0 +1,230 @@
+package com.arian.example.junit.ledger;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.arian.example.junit.exceptions.InsufficientFundsException;
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+import com.arian.example.junit.models.LedgerAccount;
+import com.arian.example.junit.models.MoneyScale;
+import com.arian.example.junit.models.Transfer;
+
+@Tag("journal")
+@DisplayName("Testing the write-ahead Journal!")
+class JournalTest {
+
+   @TempDir
+   Path tempDir;
+
+   private Path file;
+
+   private Bank bank;
+
+   @BeforeEach
+   void setUp() {
+      file = tempDir.resolve("bank.journal");
+      bank = new Bank();
+      bank.setName("Banco del estado");
+      bank.addAccount(new Account("John Doe", new BigDecimal("2500")));
+   }
+
+   @Test
+   @DisplayName("Recovering the journal rebuilds the same bank")
+   void testRecover() throws IOException {
+      Bank otherBank = new Bank();
+      Account external = new Account("Pepe", new BigDecimal("1000"));
+      otherBank.addAccount(external);
+
+      try (Journal journal = Journal.open(file, JournalOptions.defaults())) {
+         journal.attach(bank);
+         Account john = bank.getAccounts().get(0);
+         Account arian = new Account("Arian Doe", new BigDecimal("1500.8989"));
+         LedgerAccount cata = new LedgerAccount("Cata", new BigDecimal("10"), MoneyScale.CENTS);
+         bank.addAccount(arian);
+         bank.addAccount(cata);
+
+         bank.transfer(john, arian, new BigDecimal("500"));
+         john.debit(new BigDecimal("0.5"));
+         arian.credit(new BigDecimal("100.0001"));
+         cata.creditUnits(250);
+         bank.transferAll(List.of(new Transfer(cata, john, new BigDecimal("12.50")), new Transfer(john, cata, new BigDecimal("1"))));
+         bank.transfer(external, john, new BigDecimal("300"));
+         bank.transfer(arian, external, new BigDecimal("0.8989"));
+         try {
+            bank.transfer(cata, arian, new BigDecimal("1000"));
+         } catch (InsufficientFundsException e) {
+            // Rejected, nothing to journal
+         }
+      }
+
+      Bank recovered = Journal.recover(file);
+
+      assertAll("Recovered bank", () -> assertEquals("Banco del estado", recovered.getName()), () -> assertEquals(3, recovered.getAccounts().size()),
+            () -> assertEquals(balances(bank), balances(recovered)), () -> assertEquals("CATA", recovered.findAccount(3).get().getPerson()));
+   }
+
+   @Test
+   @DisplayName("Both banks journal a transfer between them, whichever bank it was called on")
+   void testCrossBankTransfer() throws IOException {
+      Bank otherBank = new Bank();
+      otherBank.setName("Banco de Chile");
+      otherBank.addAccount(new Account("Pepe", new BigDecimal("1000")));
+      Path otherFile = tempDir.resolve("other.journal");
+
+      try (Journal journal = Journal.open(file, JournalOptions.defaults()); Journal otherJournal = Journal.open(otherFile, JournalOptions.defaults())) {
+         journal.attach(bank);
+         otherJournal.attach(otherBank);
+         Account john = bank.getAccounts().get(0);
+         Account pepe = otherBank.getAccounts().get(0);
+         bank.transfer(john, pepe, new BigDecimal("500"));
+         bank.transfer(pepe, john, new BigDecimal("0.25"));
+         otherBank.transferAll(List.of(new Transfer(pepe, john, new BigDecimal("100"))));
+      }
+
+      assertAll("Both sides", () -> assertEquals(List.of("1399.75"), balances(Journal.recover(otherFile))),
+            () -> assertEquals(balances(bank), balances(Journal.recover(file))));
+   }
+
+   @Test
+   @DisplayName("A batch is replayed by its net effect, like it was applied, external legs included")
+   void testBatchWithExternalLegs() throws IOException {
+      Bank otherBank = new Bank();
+      Account pepe = new Account("Pepe", new BigDecimal("1000"));
+      otherBank.addAccount(pepe);
+
+      try (Journal journal = Journal.open(file, JournalOptions.defaults())) {
+         journal.attach(bank);
+         Account john = bank.getAccounts().get(0);
+         Account arian = new Account("Arian Doe", BigDecimal.ZERO);
+         bank.addAccount(arian);
+         // Arian has nothing: paying Pepe first only works because John pays Arian in the same batch
+         bank.transferAll(List.of(new Transfer(arian, pepe, new BigDecimal("50")), new Transfer(john, arian, new BigDecimal("50"))));
+      }
+
+      assertEquals(List.of("2450", "0"), balances(Journal.recover(file)));
+   }
+
+   @Test
+   @DisplayName("Amounts of any size are journaled")
+   void testHugeAmount() throws IOException {
+      BigDecimal huge = new BigDecimal(BigInteger.TEN.pow(1_000), 2);
+
+      try (Journal journal = Journal.open(file, JournalOptions.defaults())) {
+         journal.attach(bank);
+         bank.getAccounts().get(0).credit(huge);
+      }
+
+      assertEquals(huge.add(new BigDecimal("2500")), Journal.recover(file).getAccounts().get(0).getBalance());
+   }
+
+   @Test
+   @DisplayName("A record starting in the last bytes of the buffer is journaled too")
+   void testRecordAtTheEndOfTheBuffer() throws IOException {
+      Account account = bank.getAccounts().get(0);
+
+      // Nothing flushed on its own: the records below fill the 64 KB buffer
+      try (Journal journal = Journal.open(file, new JournalOptions(Integer.MAX_VALUE, Duration.ofHours(1)))) {
+         journal.attach(bank);
+         journal.commit();
+         long start = journal.getPosition();
+         // Credits of 1 take 26 bytes, each extra byte of the amount adds one: the last one ends 4 bytes before the end
+         while (65_532 - (journal.getPosition() - start) > 64) {
+            account.credit(BigDecimal.ONE);
+         }
+         int amountBytes = (int) (65_532 - (journal.getPosition() - start)) - 25;
+         account.credit(new BigDecimal(BigInteger.ONE.shiftLeft(8 * (amountBytes - 1))));
+         account.debit(BigDecimal.ONE);
+      }
+
+      assertEquals(balances(bank), balances(Journal.recover(file)));
+   }
+
+   @Test
+   @DisplayName("A record torn by a crash is dropped, and the journal can be reopened")
+   void testTornRecord() throws IOException {
+      try (Journal journal = Journal.open(file, JournalOptions.defaults())) {
+         journal.attach(bank);
+         bank.getAccounts().get(0).debit(new BigDecimal("100"));
+      }
+      // Half-written record: a length and a checksum, then nothing
+      Files.write(file, new byte[] { 0, 0, 0, 40, 1, 2, 3, 4, 5 }, StandardOpenOption.APPEND);
+
+      Bank recovered = Journal.recover(file);
+      String recoveredBalance = recovered.getAccounts().get(0).getBalance().toPlainString();
+      try (Journal journal = Journal.open(file, JournalOptions.defaults())) {
+         journal.attach(recovered);
+         recovered.getAccounts().get(0).debit(new BigDecimal("50"));
+      }
+
+      assertAll("Torn record", () -> assertEquals("2400", recoveredBalance),
+            () -> assertEquals(List.of("2350"), balances(Journal.recover(file))));
+   }
+
+   @Test
+   @DisplayName("Concurrent transfers are all journaled with group commits")
+   void testGroupCommit() throws Exception {
+      for (int i = 0; i < 9; i++) {
+         bank.addAccount(new Account("Person " + i, new BigDecimal("1000")));
+      }
+      List<Account> accounts = bank.getAccounts();
+
+      try (Journal journal = Journal.open(file, new JournalOptions(64, Duration.ofMillis(5)))) {
+         journal.attach(bank);
+         ExecutorService executor = Executors.newFixedThreadPool(4);
+         try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+               futures.add(executor.submit(() -> {
+                  ThreadLocalRandom random = ThreadLocalRandom.current();
+                  for (int i = 0; i < 2_000; i++) {
+                     try {
+                        bank.transfer(accounts.get(random.nextInt(10)), accounts.get(random.nextInt(10)), BigDecimal.valueOf(random.nextInt(100)));
+                     } catch (InsufficientFundsException e) {
+                        // Not journaled
+                     }
+                     if (i % 500 == 0) {
+                        journal.commit();
+                     }
+                  }
+                  return null;
+               }));
+            }
+            for (Future<?> future : futures) {
+               future.get(1, TimeUnit.MINUTES);
+            }
+         } finally {
+            executor.shutdownNow();
+         }
+      }
+
+      assertEquals(balances(bank), balances(Journal.recover(file)));
+   }
+
+   private static List<String> balances(final Bank bank) {
+      List<String> balances = new ArrayList<>();
+      bank.getAccounts().forEach(a -> balances.add(a.getBalance().stripTrailingZeros().toPlainString()));
+      return balances;
+   }
+}
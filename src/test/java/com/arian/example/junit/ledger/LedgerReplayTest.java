@@ -0,0 +1,90 @@
+package com.arian.example.junit.ledger;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.arian.example.junit.exceptions.InsufficientFundsException;
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+import com.arian.example.junit.models.Transfer;
+
+@Tag("bank")
+@DisplayName("Testing the parallel LedgerReplay!")
+class LedgerReplayTest {
+
+   @Test
+   @DisplayName("A parallel replay ends with the same balances as a sequential one")
+   void testParallelReplayMatchesSequentialReplay() {
+      Bank sequentialBank = newBank(2_000);
+      Bank parallelBank = newBank(2_000);
+      // Accounts trade inside groups of 20, plus a few transfers that join two groups
+      List<Transfer> sequentialTransfers = randomTransfers(sequentialBank, 42);
+      List<Transfer> parallelTransfers = randomTransfers(parallelBank, 42);
+
+      long rejected = 0;
+      for (Transfer transfer : sequentialTransfers) {
+         try {
+            sequentialBank.transfer(transfer.getOrigin(), transfer.getDestination(), transfer.getAmount());
+         } catch (InsufficientFundsException e) {
+            rejected++;
+         }
+      }
+      ReplayReport report = new LedgerReplay(parallelBank).replay(parallelTransfers);
+
+      long expectedRejected = rejected;
+      assertAll("Same result", () -> assertEquals(sequentialTransfers.size(), report.getTransfers()),
+            () -> assertEquals(expectedRejected, report.getRejected()), () -> assertEquals(balances(sequentialBank), balances(parallelBank)));
+   }
+
+   @Test
+   @DisplayName("Transfers that cross partitions merge them")
+   void testCrossPartitionTransfers() {
+      Bank bank = newBank(4);
+      List<Account> accounts = bank.getAccounts();
+      // 0 -> 1 and 2 -> 3 would be independent, but 1 -> 2 links them: 2 can only pay 3 after receiving from 1
+      List<Transfer> transfers = List.of(new Transfer(accounts.get(0), accounts.get(1), new BigDecimal("100")),
+            new Transfer(accounts.get(1), accounts.get(2), new BigDecimal("200")),
+            new Transfer(accounts.get(2), accounts.get(3), new BigDecimal("300")));
+
+      ReplayReport report = new LedgerReplay(bank).replay(transfers);
+
+      assertAll("Cross partition", () -> assertEquals(1, report.getPartitions()), () -> assertEquals(0, report.getRejected()),
+            () -> assertEquals(List.of("0", "0", "0", "400"), balances(bank)));
+   }
+
+   private static Bank newBank(final int accounts) {
+      Bank bank = new Bank();
+      for (int i = 0; i < accounts; i++) {
+         bank.addAccount(new Account("Person " + i, new BigDecimal("100")));
+      }
+      return bank;
+   }
+
+   private static List<Transfer> randomTransfers(final Bank bank, final long seed) {
+      Random random = new Random(seed);
+      List<Account> accounts = bank.getAccounts();
+      List<Transfer> transfers = new ArrayList<>();
+      for (int i = 0; i < 100_000; i++) {
+         int group = random.nextInt(accounts.size() / 20) * 20;
+         Account origin = accounts.get(group + random.nextInt(20));
+         Account destination = i % 1000 == 0 ? accounts.get(random.nextInt(accounts.size())) : accounts.get(group + random.nextInt(20));
+         transfers.add(new Transfer(origin, destination, new BigDecimal(random.nextInt(5000)).movePointLeft(2)));
+      }
+      return transfers;
+   }
+
+   private static List<String> balances(final Bank bank) {
+      List<String> balances = new ArrayList<>();
+      bank.getAccounts().forEach(a -> balances.add(a.getBalance().toPlainString()));
+      return balances;
+   }
+}
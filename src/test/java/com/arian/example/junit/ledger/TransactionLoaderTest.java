@@ -0,0 +1,173 @@
+package com.arian.example.junit.ledger;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+import com.arian.example.junit.models.MoneyScale;
+
+@Tag("loader")
+@DisplayName("Testing the streaming TransactionLoader!")
+class TransactionLoaderTest {
+
+   @TempDir
+   Path tempDir;
+
+   private Bank bank;
+
+   @BeforeEach
+   void setUp() {
+      bank = new Bank();
+      bank.setName("Banco del estado");
+   }
+
+   @Test
+   @DisplayName("Loading data2.csv credits and debits every holder")
+   void testLoadData2() throws IOException, URISyntaxException {
+      Path data2 = Path.of(getClass().getResource("/data2.csv").toURI());
+
+      LoadReport report = new TransactionLoader(bank, MoneyScale.CENTS).load(data2);
+
+      assertAll("data2.csv", () -> assertEquals(7, report.getRecords()), () -> assertEquals(0, report.getMalformed()),
+            () -> assertEquals(0, report.getRejected()), () -> assertEquals(Files.size(data2), report.getBytes()),
+            () -> assertEquals(7, bank.getAccounts().size()), () -> assertEquals("1.00", balanceOf("Brian Daniel")),
+            () -> assertEquals("100.00", balanceOf("Arian")), () -> assertEquals("1.00", balanceOf("Maria")),
+            () -> assertEquals("0.00", balanceOf("Cata")), // 1000.12345 - 1000.12344, both rounded to cents
+            () -> assertTrue(report.getRecordsPerSecond() > 0));
+   }
+
+   @Nested
+   @DisplayName("Testing malformed input!")
+   class MalformedInputTest {
+
+      @Test
+      @DisplayName("Bad lines are counted and skipped, good lines are still loaded")
+      void testMalformedLinesAreSkipped() throws IOException {
+         Path file = write("100,10,Arian,Arian\r\n" // CRLF is fine
+               + "\n" // blank line, ignored
+               + "abc,10,Pepe,Pepe\n" // not a number
+               + "100,10,Pepe\n" // missing holder
+               + "100,10,Pepe,Pepe,Pepe\n" // too many fields
+               + "100,10,Pepe,John\n" // holders don't match
+               + "100,,John,John\n" // empty amount
+               + "10,50,John,John\n" // insufficient funds, the credit stays
+               + "  0.125 , 0.005 ,  arian ,Arian"); // no new line at the end, rounded HALF_EVEN
+
+         LoadReport report = new TransactionLoader(bank, MoneyScale.CENTS).load(file);
+
+         assertAll("Malformed lines", () -> assertEquals(3, report.getRecords()), () -> assertEquals(5, report.getMalformed()),
+               () -> assertEquals(1, report.getRejected()), () -> assertEquals("90.12", balanceOf("Arian")),
+               () -> assertEquals("10.00", balanceOf("John")), () -> assertTrue(bank.findAccountsByPerson("Pepe").isEmpty()),
+               () -> assertEquals(3, report.getFirstMalformedLine()), () -> assertEquals(21, report.getFirstMalformedOffset()));
+      }
+
+      @Test
+      @DisplayName("Signed amounts are malformed: no negative opening balance, no debit turned into a credit")
+      void testSignedAmountsAreRejected() throws IOException {
+         Path file = write("100,10,Arian,Arian\n" //
+               + "-50,0,John,John\n" // would overdraw John
+               + "0,-1000,Arian,Arian\n" // would credit Arian
+               + "+5,1,Arian,Arian\n");
+
+         LoadReport report = new TransactionLoader(bank, MoneyScale.CENTS).load(file);
+
+         assertAll("Signed amounts", () -> assertEquals(1, report.getRecords()), () -> assertEquals(3, report.getMalformed()),
+               () -> assertEquals(2, report.getFirstMalformedLine()), () -> assertEquals(19, report.getFirstMalformedOffset()),
+               () -> assertEquals("90.00", balanceOf("Arian")), () -> assertTrue(bank.findAccountsByPerson("John").isEmpty()));
+      }
+
+      @Test
+      @DisplayName("Exponents and dots without digits are malformed, whatever the number of decimals")
+      void testOnlyPlainDecimalsAreAccepted() throws IOException {
+         Path file = write("100,10,Arian,Arian\n" //
+               + "1E+3,0,Arian,Arian\n" // no dot at all
+               + "0,1.00E+3,Arian,Arian\n" // exponent within the scale
+               + "0,1.0000E+3,Arian,Arian\n" // exponent past the scale, the BigDecimal path
+               + "1.,0,Arian,Arian\n" //
+               + "0,.5,Arian,Arian\n" //
+               + "0,1.0049,Arian,Arian\n"); // past the scale but plain, rounded
+
+         LoadReport report = new TransactionLoader(bank, MoneyScale.CENTS).load(file);
+
+         assertAll("Plain decimals", () -> assertEquals(2, report.getRecords()), () -> assertEquals(5, report.getMalformed()),
+               () -> assertEquals(2, report.getFirstMalformedLine()), () -> assertEquals("89.00", balanceOf("Arian")));
+      }
+
+      @Test
+      @DisplayName("A line longer than the mapped window can't be loaded")
+      void testLineLongerThanWindow() throws IOException {
+         Path file = write("100,10,Arian,Arian\n");
+
+         assertThrows(IOException.class, () -> new TransactionLoader(bank, MoneyScale.CENTS, 8).load(file));
+      }
+   }
+
+   @Test
+   @DisplayName("Lines split across mapped windows give the same result")
+   void testSmallWindows() throws IOException {
+      StringBuilder content = new StringBuilder();
+      for (int i = 0; i < 1_000; i++) {
+         content.append("10.5,0.25,Person ").append(i % 7).append(",person ").append(i % 7).append('\n');
+      }
+      Path file = write(content.toString());
+
+      LoadReport report = new TransactionLoader(bank, MoneyScale.CENTS, 64).load(file);
+
+      assertAll("Small windows", () -> assertEquals(1_000, report.getRecords()), () -> assertEquals(0, report.getMalformed()),
+            () -> assertEquals(7, bank.getAccounts().size()), () -> assertEquals("1465.75", balanceOf("Person 0")));
+   }
+
+   @Test
+   @DisplayName("Holders already in the bank are reused, whatever their account type")
+   void testExistingAccountIsReused() throws IOException {
+      Account arian = new Account("Arian", new BigDecimal("1000.12345"));
+      bank.addAccount(arian);
+
+      new TransactionLoader(bank, MoneyScale.CENTS).load(write("200,100,Arian,Arian\n"));
+
+      assertAll("Existing account", () -> assertEquals(1, bank.getAccounts().size()),
+            () -> assertEquals("1100.12345", arian.getBalance().toPlainString()));
+   }
+
+   @Test
+   @DisplayName("Holders that are not plain ASCII match the registered holder whatever their case")
+   void testNonAsciiHolders() throws IOException {
+      Account jose = new Account("José", new BigDecimal("10.00"));
+      bank.addAccount(jose);
+
+      LoadReport report = new TransactionLoader(bank, MoneyScale.CENTS).load(write("5,1,josé,JOSÉ\n" //
+            + "5,1,JOSÉ,José\n" //
+            + "5,1,álvaro,Álvaro\n" //
+            + "5,1,ÁLVARO,álvaro\n"));
+
+      assertAll("Non ASCII holders", () -> assertEquals(4, report.getRecords()), () -> assertEquals(0, report.getMalformed()),
+            () -> assertEquals(2, bank.getAccounts().size()), () -> assertEquals("18.00", jose.getBalance().toPlainString()),
+            () -> assertEquals("ÁLVARO", bank.findAccountsByPerson("álvaro").get(0).getPerson()),
+            () -> assertEquals("8.00", balanceOf("Álvaro")));
+   }
+
+   private Path write(final String content) throws IOException {
+      return Files.writeString(tempDir.resolve("transactions.csv"), content, StandardCharsets.UTF_8);
+   }
+
+   private String balanceOf(final String person) {
+      return bank.findAccountsByPerson(person).get(0).getBalance().toPlainString();
+   }
+}
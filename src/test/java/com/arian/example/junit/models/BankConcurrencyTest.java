@@ -0,0 +1,213 @@
+package com.arian.example.junit.models;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.parallel.Isolated;
+import org.junit.jupiter.api.Test;
+
+import com.arian.example.junit.exceptions.InsufficientFundsException;
+
+// Isolated: a stress test (8 threads of transfers) whose deadlock timeouts a machine busy with other tests could trip
+@Tag("concurrency")
+@DisplayName("Testing concurrent transfers between accounts!")
+@Isolated
+class BankConcurrencyTest {
+
+   private static final int THREADS = 8;
+
+   private static final int ACCOUNTS = 20;
+
+   private static final int TRANSFERS_PER_THREAD = 20_000;
+
+   private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.50");
+
+   private Bank bank;
+
+   @BeforeEach
+   void setUp() {
+      bank = new Bank();
+      bank.setName("Banco del estado");
+      for (int i = 0; i < ACCOUNTS; i++) {
+         bank.addAccount(new Account("Person " + i, INITIAL_BALANCE));
+      }
+   }
+
+   @Test
+   @DisplayName("Total money is conserved under random concurrent transfers")
+   void testTotalMoneyIsConserved() throws Exception {
+      BigDecimal expectedTotal = total();
+
+      runConcurrently(() -> {
+         ThreadLocalRandom random = ThreadLocalRandom.current();
+         List<Account> accounts = bank.getAccounts();
+         for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+            Account origin = accounts.get(random.nextInt(ACCOUNTS));
+            Account destination = accounts.get(random.nextInt(ACCOUNTS));
+            try {
+               bank.transfer(origin, destination, BigDecimal.valueOf(random.nextInt(1, 300)));
+            } catch (InsufficientFundsException e) {
+               // Rejected transfers must not move any money
+            }
+         }
+      });
+
+      assertAll("Money conservation", () -> assertEquals(0, expectedTotal.compareTo(total()), () -> "Expected " + expectedTotal + " but was " + total()),
+            () -> assertTrue(bank.getAccounts().stream().allMatch(a -> a.getBalance().signum() >= 0), "No account may end up overdrawn"));
+   }
+
+   @Test
+   @DisplayName("Optimistic total and balance reads never see a transfer half applied")
+   void testOptimisticReadsAreConsistent() throws Exception {
+      BigDecimal expectedTotal = bank.getTotalBalance();
+      List<Account> accounts = bank.getAccounts();
+      List<Account> pair = List.of(accounts.get(0), accounts.get(1));
+      BigDecimal pairTotal = INITIAL_BALANCE.add(INITIAL_BALANCE);
+      AtomicInteger inconsistentReads = new AtomicInteger();
+      AtomicInteger reads = new AtomicInteger();
+      AtomicInteger roles = new AtomicInteger();
+
+      runConcurrently(() -> {
+         ThreadLocalRandom random = ThreadLocalRandom.current();
+         boolean reader = roles.getAndIncrement() < 2;
+         for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+            if (reader) {
+               reads.incrementAndGet();
+               if (expectedTotal.compareTo(bank.getTotalBalance()) != 0) {
+                  inconsistentReads.incrementAndGet();
+               }
+               List<BigDecimal> balances = bank.getConsistentBalances(pair);
+               if (pairTotal.compareTo(balances.get(0).add(balances.get(1))) != 0) {
+                  inconsistentReads.incrementAndGet();
+               }
+            } else if (random.nextBoolean()) {
+               // Money only moves inside the pair, or only outside of it: the pair total never changes
+               bank.tryTransfer(pair.get(random.nextInt(2)), pair.get(random.nextInt(2)), BigDecimal.valueOf(random.nextInt(1, 300)));
+            } else {
+               bank.tryTransfer(accounts.get(random.nextInt(2, ACCOUNTS)), accounts.get(random.nextInt(2, ACCOUNTS)),
+                     BigDecimal.valueOf(random.nextInt(1, 300)));
+            }
+         }
+      });
+
+      assertAll("Consistent reads", () -> assertEquals(0, inconsistentReads.get()), () -> assertTrue(reads.get() > 0),
+            () -> assertEquals(0, expectedTotal.compareTo(total())), () -> assertEquals(accounts.get(5).getBalance(), bank.getBalance(accounts.get(5))));
+   }
+
+   @Test
+   @DisplayName("Opposite transfers between the same two accounts never deadlock")
+   void testOppositeTransfersDoNotDeadlock() {
+      Account first = bank.getAccounts().get(0);
+      Account second = bank.getAccounts().get(1);
+
+      assertTimeoutPreemptively(Duration.ofSeconds(30), () -> runConcurrently(() -> {
+         boolean forward = ThreadLocalRandom.current().nextBoolean();
+         for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+            if (forward) {
+               bank.transfer(first, second, BigDecimal.ONE);
+               bank.transfer(second, first, BigDecimal.ONE);
+            } else {
+               bank.transfer(second, first, BigDecimal.ONE);
+               bank.transfer(first, second, BigDecimal.ONE);
+            }
+         }
+      }));
+
+      assertAll("Balances are back to the start", () -> assertEquals("1000.50", first.getBalance().toPlainString()),
+            () -> assertEquals("1000.50", second.getBalance().toPlainString()));
+   }
+
+   @Test
+   @DisplayName("Reading the total of a bank never waits for the transfers of another bank")
+   void testTotalIgnoresOtherBanks() throws Exception {
+      whileAnotherBankTransfers(
+            () -> assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertEquals(new BigDecimal("20010.00"), bank.getTotalBalance())));
+   }
+
+   @Test
+   @DisplayName("Adding a listener pauses the transfers of this bank only")
+   void testAddListenerIgnoresOtherBanks() throws Exception {
+      AtomicInteger initialized = new AtomicInteger();
+
+      whileAnotherBankTransfers(() -> assertTimeoutPreemptively(Duration.ofSeconds(10),
+            () -> bank.addListener(new BankListener() {
+            }, () -> initialized.addAndGet(bank.getAccounts().size()))));
+
+      assertEquals(ACCOUNTS, initialized.get());
+   }
+
+   // Runs the check while a transfer of another bank, on a stripe none of our accounts use, holds its lock
+   private void whileAnotherBankTransfers(final Runnable check) throws InterruptedException {
+      int[] ourStripes = AccountLocks.stripesOf(bank.getAccounts());
+      Account busy = new Account("Busy Doe", BigDecimal.TEN);
+      while (Arrays.binarySearch(ourStripes, AccountLocks.stripeOf(busy)) >= 0) {
+         busy = new Account("Busy Doe", BigDecimal.TEN);
+      }
+      int busyStripe = AccountLocks.stripeOf(busy);
+      CountDownLatch locked = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      // A transfer of another bank that never ends: its stripe stays locked (odd version)
+      Thread other = new Thread(() -> {
+         AccountLocks.lock(busyStripe, busyStripe);
+         try {
+            locked.countDown();
+            release.await();
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         } finally {
+            AccountLocks.unlock(busyStripe, busyStripe);
+         }
+      });
+      other.start();
+      try {
+         locked.await();
+         check.run();
+      } finally {
+         release.countDown();
+         other.join();
+      }
+   }
+
+   private void runConcurrently(final Runnable task) throws Exception {
+      ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<?>> futures = new ArrayList<>();
+      try {
+         for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+               start.await();
+               task.run();
+               return null;
+            }));
+         }
+         start.countDown();
+         for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+
+   private BigDecimal total() {
+      return bank.getAccounts().stream().map(Account::getBalance).reduce(BigDecimal.ZERO, BigDecimal::add);
+   }
+}
@@ -0,0 +1,116 @@
+package com.arian.example.junit.models;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("bank")
+@DisplayName("Testing the Bank account registry!")
+class BankRegistryTest {
+
+   private Bank bank;
+
+   @BeforeEach
+   void setUp() {
+      bank = new Bank();
+      bank.setName("Banco del estado");
+   }
+
+   @Nested
+   @DisplayName("Testing lookups!")
+   class LookupTest {
+
+      @Test
+      @DisplayName("Accounts get sequential ids and can be found by id")
+      void testFindAccountById() {
+         Account account1 = new Account("John Doe", new BigDecimal("2500"));
+         Account account2 = new Account("Arian Doe", new BigDecimal("1500.8989"));
+         bank.addAccount(account1);
+         bank.addAccount(account2);
+
+         assertAll("Lookup by id", () -> assertEquals(1, account1.getId()), () -> assertEquals(2, account2.getId()),
+               () -> assertSame(account2, bank.findAccount(2).get()), () -> assertTrue(bank.findAccount(3).isEmpty()));
+      }
+
+      @Test
+      @DisplayName("Accounts can be found by holder, whatever the case of the name")
+      void testFindAccountsByPerson() {
+         Account account1 = new Account("John Doe", new BigDecimal("2500"));
+         Account account2 = new Account("Arian Doe", new BigDecimal("1500.8989"));
+         Account account3 = new Account("john doe", new BigDecimal("10"));
+         bank.addAccount(account1);
+         bank.addAccount(account2);
+         bank.addAccount(account3);
+
+         List<Account> johns = bank.findAccountsByPerson("John Doe");
+         assertAll("Lookup by holder", () -> assertEquals(2, johns.size()), () -> assertSame(account1, johns.get(0)),
+               () -> assertSame(account3, johns.get(1)), () -> assertSame(account2, bank.findAccountsByPerson("ARIAN DOE").get(0)),
+               () -> assertTrue(bank.findAccountsByPerson("Nobody").isEmpty()));
+      }
+
+      @Test
+      @DisplayName("A holder with many accounts: registering stays cheap and earlier lookups don't change")
+      void testHolderWithManyAccounts() {
+         bank.addAccount(new Account("Merchant", BigDecimal.ONE));
+         List<Account> first = bank.findAccountsByPerson("Merchant");
+         List<Account> more = new ArrayList<>();
+         for (int i = 0; i < 100_000; i++) {
+            more.add(new Account("Merchant", BigDecimal.ONE));
+            bank.addAccount(more.get(i));
+         }
+         bank.addAccounts(more.subList(0, 10).stream().map(a -> new Account("Merchant", BigDecimal.TEN)).toList());
+
+         List<Account> all = bank.findAccountsByPerson("merchant");
+         assertAll("Many accounts", () -> assertEquals(1, first.size()), () -> assertEquals(100_011, all.size()),
+               () -> assertSame(more.get(99_999), all.get(100_000)), () -> assertEquals(BigDecimal.TEN, all.get(100_010).getBalance()));
+      }
+   }
+
+   @Test
+   @DisplayName("Concurrent registrations keep the list and the indexes consistent")
+   void testConcurrentAddAccount() throws Exception {
+      int threads = 8;
+      int accountsPerThread = 5_000;
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      try {
+         List<Future<?>> futures = new ArrayList<>();
+         for (int t = 0; t < threads; t++) {
+            String person = "Person " + t;
+            futures.add(executor.submit(() -> {
+               for (int i = 0; i < accountsPerThread; i++) {
+                  bank.addAccount(new Account(person, BigDecimal.ONE));
+               }
+            }));
+         }
+         for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+
+      Set<Long> ids = new HashSet<>();
+      bank.getAccounts().forEach(a -> ids.add(a.getId()));
+      assertAll("Registry consistency", () -> assertEquals(threads * accountsPerThread, bank.getAccounts().size()),
+            () -> assertEquals(threads * accountsPerThread, ids.size()),
+            () -> assertEquals(accountsPerThread, bank.findAccountsByPerson("Person 3").size()),
+            () -> bank.getAccounts().forEach(a -> assertSame(a, bank.findAccount(a.getId()).get())));
+   }
+}
@@ -0,0 +1,75 @@
+package com.arian.example.junit.models;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+@Tag("account")
+@DisplayName("Testing the HolderNames canonicalization cache!")
+class HolderNamesTest {
+
+   // Our own cache: the shared one is used by every account created by the other tests
+   private HolderNames holderNames;
+
+   @BeforeEach
+   void setUp() {
+      holderNames = new HolderNames(HolderNames.CACHE_SIZE);
+   }
+
+   @Test
+   @DisplayName("Every spelling of a name gives the same upper-cased instance")
+   void testSameInstance() {
+      String canonical = holderNames.canonicalize(new String("PEPE"));
+
+      assertAll("Same instance", () -> assertEquals("PEPE", canonical), () -> assertSame(canonical, holderNames.canonicalize("pepe")),
+            () -> assertSame(canonical, holderNames.canonicalize(new String("Pepe"))),
+            () -> assertSame(canonical, holderNames.canonicalize(new String("PEPE"))));
+   }
+
+   @Test
+   @DisplayName("Accounts get their holder from the shared cache")
+   void testAccountsUseTheSharedCache() {
+      Account account = new Account(new String("Holder Names Test"), BigDecimal.ONE);
+
+      assertAll("Shared cache", () -> assertEquals("HOLDER NAMES TEST", account.getPerson()),
+            () -> assertEquals(account.getPerson(), HolderNames.canonical("holder names test")));
+   }
+
+   @ParameterizedTest(name = "number {index} running with value {0}")
+   @ValueSource(strings = { "Arian", "ARIAN", "Brian Daniel", "álvaro", "straße", "maïa 2", "" })
+   @DisplayName("The result is always the same as toUpperCase(Locale.ROOT)")
+   void testSameAsUpperCase(final String name) {
+      assertAll("Upper case", () -> assertEquals(name.toUpperCase(Locale.ROOT), holderNames.canonicalize(name)),
+            () -> assertEquals(name.toUpperCase(Locale.ROOT), HolderNames.canonical(name)));
+   }
+
+   @Test
+   @DisplayName("Only ASCII names without lower case letters skip the upper-casing")
+   void testIsCanonical() {
+      assertAll("Canonical", () -> assertTrue(HolderNames.isCanonical("JOHN DOE 2")), () -> assertFalse(HolderNames.isCanonical("John")),
+            () -> assertFalse(HolderNames.isCanonical("ÁLVARO")));
+   }
+
+   @Test
+   @DisplayName("The cache is bounded: many more names than slots are still canonicalized right")
+   void testEviction() {
+      HolderNames tiny = new HolderNames(16);
+      for (int i = 0; i < 1_000; i++) {
+         assertEquals("PERSON " + i, tiny.canonicalize("person " + i));
+      }
+      assertThrows(IllegalArgumentException.class, () -> new HolderNames(100));
+   }
+}
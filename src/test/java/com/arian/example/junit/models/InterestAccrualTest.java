@@ -0,0 +1,230 @@
+package com.arian.example.junit.models;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@Tag("bank")
+@DisplayName("Testing the bulk InterestAccrual!")
+class InterestAccrualTest {
+
+   private static final BigDecimal ONE_PERCENT = new BigDecimal("0.01");
+
+   private static final LocalDate TONIGHT = LocalDate.of(2024, 3, 31);
+
+   @TempDir
+   Path tempDir;
+
+   private Bank bank;
+
+   @BeforeEach
+   void setUp() {
+      bank = new Bank();
+      bank.setName("Banco del estado");
+   }
+
+   @Test
+   @DisplayName("Every kind of account gets its interest, rounded with the one rounding mode of the job")
+   void testEveryKindOfAccount() throws IOException {
+      Account arian = new Account("Arian", new BigDecimal("1000.12345"));
+      LedgerAccount cata = new LedgerAccount("Cata", new BigDecimal("1000.12"), MoneyScale.CENTS);
+      LedgerAccount john = new LedgerAccount("John Doe", new BigDecimal("2500"));
+      StripedAccount pool = new StripedAccount("Merchant", new BigDecimal("99"));
+      AtomicAccount maria = new AtomicAccount("Maria", new BigDecimal("0.5"));
+      bank.addAccounts(List.of(arian, cata, john, pool, maria));
+      pool.credit(BigDecimal.ONE);
+
+      AccrualReport report = new InterestAccrual(bank, new BigDecimal("0.015"), MoneyScale.CENTS).run();
+
+      assertAll("Interest", () -> assertEquals("1015.12345", arian.getBalance().toPlainString()), // 15.0018518 -> 15.00
+            () -> assertEquals("1015.12", cata.getBalance().toPlainString()), // 1500.18 units -> 1500
+            () -> assertEquals("2537.500000", john.getBalance().toPlainString()), () -> assertEquals("101.500000", pool.getBalance().toPlainString()),
+            () -> assertEquals("0.51", maria.getBalance().toPlainString()), // 0.0075 -> 0.01 (HALF_EVEN)
+            () -> assertEquals(5, report.getAccounts()), () -> assertTrue(report.isComplete()));
+   }
+
+   @Test
+   @DisplayName("Fees are taken with a negative rate, never more than the balance")
+   void testFees() throws IOException {
+      Account john = new Account("John Doe", new BigDecimal("2500"));
+      Account tiny = new Account("Tiny", new BigDecimal("0.001"));
+      bank.addAccounts(List.of(john, tiny));
+
+      AccrualReport report = new InterestAccrual(bank, new BigDecimal("-0.5"), new MoneyScale(2, RoundingMode.UP)).run();
+
+      assertAll("Fees", () -> assertEquals("1250.00", john.getBalance().toPlainString()), () -> assertEquals("0.001", tiny.getBalance().toPlainString()),
+            () -> assertEquals(1, report.getAccounts()), () -> assertEquals(1, report.getRejected()));
+   }
+
+   @Test
+   @DisplayName("Interest that would overflow a balance is rejected, the other accounts still get theirs")
+   void testOverflowIsRejected() throws IOException {
+      LedgerAccount full = new LedgerAccount("Full", BigDecimal.valueOf(Long.MAX_VALUE, 2), MoneyScale.CENTS);
+      LedgerAccount cata = new LedgerAccount("Cata", new BigDecimal("100"), MoneyScale.CENTS);
+      bank.addAccounts(List.of(full, cata));
+
+      AccrualReport report = new InterestAccrual(bank, ONE_PERCENT, MoneyScale.CENTS).run();
+
+      assertAll("Overflow", () -> assertEquals(BigDecimal.valueOf(Long.MAX_VALUE, 2), full.getBalance()),
+            () -> assertEquals("101.00", cata.getBalance().toPlainString()), () -> assertEquals(1, report.getAccounts()),
+            () -> assertEquals(1, report.getRejected()), () -> assertTrue(report.isComplete()));
+   }
+
+   @Test
+   @DisplayName("Many chunks processed in parallel accrue every account exactly once")
+   void testChunksInParallel() throws IOException {
+      for (int i = 0; i < 10_000; i++) {
+         bank.addAccount(new LedgerAccount("Person " + i, new BigDecimal("100"), MoneyScale.CENTS));
+      }
+      ForkJoinPool pool = new ForkJoinPool(4);
+      try {
+         AccrualReport report = new InterestAccrual(bank, ONE_PERCENT, MoneyScale.CENTS, null, 100, pool, null).run();
+
+         assertAll("Parallel", () -> assertEquals(10_000, report.getAccounts()), () -> assertEquals(100, report.getChunks()),
+               () -> assertEquals(new BigDecimal("1010000.00"), bank.getTotalBalance()));
+      } finally {
+         pool.shutdown();
+      }
+   }
+
+   @Test
+   @DisplayName("A paused job without a checkpoint goes on from what it accrued, in memory")
+   void testPauseWithoutCheckpoint() throws IOException {
+      for (int i = 0; i < 100; i++) {
+         bank.addAccount(new Account("Person " + i, new BigDecimal("100")));
+      }
+      ForkJoinPool pool = new ForkJoinPool(1);
+      try {
+         InterestAccrual accrual = new InterestAccrual(bank, ONE_PERCENT, MoneyScale.CENTS, null, 10, pool, null);
+         AtomicInteger credits = new AtomicInteger();
+         BankListener pauseAfter35 = new BankListener() {
+            @Override
+            public void credited(final Account account, final BigDecimal amount) {
+               if (credits.incrementAndGet() == 35) {
+                  accrual.pause();
+               }
+            }
+         };
+         bank.addListener(pauseAfter35);
+
+         AccrualReport first = accrual.run();
+         AccrualReport second = accrual.run();
+         AccrualReport third = accrual.run();
+
+         assertAll("Resumed in memory", () -> assertEquals(40, first.getAccounts()), () -> assertEquals(4, first.getChunksDone()),
+               () -> assertEquals(60, second.getAccounts()), () -> assertTrue(second.isComplete()), () -> assertEquals(0, third.getAccounts()),
+               () -> assertEquals(new BigDecimal("10100.00"), bank.getTotalBalance()));
+      } finally {
+         pool.shutdown();
+      }
+   }
+
+   @Nested
+   @DisplayName("Testing pause and resume!")
+   class CheckpointTest {
+
+      private Path checkpoint;
+
+      private ForkJoinPool pool;
+
+      @BeforeEach
+      void setUp() {
+         checkpoint = tempDir.resolve("accrual.checkpoint");
+         pool = new ForkJoinPool(1);
+         for (int i = 0; i < 1000; i++) {
+            bank.addAccount(new Account("Person " + i, new BigDecimal("100")));
+         }
+      }
+
+      @Test
+      @DisplayName("A paused job goes on from its checkpoint and never accrues an account twice")
+      void testPauseAndResume() throws IOException {
+         InterestAccrual accrual = new InterestAccrual(bank, ONE_PERCENT, MoneyScale.CENTS, TONIGHT, 10, pool, checkpoint);
+         AtomicInteger credits = new AtomicInteger();
+         BankListener pauseAfter250 = new BankListener() {
+            @Override
+            public void credited(final Account account, final BigDecimal amount) {
+               if (credits.incrementAndGet() == 250) {
+                  accrual.pause();
+               }
+            }
+         };
+         bank.addListener(pauseAfter250);
+
+         AccrualReport first = accrual.run();
+         bank.removeListener(pauseAfter250);
+         AccrualReport second = new InterestAccrual(bank, ONE_PERCENT, MoneyScale.CENTS, TONIGHT, 10, pool, checkpoint).run();
+         AccrualReport third = new InterestAccrual(bank, ONE_PERCENT, MoneyScale.CENTS, TONIGHT, 10, pool, checkpoint).run();
+
+         assertAll("Resumed", () -> assertFalse(first.isComplete()), () -> assertEquals(250, first.getAccounts()),
+               () -> assertEquals(25, first.getChunksDone()), () -> assertEquals(750, second.getAccounts()),
+               () -> assertTrue(second.isComplete()), () -> assertEquals(0, third.getAccounts()),
+               () -> assertTrue(bank.getAccounts().stream().allMatch(a -> a.getBalance().toPlainString().equals("101.00"))),
+               () -> assertFalse(Files.exists(tempDir.resolve("accrual.checkpoint.tmp"))));
+      }
+
+      @Test
+      @DisplayName("A run that failed halfway through a chunk goes on without accruing an account twice")
+      void testFailedRunIsResumed() throws IOException {
+         AtomicInteger credits = new AtomicInteger();
+         BankListener failAt245 = new BankListener() {
+            @Override
+            public void credited(final Account account, final BigDecimal amount) {
+               if (credits.incrementAndGet() == 245) {
+                  throw new IllegalStateException("Listener down");
+               }
+            }
+         };
+         bank.addListener(failAt245);
+
+         assertThrows(IllegalStateException.class, () -> new InterestAccrual(bank, ONE_PERCENT, MoneyScale.CENTS, TONIGHT, 10, pool, checkpoint).run());
+         bank.removeListener(failAt245);
+         AccrualReport resumed = new InterestAccrual(bank, ONE_PERCENT, MoneyScale.CENTS, TONIGHT, 10, pool, checkpoint).run();
+
+         assertAll("Resumed", () -> assertTrue(resumed.isComplete()), () -> assertEquals(755, resumed.getAccounts()),
+               () -> assertEquals(5, resumed.getAlreadyAccrued()),
+               () -> assertTrue(bank.getAccounts().stream().allMatch(a -> a.getBalance().toPlainString().equals("101.00"))));
+      }
+
+      @Test
+      @DisplayName("The next night is a new run: the old checkpoint is refused, a new one accrues every account again")
+      void testNextNight() throws IOException {
+         new InterestAccrual(bank, ONE_PERCENT, MoneyScale.CENTS, TONIGHT, 10, pool, checkpoint).run();
+         LocalDate tomorrow = TONIGHT.plusDays(1);
+
+         assertThrows(IOException.class, () -> new InterestAccrual(bank, ONE_PERCENT, MoneyScale.CENTS, tomorrow, 10, pool, checkpoint).run());
+         AccrualReport next = new InterestAccrual(bank, ONE_PERCENT, MoneyScale.CENTS, tomorrow, 10, pool, tempDir.resolve("next.checkpoint")).run();
+
+         assertAll("Next night", () -> assertEquals(1000, next.getAccounts()), () -> assertEquals(0, next.getAlreadyAccrued()),
+               () -> assertTrue(bank.getAccounts().stream().allMatch(a -> a.getBalance().toPlainString().equals("102.01"))),
+               () -> assertThrows(IllegalArgumentException.class, () -> new InterestAccrual(bank, ONE_PERCENT, MoneyScale.CENTS, null, 10, pool, checkpoint)));
+      }
+
+      @Test
+      @DisplayName("The checkpoint of another job is refused")
+      void testCheckpointOfAnotherJob() throws IOException {
+         new InterestAccrual(bank, ONE_PERCENT, MoneyScale.CENTS, TONIGHT, 10, pool, checkpoint).run();
+
+         assertThrows(IOException.class, () -> new InterestAccrual(bank, new BigDecimal("0.02"), MoneyScale.CENTS, TONIGHT, 10, pool, checkpoint).run());
+      }
+   }
+}
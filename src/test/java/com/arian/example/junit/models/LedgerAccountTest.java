@@ -0,0 +1,127 @@
+package com.arian.example.junit.models;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvFileSource;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import com.arian.example.junit.exceptions.InsufficientFundsException;
+
+@Tag("account")
+@DisplayName("Testing the long minor-units LedgerAccount!")
+class LedgerAccountTest {
+
+   @Nested
+   @DisplayName("Testing the rounding policy of MoneyScale!")
+   class MoneyScaleTest {
+
+      @ParameterizedTest(name = "number {index} running with value {0} - {argumentsWithNames}")
+      @CsvSource({ "1000.12345,100012", "1000.125,100012", "1000.135,100014", "0.005,0", "-2.675,-268" })
+      void testRoundingToCents(String amount, long expectedUnits) {
+         assertEquals(expectedUnits, MoneyScale.CENTS.toUnits(new BigDecimal(amount)));
+      }
+
+      @Test
+      @DisplayName("Amounts that don't fit in a long are rejected")
+      void testOverflow() {
+         assertThrows(ArithmeticException.class, () -> MoneyScale.MICROS.toUnits(new BigDecimal("10000000000000")));
+      }
+
+      @Test
+      @DisplayName("Rounding can be forbidden with UNNECESSARY")
+      void testUnnecessaryRounding() {
+         MoneyScale exact = new MoneyScale(2, RoundingMode.UNNECESSARY);
+         assertThrows(ArithmeticException.class, () -> exact.toUnits(new BigDecimal("1000.12345")));
+      }
+   }
+
+   @Nested
+   @DisplayName("Testing Account Operations!")
+   class LedgerOperationsTest {
+
+      // Same rows used by OtherAccountTest: the ledger must give the BigDecimal result at its scale
+      @Tag("param")
+      @ParameterizedTest(name = "number {index} running with value {0} - {argumentsWithNames}")
+      @CsvFileSource(resources = "/data2.csv")
+      void testDebitMatchesBigDecimalAccount(String balance, String amount, String expected, String actual) {
+         Account account = new Account(actual, new BigDecimal(balance));
+         LedgerAccount ledgerAccount = new LedgerAccount(actual, new BigDecimal(balance));
+
+         account.debit(new BigDecimal(amount));
+         ledgerAccount.debit(new BigDecimal(amount));
+
+         assertEquals(account.getBalance().setScale(6), ledgerAccount.getBalance());
+      }
+
+      @Test
+      @DisplayName("Testing Debit and Credit Operations!")
+      void testDebitAndCredit() {
+         LedgerAccount account = new LedgerAccount("Arian", new BigDecimal("1000.12345"));
+         account.debit(new BigDecimal(100));
+         account.credit(new BigDecimal("0.000001"));
+
+         assertAll("Ledger Operations", () -> assertEquals("ARIAN", account.getPerson()),
+               () -> assertEquals(900_123_451L, account.getUnits()), () -> assertEquals("900.123451", account.getBalance().toPlainString()));
+      }
+
+      @Test
+      @DisplayName("Testing Insufficient Funds Exception!")
+      void testInsufficientFundsException() {
+         LedgerAccount account = new LedgerAccount("Arian", new BigDecimal("1000.12345"));
+         Exception exception = assertThrows(InsufficientFundsException.class, () -> account.debit(new BigDecimal("1000.123451")));
+
+         assertAll("Rejected Debit", () -> assertEquals("Insufficient funds or money!", exception.getMessage()),
+               () -> assertEquals(1_000_123_450L, account.getUnits()));
+      }
+
+      @Test
+      @DisplayName("Credits that overflow the balance are rejected")
+      void testCreditOverflow() {
+         LedgerAccount account = new LedgerAccount("Arian", BigDecimal.ZERO, MoneyScale.CENTS);
+         account.creditUnits(Long.MAX_VALUE);
+
+         assertAll("Overflow", () -> assertThrows(ArithmeticException.class, () -> account.creditUnits(1)),
+               () -> assertEquals(Long.MAX_VALUE, account.getUnits()));
+      }
+
+      @Test
+      @DisplayName("Testing Money Transfer Operation through the Bank")
+      void testTransferThroughBank() {
+         LedgerAccount account1 = new LedgerAccount("John Doe", new BigDecimal("2500"), MoneyScale.CENTS);
+         Account account2 = new Account("Arian Doe", new BigDecimal("1500.8989"));
+         Bank bank = new Bank();
+         bank.transfer(account1, account2, new BigDecimal(500));
+
+         assertAll("Money Transfer", () -> assertEquals("2000.00", account1.getBalance().toPlainString()),
+               () -> assertEquals("2000.8989", account2.getBalance().toPlainString()));
+      }
+
+      @Test
+      @DisplayName("A transfer the destination can't take is not applied: the origin keeps its money")
+      void testTransferToFullAccount() {
+         Account origin = new Account("John Doe", new BigDecimal("2500"));
+         LedgerAccount full = new LedgerAccount("Arian Doe", BigDecimal.valueOf(Long.MAX_VALUE - 100, 2), MoneyScale.CENTS);
+         LedgerAccount exact = new LedgerAccount("Pepe", BigDecimal.ZERO, new MoneyScale(2, RoundingMode.UNNECESSARY));
+         Bank bank = new Bank();
+         bank.addAccounts(List.of(origin, full, exact));
+
+         assertAll("Not applied", () -> assertThrows(ArithmeticException.class, () -> bank.transfer(origin, full, new BigDecimal("1.01"))),
+               () -> assertThrows(ArithmeticException.class, () -> bank.transfer(origin, exact, new BigDecimal("0.001"))),
+               () -> assertEquals(0, new BigDecimal("2500").compareTo(origin.getBalance())),
+               () -> assertEquals(BigDecimal.valueOf(Long.MAX_VALUE - 100, 2), full.getBalance()), () -> assertEquals(0, exact.getUnits()),
+               () -> assertTrue(bank.tryTransfer(origin, full, BigDecimal.ONE)));
+      }
+   }
+}
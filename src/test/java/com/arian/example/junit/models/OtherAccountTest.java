@@ -15,6 +15,7 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.parallel.Isolated;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvFileSource;
 import org.junit.jupiter.params.provider.CsvSource;
@@ -105,7 +106,9 @@ class OtherAccountTest extends AccountTest {
 
    }
 
+   // Sleeps right up to the timeout: any other test running next to it can make it fail
    @Tag("timeout")
+   @Isolated
    @Nested
    class ExamplesOfTimeOutTest {
 
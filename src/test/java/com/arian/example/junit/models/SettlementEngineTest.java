@@ -0,0 +1,271 @@
+package com.arian.example.junit.models;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("bank")
+@DisplayName("Testing inter-bank settlement with the SettlementEngine!")
+class SettlementEngineTest {
+
+   private Bank estado;
+
+   private Bank chile;
+
+   private Account john;
+
+   private Account pepe;
+
+   private SettlementEngine engine;
+
+   @BeforeEach
+   void setUp() {
+      estado = new Bank();
+      estado.setName("Banco del estado");
+      chile = new Bank();
+      chile.setName("Banco de Chile");
+      john = new Account("John Doe", new BigDecimal("1000"));
+      pepe = new Account("Pepe", new BigDecimal("1000"));
+      estado.addAccount(john);
+      chile.addAccount(pepe);
+      engine = new SettlementEngine();
+   }
+
+   @Test
+   @DisplayName("Cross-bank transfers move no money until settled, then each account moves its net once")
+   void testNetting() {
+      List<BigDecimal> debits = new ArrayList<>();
+      estado.addListener(new BankListener() {
+
+         @Override
+         public void debited(final Account account, final BigDecimal amount) {
+            debits.add(amount);
+         }
+      });
+      for (int i = 0; i < 3; i++) {
+         assertTrue(engine.submit(john, pepe, new BigDecimal("100")));
+      }
+      assertTrue(engine.submit(pepe, john, new BigDecimal("50.5")));
+
+      assertAll("Before settling", () -> assertEquals("1000", john.getBalance().toPlainString()),
+            () -> assertEquals("1000", pepe.getBalance().toPlainString()), () -> assertEquals(BigDecimal.ZERO, engine.getInTransit()),
+            () -> assertEquals(4, engine.getPendingTransfers()), () -> assertTrue(debits.isEmpty()));
+
+      SettlementReport report = engine.settle();
+
+      assertAll("Settled", () -> assertEquals("750.5", john.getBalance().toPlainString()),
+            () -> assertEquals("1249.5", pepe.getBalance().toPlainString()), () -> assertEquals(1, report.getPairs()),
+            () -> assertEquals(4, report.getTransfers()), () -> assertEquals(1, report.getDebits()), () -> assertEquals(1, report.getCredits()),
+            () -> assertEquals(List.of(new BigDecimal("249.5")), debits),
+            () -> assertEquals(Map.of("Banco de Chile -> Banco del estado", new BigDecimal("-249.5")), report.getNetPositions()),
+            () -> assertEquals(BigDecimal.ZERO, engine.getInTransit()), () -> assertEquals(0, engine.settle().getPairs()));
+   }
+
+   @Test
+   @DisplayName("Transfers that cancel each other out move nothing")
+   void testNettedToZero() {
+      engine.submit(john, pepe, new BigDecimal("100"));
+      engine.submit(pepe, john, new BigDecimal("100"));
+
+      SettlementReport report = engine.settle();
+
+      assertAll("Nothing moved", () -> assertEquals(2, report.getTransfers()), () -> assertEquals(0, report.getDebits()),
+            () -> assertEquals(0, report.getCredits()), () -> assertEquals("1000", john.getBalance().toPlainString()),
+            () -> assertEquals("1000", pepe.getBalance().toPlainString()));
+   }
+
+   @Test
+   @DisplayName("An origin that spent its money before settling has its transfers refused, the nets are worked out without them")
+   void testRefusedWhenSettling() {
+      Account cata = new Account("Cata", BigDecimal.ZERO);
+      chile.addAccount(cata);
+      List<BigDecimal> rejections = new ArrayList<>();
+      estado.addListener(new BankListener() {
+
+         @Override
+         public void rejected(final Account account, final BigDecimal amount) {
+            rejections.add(amount);
+         }
+      });
+      engine.submit(john, pepe, new BigDecimal("300"));
+      engine.submit(john, cata, new BigDecimal("200"));
+      engine.submit(pepe, john, new BigDecimal("50"));
+      john.debit(new BigDecimal("900"));
+
+      SettlementReport report = engine.settle();
+
+      assertAll("Refused", () -> assertEquals(2, report.getRefusedTransfers()), () -> assertEquals(1, report.getDebits()),
+            () -> assertEquals(1, report.getCredits()), () -> assertEquals(List.of(new BigDecimal("500")), rejections),
+            () -> assertEquals("150", john.getBalance().toPlainString()), () -> assertEquals("950", pepe.getBalance().toPlainString()),
+            () -> assertEquals("0", cata.getBalance().toPlainString()),
+            () -> assertEquals(Map.of("Banco de Chile -> Banco del estado", new BigDecimal("50")), report.getNetPositions()));
+   }
+
+   @Test
+   @DisplayName("Transfers inside one bank are applied at once")
+   void testSameBankTransfer() {
+      Account arian = new Account("Arian Doe", BigDecimal.ZERO);
+      estado.addAccount(arian);
+
+      assertTrue(engine.submit(john, arian, new BigDecimal("10")));
+
+      assertAll("Same bank", () -> assertEquals("990", john.getBalance().toPlainString()), () -> assertEquals("10", arian.getBalance().toPlainString()),
+            () -> assertEquals(0, engine.getPendingTransfers()));
+   }
+
+   @Test
+   @DisplayName("A transfer the origin can't pay is refused at once")
+   void testRejected() {
+      assertAll("Refused", () -> assertFalse(engine.submit(john, pepe, new BigDecimal("1000.01"))),
+            () -> assertEquals("1000", john.getBalance().toPlainString()), () -> assertEquals(0, engine.getPendingTransfers()),
+            () -> assertThrows(IllegalArgumentException.class, () -> engine.submit(john, new Account("Nobody", BigDecimal.ONE), BigDecimal.ONE)));
+   }
+
+   @Test
+   @DisplayName("Accounts with the same id and holder in both banks are not mixed up")
+   void testSameIdInBothBanks() {
+      Account otherJohn = new Account("John Doe", BigDecimal.ZERO);
+      Account john2 = new Account("John Doe", BigDecimal.ZERO);
+      estado.addAccount(john2);
+      chile.addAccount(otherJohn);
+
+      engine.submit(john, otherJohn, new BigDecimal("30"));
+      engine.submit(pepe, john2, new BigDecimal("20"));
+      engine.settle();
+
+      assertAll("Kept apart", () -> assertEquals("30", otherJohn.getBalance().toPlainString()),
+            () -> assertEquals("20", john2.getBalance().toPlainString()));
+   }
+
+   @Test
+   @DisplayName("Banks are paired by identity: no names or the same names work")
+   void testBanksByIdentity() {
+      Bank unnamed = new Bank();
+      Account cata = new Account("Cata", BigDecimal.ZERO);
+      unnamed.addAccount(cata);
+      Bank twin = new Bank();
+      twin.setName(chile.getName());
+      Account arian = new Account("Arian Doe", BigDecimal.ZERO);
+      twin.addAccount(arian);
+
+      assertAll("Submitted", () -> assertTrue(engine.submit(john, cata, new BigDecimal("10"))),
+            () -> assertTrue(engine.submit(john, arian, new BigDecimal("20"))), () -> assertTrue(engine.submit(john, pepe, new BigDecimal("30"))));
+      SettlementReport report = engine.settle();
+
+      assertAll("Settled", () -> assertEquals(3, report.getPairs()), () -> assertEquals("10", cata.getBalance().toPlainString()),
+            () -> assertEquals("20", arian.getBalance().toPlainString()), () -> assertEquals("1030", pepe.getBalance().toPlainString()),
+            () -> assertEquals(new BigDecimal("-10"), report.getNetPositions().get("null -> Banco del estado")),
+            () -> assertEquals(new BigDecimal("-50"), report.getNetPositions().get("Banco de Chile -> Banco del estado")));
+   }
+
+   @Test
+   @DisplayName("A credit that can't be applied stays in transit until a later cycle can apply it")
+   void testFailedCreditIsKept() {
+      LedgerAccount full = new LedgerAccount("Full", BigDecimal.valueOf(Long.MAX_VALUE, 2), MoneyScale.CENTS);
+      chile.addAccount(full);
+
+      engine.submit(john, full, new BigDecimal("5"));
+      engine.submit(john, pepe, new BigDecimal("10"));
+      SettlementReport failed = engine.settle();
+
+      assertAll("Kept", () -> assertEquals(1, failed.getCredits()), () -> assertEquals(1, failed.getFailedCredits()),
+            () -> assertEquals("1010", pepe.getBalance().toPlainString()), () -> assertEquals(new BigDecimal("5"), engine.getInTransit()),
+            () -> assertEquals(1, engine.getPendingTransfers()));
+
+      full.debit(new BigDecimal("100"));
+      SettlementReport retried = engine.settle();
+
+      assertAll("Retried", () -> assertEquals(1, retried.getCredits()), () -> assertEquals(0, retried.getFailedCredits()),
+            () -> assertEquals(BigDecimal.valueOf(Long.MAX_VALUE - 9500, 2), full.getBalance()), () -> assertEquals(BigDecimal.ZERO, engine.getInTransit()),
+            () -> assertEquals("985", john.getBalance().toPlainString()));
+   }
+
+   @Test
+   @DisplayName("A scheduled cycle that throws is recorded, and the next cycles still run")
+   void testScheduledFailureIsRecorded() throws Exception {
+      RuntimeException boom = new IllegalStateException("Listener failed");
+      chile.addListener(new BankListener() {
+
+         private boolean failed;
+
+         @Override
+         public void credited(final Account account, final BigDecimal amount) {
+            if (!failed) {
+               failed = true;
+               throw boom;
+            }
+         }
+      });
+      try (Closeable settling = engine.startSettling(Duration.ofMillis(1))) {
+         engine.submit(john, pepe, new BigDecimal("10"));
+         waitFor(() -> engine.getLastFailure() != null);
+         engine.submit(john, pepe, new BigDecimal("5"));
+         waitFor(() -> engine.getPendingTransfers() == 0);
+      }
+
+      assertAll("Still settling", () -> assertSame(boom, engine.getLastFailure()), () -> assertEquals("1015", pepe.getBalance().toPlainString()),
+            () -> assertEquals("985", john.getBalance().toPlainString()));
+   }
+
+   private static void waitFor(final BooleanSupplier condition) throws InterruptedException {
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (!condition.getAsBoolean()) {
+         assertTrue(System.nanoTime() < deadline, "Timed out");
+         Thread.sleep(1);
+      }
+   }
+
+   @Test
+   @DisplayName("Money is conserved while transfers are submitted and settled concurrently")
+   void testConcurrentSettlement() throws Exception {
+      List<Account> accounts = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+         Account account = new Account("Person " + i, new BigDecimal("1000"));
+         (i % 2 == 0 ? estado : chile).addAccount(account);
+         accounts.add(account);
+      }
+      BigDecimal total = estado.getTotalBalance().add(chile.getTotalBalance());
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try (Closeable settling = engine.startSettling(Duration.ofMillis(1))) {
+         List<Future<?>> futures = new ArrayList<>();
+         for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+               ThreadLocalRandom random = ThreadLocalRandom.current();
+               for (int i = 0; i < 20_000; i++) {
+                  engine.submit(accounts.get(random.nextInt(10)), accounts.get(random.nextInt(10)), BigDecimal.valueOf(random.nextInt(1, 300)));
+               }
+            }));
+         }
+         for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+
+      assertAll("Conserved", () -> assertEquals(BigDecimal.ZERO, engine.getInTransit()),
+            () -> assertEquals(0, total.compareTo(estado.getTotalBalance().add(chile.getTotalBalance()))),
+            () -> assertTrue(accounts.stream().allMatch(a -> a.getBalance().signum() >= 0)));
+   }
+}
@@ -0,0 +1,91 @@
+package com.arian.example.junit.models;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.arian.example.junit.exceptions.InsufficientFundsException;
+
+@Tag("account")
+@Tag("concurrency")
+@DisplayName("Testing the credit-striped StripedAccount!")
+class StripedAccountTest {
+
+   @Test
+   @DisplayName("Testing Debit and Credit Operations!")
+   void testDebitAndCredit() {
+      StripedAccount account = new StripedAccount("Arian", new BigDecimal("1000.12345"));
+      account.credit(new BigDecimal("0.5"));
+      account.debit(new BigDecimal(100));
+
+      Exception exception = assertThrows(InsufficientFundsException.class, () -> account.debit(new BigDecimal("900.623451")));
+
+      assertAll("Striped Operations", () -> assertEquals("900.623450", account.getBalance().toPlainString()),
+            () -> assertEquals("Insufficient funds or money!", exception.getMessage()));
+   }
+
+   @Test
+   @DisplayName("Concurrent credits are all folded into the balance")
+   void testConcurrentCredits() throws Exception {
+      StripedAccount account = new StripedAccount("Fee Collector", BigDecimal.ZERO, MoneyScale.CENTS);
+
+      runConcurrently(8, () -> {
+         for (int i = 0; i < 10_000; i++) {
+            account.credit(new BigDecimal("0.01"));
+         }
+      });
+
+      assertEquals("800.00", account.getBalance().toPlainString());
+   }
+
+   @Test
+   @DisplayName("Debits racing with credits never overdraw the account")
+   void testDebitsRacingWithCredits() throws Exception {
+      StripedAccount account = new StripedAccount("Merchant", BigDecimal.ZERO, MoneyScale.CENTS);
+      AtomicInteger debits = new AtomicInteger();
+
+      runConcurrently(8, () -> {
+         for (int i = 0; i < 10_000; i++) {
+            account.credit(BigDecimal.ONE);
+            try {
+               account.debit(new BigDecimal("2"));
+               debits.incrementAndGet();
+            } catch (InsufficientFundsException e) {
+               // Not enough credits folded yet
+            }
+            assertTrue(account.getUnits() >= 0);
+         }
+      });
+
+      assertEquals(80_000L * 100 - debits.get() * 200L, account.getUnits());
+   }
+
+   private static void runConcurrently(final int threads, final Runnable task) throws Exception {
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      try {
+         List<Future<?>> futures = new ArrayList<>();
+         for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(task));
+         }
+         for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+}
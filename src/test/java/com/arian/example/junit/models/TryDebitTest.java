@@ -0,0 +1,86 @@
+package com.arian.example.junit.models;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.arian.example.junit.exceptions.InsufficientFundsException;
+import com.arian.example.junit.metrics.BankMetrics;
+
+@Tag("account")
+@DisplayName("Testing the non-throwing tryDebit and tryTransfer!")
+class TryDebitTest {
+
+   static Stream<Account> accounts() {
+      return Stream.of(new Account("Arian", new BigDecimal("100")), new LedgerAccount("Arian", new BigDecimal("100")),
+            new AtomicAccount("Arian", new BigDecimal("100")), new StripedAccount("Arian", new BigDecimal("100")));
+   }
+
+   @ParameterizedTest(name = "number {index} running with {0}")
+   @MethodSource("accounts")
+   @DisplayName("A rejected tryDebit returns false and leaves the balance untouched")
+   void testTryDebit(final Account account) {
+      Bank bank = new Bank();
+      BankMetrics metrics = new BankMetrics();
+      bank.setMetrics(metrics);
+      bank.addAccount(account);
+      List<BigDecimal> debited = new ArrayList<>();
+      bank.addListener(new BankListener() {
+
+         @Override
+         public void debited(final Account account, final BigDecimal amount) {
+            debited.add(amount);
+         }
+      });
+
+      assertAll("tryDebit", () -> assertTrue(account.tryDebit(new BigDecimal("60"))), () -> assertFalse(account.tryDebit(new BigDecimal("60"))),
+            () -> assertEquals(0, new BigDecimal("40").compareTo(account.getBalance())), () -> assertEquals(1, debited.size()),
+            () -> assertEquals(1, metrics.getDebits()), () -> assertEquals(1, metrics.getRejections()));
+   }
+
+   @ParameterizedTest(name = "number {index} running with {0}")
+   @MethodSource("accounts")
+   @DisplayName("debit still throws InsufficientFundsException")
+   void testDebitStillThrows(final Account account) {
+      Exception exception = assertThrows(InsufficientFundsException.class, () -> account.debit(new BigDecimal("100.01")));
+
+      assertAll("debit", () -> assertEquals("Insufficient funds or money!", exception.getMessage()),
+            () -> assertEquals(0, new BigDecimal("100").compareTo(account.getBalance())));
+   }
+
+   @Test
+   @DisplayName("A rejected tryDebitUnits returns false")
+   void testTryDebitUnits() {
+      LedgerAccount account = new LedgerAccount("Arian", new BigDecimal("1.00"), MoneyScale.CENTS);
+
+      assertAll("tryDebitUnits", () -> assertFalse(account.tryDebitUnits(101)), () -> assertTrue(account.tryDebitUnits(100)),
+            () -> assertEquals(0, account.getUnits()));
+   }
+
+   @Test
+   @DisplayName("A rejected tryTransfer returns false and moves no money")
+   void testTryTransfer() {
+      Bank bank = new Bank();
+      Account john = new Account("John Doe", new BigDecimal("2500"));
+      Account arian = new Account("Arian Doe", new BigDecimal("1500.8989"));
+      bank.addAccount(john);
+      bank.addAccount(arian);
+
+      assertAll("tryTransfer", () -> assertFalse(bank.tryTransfer(john, arian, new BigDecimal("2500.01"))),
+            () -> assertTrue(bank.tryTransfer(john, arian, new BigDecimal("500"))),
+            () -> assertEquals("2000", john.getBalance().toPlainString()), () -> assertEquals("2000.8989", arian.getBalance().toPlainString()));
+   }
+}
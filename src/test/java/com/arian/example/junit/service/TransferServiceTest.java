@@ -0,0 +1,153 @@
+package com.arian.example.junit.service;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.arian.example.junit.exceptions.InsufficientFundsException;
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+
+@Tag("concurrency")
+@DisplayName("Testing the virtual-thread TransferService!")
+class TransferServiceTest {
+
+   private Bank bank;
+
+   @BeforeEach
+   void setUp() {
+      bank = new Bank();
+      bank.setName("Banco del estado");
+   }
+
+   @Test
+   @DisplayName("Many asynchronous transfers are all applied and money is conserved")
+   void testManyTransfers() throws Exception {
+      for (int i = 0; i < 100; i++) {
+         bank.addAccount(new Account("Person " + i, new BigDecimal("1000")));
+      }
+      List<Account> accounts = bank.getAccounts();
+      List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+      try (TransferService service = new TransferService(bank, 100_000)) {
+         ThreadLocalRandom random = ThreadLocalRandom.current();
+         for (int i = 0; i < 100_000; i++) {
+            futures.add(service.transfer(accounts.get(random.nextInt(100)), accounts.get(random.nextInt(100)), BigDecimal.valueOf(random.nextInt(100))));
+         }
+         CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).handle((ok, e) -> null).get(1, TimeUnit.MINUTES);
+
+         assertAll("Service", () -> assertEquals(0, service.getInFlight()), () -> assertEquals(0, service.getRejected()),
+               () -> assertEquals(0, new BigDecimal("100000").compareTo(
+                     bank.getAccounts().stream().map(Account::getBalance).reduce(BigDecimal.ZERO, BigDecimal::add))));
+      }
+   }
+
+   @Test
+   @DisplayName("Transfers from the same account are applied in submission order")
+   void testTransfersFromSameAccountAreOrdered() throws Exception {
+      Account john = new Account("John Doe", new BigDecimal("100"));
+      Account arian = new Account("Arian Doe", new BigDecimal("0"));
+      bank.addAccount(john);
+      bank.addAccount(arian);
+
+      try (TransferService service = new TransferService(bank, 10)) {
+         CompletableFuture<Void> first = service.transfer(john, arian, new BigDecimal("60"));
+         CompletableFuture<Void> second = service.transfer(john, arian, new BigDecimal("60"));
+         CompletableFuture<Void> third = service.transfer(john, arian, new BigDecimal("40"));
+
+         ExecutionException exception = assertThrows(ExecutionException.class, () -> second.get(1, TimeUnit.MINUTES));
+         first.get(1, TimeUnit.MINUTES);
+         third.get(1, TimeUnit.MINUTES);
+         assertAll("Ordered", () -> assertInstanceOf(InsufficientFundsException.class, exception.getCause()),
+               () -> assertEquals("0", john.getBalance().toPlainString()), () -> assertEquals("100", arian.getBalance().toPlainString()));
+      }
+   }
+
+   @Test
+   @DisplayName("A full mailbox rejects new transfers (backpressure)")
+   void testBackpressure() throws Exception {
+      CountDownLatch release = new CountDownLatch(1);
+      Account slow = new Account("Slow Doe", new BigDecimal("100")) {
+
+         @Override
+         protected boolean tryApplyDebit(final BigDecimal monto) {
+            try {
+               release.await();
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+            }
+            return super.tryApplyDebit(monto);
+         }
+      };
+      Account arian = new Account("Arian Doe", new BigDecimal("0"));
+      bank.addAccount(slow);
+      bank.addAccount(arian);
+
+      try (TransferService service = new TransferService(bank, 2)) {
+         CompletableFuture<Void> first = service.transfer(slow, arian, BigDecimal.ONE);
+         CompletableFuture<Void> second = service.transfer(slow, arian, BigDecimal.ONE);
+         CompletableFuture<Void> third = service.transfer(slow, arian, BigDecimal.ONE);
+         int depth = service.getQueueDepth(slow);
+         release.countDown();
+
+         ExecutionException exception = assertThrows(ExecutionException.class, () -> third.get(1, TimeUnit.MINUTES));
+         first.get(1, TimeUnit.MINUTES);
+         second.get(1, TimeUnit.MINUTES);
+         assertAll("Backpressure", () -> assertEquals(2, depth), () -> assertTrue(exception.getCause() instanceof RejectedExecutionException),
+               () -> assertEquals(1, service.getRejected()), () -> assertEquals("2", arian.getBalance().toPlainString()));
+      }
+   }
+
+   @Test
+   @DisplayName("Transfers after close are rejected, and nothing is left pending")
+   void testTransferAfterClose() {
+      Account john = new Account("John Doe", new BigDecimal("100"));
+      Account arian = new Account("Arian Doe", new BigDecimal("0"));
+      bank.addAccount(john);
+      bank.addAccount(arian);
+      TransferService service = new TransferService(bank, 10);
+      service.close();
+
+      CompletableFuture<Void> late = service.transfer(john, arian, BigDecimal.ONE);
+
+      ExecutionException exception = assertThrows(ExecutionException.class, () -> late.get(1, TimeUnit.MINUTES));
+      assertAll("Closed", () -> assertInstanceOf(RejectedExecutionException.class, exception.getCause()),
+            () -> assertEquals(0, service.getInFlight()), () -> assertEquals(0, service.getQueueDepth(john)),
+            () -> assertEquals(1, service.getRejected()), () -> assertEquals("100", john.getBalance().toPlainString()));
+   }
+
+   @Test
+   @DisplayName("Empty mailboxes are dropped")
+   void testIdleMailboxesAreDropped() throws Exception {
+      for (int i = 0; i < 100; i++) {
+         bank.addAccount(new Account("Person " + i, new BigDecimal("1000")));
+      }
+      List<Account> accounts = bank.getAccounts();
+      TransferService service = new TransferService(bank, 100);
+      List<CompletableFuture<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < 1_000; i++) {
+         futures.add(service.transfer(accounts.get(i % 100), accounts.get((i + 1) % 100), BigDecimal.ONE));
+      }
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(1, TimeUnit.MINUTES);
+      service.close();
+
+      assertAll("Idle", () -> assertEquals(0, service.getMailboxCount()), () -> assertEquals(0, service.getInFlight()));
+   }
+}
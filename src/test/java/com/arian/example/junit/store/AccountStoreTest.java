@@ -0,0 +1,110 @@
+package com.arian.example.junit.store;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.arian.example.junit.exceptions.InsufficientFundsException;
+import com.arian.example.junit.models.MoneyScale;
+
+@Tag("store")
+@DisplayName("Testing the slot-based AccountStores!")
+class AccountStoreTest {
+
+   // Every implementation must pass the same tests
+   static Stream<AccountStore> stores() {
+      // Tiny capacities, so the tests grow them
+      return Stream.of(new ColumnarAccountStore(MoneyScale.CENTS, 2), new OffHeapAccountStore(MoneyScale.CENTS, 4));
+   }
+
+   @ParameterizedTest(name = "number {index} running with {0}")
+   @MethodSource("stores")
+   @DisplayName("Debits, credits and transfers follow the Account rules")
+   void testOperations(final AccountStore store) {
+      int john = store.open("John Doe", 250_000);
+      int arian = store.open("Arian Doe", 150_090);
+      store.debit(john, 10_000);
+      store.credit(arian, 10);
+      store.transfer(john, arian, 50_000);
+
+      Exception exception = assertThrows(InsufficientFundsException.class, () -> store.debit(arian, 1_000_000));
+
+      assertAll("Operations", () -> assertEquals("Insufficient funds or money!", exception.getMessage()),
+            () -> assertEquals("1900.00", store.getBalance(john).toPlainString()), () -> assertEquals("2001.00", store.getBalance(arian).toPlainString()),
+            () -> assertFalse(store.tryTransfer(john, arian, 190_001)), () -> assertFalse(store.tryDebit(john, 190_001)),
+            () -> assertTrue(store.tryTransfer(john, john, 1)), () -> assertEquals(390_100, store.sumUnits()),
+            () -> assertEquals("JOHN DOE", store.getHolder(john)), () -> assertEquals(2, store.size()),
+            () -> assertThrows(IndexOutOfBoundsException.class, () -> store.getUnits(2)),
+            () -> assertThrows(ArithmeticException.class, () -> store.credit(john, Long.MAX_VALUE)));
+   }
+
+   @ParameterizedTest(name = "number {index} running with {0}")
+   @MethodSource("stores")
+   @DisplayName("Bulk operations see every account, even after the store grows")
+   void testBulkOperations(final AccountStore store) {
+      for (int i = 0; i < 1_000; i++) {
+         store.open("Person " + (i % 10), i % 100 == 0 ? -1_000 : 10_050);
+      }
+
+      store.applyInterest(new BigDecimal("0.05"));
+
+      assertAll("Bulk", () -> assertEquals(1_000, store.size()), () -> assertEquals(10_552, store.getUnits(1)), // 502.5 rounded HALF_EVEN
+            () -> assertEquals(-1_050, store.getUnits(0)), () -> assertEquals(990 * 10_552L - 10 * 1_050L, store.sumUnits()),
+            () -> assertArrayEquals(Stream.iterate(0, i -> i + 100).limit(10).mapToInt(Integer::intValue).toArray(), store.findOverdrawn()),
+            () -> assertEquals("PERSON 3", store.getHolder(993)));
+   }
+
+   @ParameterizedTest(name = "number {index} running with {0}")
+   @MethodSource("stores")
+   @DisplayName("Small daily rates are used exactly, never rounded")
+   void testSmallRate(final AccountStore store) {
+      int john = store.open("John Doe", 100_000_000);
+      int arian = store.open("Arian Doe", 10_000);
+
+      store.applyInterest(new BigDecimal("0.0000137")); // 0.5% a year, per day
+
+      assertAll("Small rate", () -> assertEquals(100_001_370, store.getUnits(john)), () -> assertEquals(10_000, store.getUnits(arian)));
+   }
+
+   @ParameterizedTest(name = "number {index} running with {0}")
+   @MethodSource("stores")
+   @DisplayName("Interest that overflows one balance changes no balance")
+   void testInterestIsAllOrNothing(final AccountStore store) {
+      int john = store.open("John Doe", 10_000);
+      int rich = store.open("Rich Doe", Long.MAX_VALUE / 2 + 1);
+
+      assertAll("All or nothing", () -> assertThrows(ArithmeticException.class, () -> store.applyInterest(BigDecimal.ONE)),
+            () -> assertEquals(10_000, store.getUnits(john)), () -> assertEquals(Long.MAX_VALUE / 2 + 1, store.getUnits(rich)));
+   }
+
+   @Test
+   @DisplayName("Holders are interned: one String per distinct holder")
+   void testHoldersAreInterned() {
+      HolderTable holders = new HolderTable();
+
+      assertAll("Holders", () -> assertEquals(0, holders.idOf("Arian")), () -> assertEquals(1, holders.idOf("Pepe")),
+            () -> assertEquals(0, holders.idOf("ARIAN")), () -> assertEquals(2, holders.size()), () -> assertEquals("PEPE", holders.nameOf(1)));
+   }
+
+   @Test
+   @DisplayName("Rounded division follows the rounding mode of the scale")
+   void testDivide() {
+      assertAll("Divide", () -> assertEquals(2, MoneyScale.CENTS.divide(5, 2)), () -> assertEquals(4, MoneyScale.CENTS.divide(7, 2)),
+            () -> assertEquals(-2, MoneyScale.CENTS.divide(-5, 2)), () -> assertEquals(-4, MoneyScale.CENTS.divide(7, -2)),
+            () -> assertEquals(3, MoneyScale.CENTS.divide(8, 3)), () -> assertEquals(Long.MAX_VALUE / 2 + 1, MoneyScale.CENTS.divide(Long.MAX_VALUE, 2)),
+            () -> assertThrows(ArithmeticException.class, () -> new MoneyScale(2, RoundingMode.UNNECESSARY).divide(1, 3)));
+   }
+}
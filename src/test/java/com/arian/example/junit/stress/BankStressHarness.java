@@ -0,0 +1,186 @@
+package com.arian.example.junit.stress;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.Bank;
+
+/**
+ * Drives random transfers, debits and credits from N threads over the accounts of a bank for a fixed time, while a
+ * checker thread keeps verifying the invariants:
+ * <ul>
+ * <li>Conservation: the total balance only moves by what was debited and credited directly (transfers move nothing).
+ * While running, the total must stay between the bounds given by the operations already done and already started; at
+ * the end it must be exact.</li>
+ * <li>No account is ever overdrawn.</li>
+ * </ul>
+ * Amounts are whole units (1 to {@link #MAX_AMOUNT}), so every kind of account and {@code MoneyScale} holds them
+ * exactly. Plain {@link Account}s and {@code LedgerAccount}s are only thread safe through the bank: use
+ * {@link OperationMix#TRANSFERS_ONLY} for them.
+ */
+public class BankStressHarness {
+
+   static final int MAX_AMOUNT = 300;
+
+   // Violations are kept up to this number: a broken invariant usually breaks on every check after it
+   private static final int MAX_VIOLATIONS = 10;
+
+   private static final BigDecimal[] AMOUNTS = new BigDecimal[MAX_AMOUNT + 1];
+
+   static {
+      for (int i = 0; i <= MAX_AMOUNT; i++) {
+         AMOUNTS[i] = BigDecimal.valueOf(i);
+      }
+   }
+
+   private final Bank bank;
+
+   private final List<Account> accounts;
+
+   // Amounts of the direct debits and credits, counted before they start and after they are done
+   private final LongAdder debitsStarted = new LongAdder();
+
+   private final LongAdder debitsDone = new LongAdder();
+
+   private final LongAdder creditsStarted = new LongAdder();
+
+   private final LongAdder creditsDone = new LongAdder();
+
+   private final Queue<String> violations = new ConcurrentLinkedQueue<>();
+
+   private final AtomicInteger violationCount = new AtomicInteger();
+
+   public BankStressHarness(final Bank bank) {
+      this.bank = bank;
+      this.accounts = bank.getAccounts();
+   }
+
+   public StressReport run(final int threads, final Duration duration, final OperationMix mix) throws Exception {
+      BigDecimal initialTotal = bank.getTotalBalance();
+      ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<long[]>> workers = new ArrayList<>();
+      try {
+         for (int i = 0; i < threads; i++) {
+            workers.add(executor.submit(() -> {
+               start.await();
+               return work(mix, deadline(duration));
+            }));
+         }
+         long begin = System.nanoTime();
+         Future<Long> checker = executor.submit(() -> check(initialTotal, begin + duration.toNanos()));
+         start.countDown();
+
+         long operations = 0;
+         long rejected = 0;
+         for (Future<long[]> worker : workers) {
+            long[] counts = worker.get(duration.toMillis() + 60_000, TimeUnit.MILLISECONDS);
+            operations += counts[0];
+            rejected += counts[1];
+         }
+         long elapsedNanos = System.nanoTime() - begin;
+         long checks = checker.get(1, TimeUnit.MINUTES);
+
+         checkFinalState(initialTotal);
+         return new StressReport(threads, accounts.size(), operations, rejected, checks, elapsedNanos, List.copyOf(violations));
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+
+   private static long deadline(final Duration duration) {
+      return System.nanoTime() + duration.toNanos();
+   }
+
+   // {operations, rejected}
+   private long[] work(final OperationMix mix, final long deadline) {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      int size = accounts.size();
+      long operations = 0;
+      long rejected = 0;
+      do {
+         // The clock is read once every 256 operations
+         for (int i = 0; i < 256; i++) {
+            int amount = random.nextInt(1, MAX_AMOUNT + 1);
+            Account account = accounts.get(random.nextInt(size));
+            int pick = random.nextInt(mix.total());
+            if (pick < mix.getTransfers()) {
+               if (!bank.tryTransfer(account, accounts.get(random.nextInt(size)), AMOUNTS[amount])) {
+                  rejected++;
+               }
+            } else if (pick < mix.getTransfers() + mix.getDebits()) {
+               debitsStarted.add(amount);
+               if (account.tryDebit(AMOUNTS[amount])) {
+                  debitsDone.add(amount);
+               } else {
+                  // Never applied: it may as well not have started
+                  debitsStarted.add(-amount);
+                  rejected++;
+               }
+            } else {
+               creditsStarted.add(amount);
+               account.credit(AMOUNTS[amount]);
+               creditsDone.add(amount);
+            }
+         }
+         operations += 256;
+      } while (System.nanoTime() - deadline < 0);
+      return new long[] { operations, rejected };
+   }
+
+   private long check(final BigDecimal initialTotal, final long deadline) {
+      long checks = 0;
+      while (System.nanoTime() - deadline < 0 && !Thread.currentThread().isInterrupted()) {
+         // Whatever was done before the read must be in the total, whatever started after it can't be
+         long creditsBefore = creditsDone.sum();
+         long debitsBefore = debitsDone.sum();
+         BigDecimal total = bank.getTotalBalance();
+         List<BigDecimal> balances = bank.getConsistentBalances(accounts);
+         BigDecimal lowest = initialTotal.add(BigDecimal.valueOf(creditsBefore - debitsStarted.sum()));
+         BigDecimal highest = initialTotal.add(BigDecimal.valueOf(creditsStarted.sum() - debitsBefore));
+
+         if (total.compareTo(lowest) < 0 || total.compareTo(highest) > 0) {
+            violation("Total " + total + " out of [" + lowest + ", " + highest + "] while running");
+         }
+         checkNotOverdrawn(balances);
+         checks++;
+      }
+      return checks;
+   }
+
+   private void checkFinalState(final BigDecimal initialTotal) {
+      BigDecimal expected = initialTotal.add(BigDecimal.valueOf(creditsDone.sum() - debitsDone.sum()));
+      BigDecimal total = bank.getTotalBalance();
+      if (total.compareTo(expected) != 0) {
+         violation("Total " + total + " at the end, expected " + expected);
+      }
+      checkNotOverdrawn(bank.getConsistentBalances(accounts));
+   }
+
+   private void checkNotOverdrawn(final List<BigDecimal> balances) {
+      for (int i = 0; i < balances.size(); i++) {
+         if (balances.get(i).signum() < 0) {
+            violation("Account " + accounts.get(i).getId() + " overdrawn: " + balances.get(i));
+         }
+      }
+   }
+
+   private void violation(final String message) {
+      if (violationCount.getAndIncrement() < MAX_VIOLATIONS) {
+         violations.add(message);
+      }
+   }
+}
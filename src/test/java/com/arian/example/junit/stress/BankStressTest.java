@@ -0,0 +1,66 @@
+package com.arian.example.junit.stress;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.api.parallel.Isolated;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.arian.example.junit.models.Account;
+import com.arian.example.junit.models.AtomicAccount;
+import com.arian.example.junit.models.Bank;
+import com.arian.example.junit.models.LedgerAccount;
+import com.arian.example.junit.models.StripedAccount;
+
+// A correctness gate and a quick perf smoke test: mvn test -Dgroups=stress -Dstress.seconds=30
+// Isolated: its threads would slow down (and be slowed down by) any test running next to it
+@Tag("stress")
+@DisplayName("Stress testing the Bank invariants!")
+@Isolated
+class BankStressTest {
+
+   private static final int THREADS = 8;
+
+   private static final int ACCOUNTS = 20;
+
+   private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000");
+
+   private static final Duration DURATION = Duration.ofSeconds(Long.getLong("stress.seconds", 1));
+
+   static Stream<Arguments> accountTypes() {
+      return Stream.of(Arguments.of("Account", (BiFunction<String, BigDecimal, Account>) Account::new, OperationMix.TRANSFERS_ONLY),
+            Arguments.of("LedgerAccount", (BiFunction<String, BigDecimal, Account>) LedgerAccount::new, OperationMix.TRANSFERS_ONLY),
+            Arguments.of("AtomicAccount", (BiFunction<String, BigDecimal, Account>) AtomicAccount::new, OperationMix.MIXED),
+            Arguments.of("StripedAccount", (BiFunction<String, BigDecimal, Account>) StripedAccount::new, OperationMix.MIXED));
+   }
+
+   @ParameterizedTest(name = "{0} - {2}")
+   @MethodSource("accountTypes")
+   @DisplayName("Random operations from many threads never break conservation or overdraw an account")
+   void testInvariantsHold(final String type, final BiFunction<String, BigDecimal, Account> factory, final OperationMix mix,
+         final TestReporter testReporter) throws Exception {
+      Bank bank = new Bank();
+      bank.setName("Banco del estado");
+      for (int i = 0; i < ACCOUNTS; i++) {
+         bank.addAccount(factory.apply("Person " + i, INITIAL_BALANCE));
+      }
+
+      StressReport report = new BankStressHarness(bank).run(THREADS, DURATION, mix);
+      testReporter.publishEntry(type, report.toString());
+
+      assertAll("Stress " + type, () -> assertEquals(List.of(), report.getViolations()), () -> assertTrue(report.getOperations() > 0),
+            () -> assertTrue(report.getChecks() > 0, "The invariants must be checked while running"));
+   }
+}
@@ -0,0 +1,26 @@
+package com.arian.example.junit.stress;
+
+import lombok.Value;
+
+/**
+ * Relative weights of the operations a {@link BankStressHarness} worker picks at random.
+ */
+@Value
+public class OperationMix {
+
+   // Only through the bank: the one mix that is safe for every kind of account
+   public static final OperationMix TRANSFERS_ONLY = new OperationMix(1, 0, 0);
+
+   // Direct debits and credits too: only for accounts that are thread safe on their own (AtomicAccount, StripedAccount)
+   public static final OperationMix MIXED = new OperationMix(8, 1, 1);
+
+   int transfers;
+
+   int debits;
+
+   int credits;
+
+   int total() {
+      return transfers + debits + credits;
+   }
+}
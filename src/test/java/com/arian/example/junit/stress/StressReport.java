@@ -0,0 +1,39 @@
+package com.arian.example.junit.stress;
+
+import java.util.List;
+
+import lombok.Value;
+
+/**
+ * What a {@link BankStressHarness} run did, how fast, and which invariants it saw broken (if any).
+ */
+@Value
+public class StressReport {
+
+   int threads;
+
+   int accounts;
+
+   // Every operation attempted, rejected ones included
+   long operations;
+
+   // Debits and transfers refused for lack of funds
+   long rejected;
+
+   // Invariant checks made by the checker thread WHILE the workers were running
+   long checks;
+
+   long elapsedNanos;
+
+   List<String> violations;
+
+   public double getOperationsPerSecond() {
+      return elapsedNanos == 0 ? 0 : operations * 1_000_000_000d / elapsedNanos;
+   }
+
+   @Override
+   public String toString() {
+      return String.format("%d threads, %d accounts: %,d ops in %d ms (%,.0f ops/s), %,d rejected, %,d checks, %d violations", threads,
+            accounts, operations, elapsedNanos / 1_000_000, getOperationsPerSecond(), rejected, checks, violations.size());
+   }
+}